@@ -13,6 +13,11 @@ public class MappingsConsts {
     public static final String USERNAME_PARAM = "username";
     public static final String EMAIL_PARAM = "email";
     public static final String ID_PARAM = "id";
+    public static final String WIDTH_PARAM = "width";
+    public static final String BEFORE_PARAM = "before";
+    public static final String AFTER_PARAM = "after";
+
+    public static final String IMAGE_CONTENT_TYPE = "image/*";
 
     public static final String USER_MAPPING = BASE_MAPPING + "/users";
     public static final String LOGIN_MAPPING = USER_MAPPING + "/login";
@@ -0,0 +1,59 @@
+package pl.tscript3r.photogram.infrastructure;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+
+/**
+ * Hibernate does not know which tables a native update changes, so it evicts every second level cache region
+ * after running one. Updates executed here declare their table, only the regions mapped to it are evicted.
+ */
+@Component
+@RequiredArgsConstructor
+public class NativeUpdates {
+
+    private final EntityManager entityManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public int execute(@NotNull final String table, @NotNull final String sql,
+                       @NotNull final Map<String, Object> parameters) {
+        var query = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(table);
+        parameters.forEach(query::setParameter);
+        return query.executeUpdate();
+    }
+
+    /**
+     * Updates the row of a single entity, the other entities of its table stay cached. The statement runs on
+     * the connection of the current transaction, past Hibernate - the updated entity alone is evicted, again
+     * once the transaction completes, as it may have been cached meanwhile from the previous state.
+     */
+    public int executeOnEntity(@NotNull final Class<?> entityClass, @NotNull final Object id,
+                               @NotNull final String sql, @NotNull final Map<String, Object> parameters) {
+        var updated = jdbcTemplate.update(sql, parameters);
+        evict(entityClass, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    evict(entityClass, id);
+                }
+            });
+        return updated;
+    }
+
+    private void evict(final Class<?> entityClass, final Object id) {
+        entityManagerFactory.getCache().evict(entityClass, id);
+    }
+
+}
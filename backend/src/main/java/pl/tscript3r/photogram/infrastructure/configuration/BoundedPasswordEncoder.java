@@ -0,0 +1,78 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import pl.tscript3r.photogram.infrastructure.exception.InternalErrorPhotogramException;
+import pl.tscript3r.photogram.infrastructure.exception.ServiceUnavailablePhotogramException;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+/**
+ * Hashes on a bounded pool - BCrypt is deliberately CPU heavy, so a burst of logins occupies the pool threads
+ * only, not every request thread. A hash not fitting the queue, or not done in time, is rejected.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ExecutorService hashingExecutor;
+    private final long timeoutMillis;
+
+    public BoundedPasswordEncoder(final PasswordEncoder delegate, final int threadPool, final int queueCapacity,
+                                  final Duration timeout) {
+        this.delegate = delegate;
+        hashingExecutor = new ThreadPoolExecutor(threadPool, threadPool, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+        timeoutMillis = timeout.toMillis();
+    }
+
+    @Override
+    public String encode(final CharSequence rawPassword) {
+        return call(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+        return call(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(final String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T call(final Callable<T> hashing) {
+        Future<T> result;
+        try {
+            result = hashingExecutor.submit(hashing);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailablePhotogramException("Password hashing queue is full");
+        }
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new ServiceUnavailablePhotogramException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InternalErrorPhotogramException("Password hashing interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new InternalErrorPhotogramException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        hashingExecutor.shutdown();
+        try {
+            if (!hashingExecutor.awaitTermination(800, TimeUnit.MILLISECONDS))
+                hashingExecutor.shutdownNow();
+        } catch (InterruptedException e) {
+            hashingExecutor.shutdownNow();
+        }
+    }
+
+}
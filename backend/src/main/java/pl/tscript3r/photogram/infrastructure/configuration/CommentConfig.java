@@ -0,0 +1,17 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("photogram.comment")
+public class CommentConfig {
+
+    /**
+     * Count of the newest comments embedded in each post, the rest is paged through the comments endpoint
+     */
+    private Integer previewSize = 3;
+
+}
@@ -0,0 +1,28 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties("photogram.image")
+public class ImageConfig {
+
+    private String basePath = "backend/src/main/resources/";
+    private DataSize maxUploadSize = DataSize.ofMegabytes(5);
+    private Duration uploadSessionExpiry = Duration.ofHours(24);
+
+    private DataSize cacheCapacity = DataSize.ofMegabytes(64);
+    private DataSize cacheMaxEntrySize = DataSize.ofMegabytes(2);
+    private Integer cacheAdmissionThreshold = 2;
+
+    private Integer variantThreadPool = 2;
+    private Integer variantQueueCapacity = 100;
+    // 4 bytes each when decoded, larger images are subsampled on decode
+    private Long variantMaxDecodedPixels = 40_000_000L;
+
+}
@@ -1,47 +1,78 @@
 package pl.tscript3r.photogram.infrastructure.configuration;
 
 import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import pl.tscript3r.photogram.infrastructure.exception.PhotogramException;
+import pl.tscript3r.photogram.infrastructure.exception.ServiceUnavailablePhotogramException;
 import pl.tscript3r.photogram.user.api.v1.LoginUserDto;
 
 import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 @Slf4j
 public class JwtAuthentication extends UsernamePasswordAuthenticationFilter {
 
+    private static final ObjectReader LOGIN_READER = new ObjectMapper()
+            .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, true)
+            .readerFor(LoginUserDto.class);
+    private static final String RETRY_AFTER_SECONDS = "1";
+
     private AuthenticationManager authenticationManager;
+    private LoginThrottle loginThrottle;
 
-    JwtAuthentication(AuthenticationManager authenticationManager) {
+    JwtAuthentication(AuthenticationManager authenticationManager, LoginThrottle loginThrottle) {
         this.authenticationManager = authenticationManager;
+        this.loginThrottle = loginThrottle;
     }
 
     @Override
     public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, true);
         LoginUserDto loginUserDto;
         try {
-            loginUserDto = objectMapper.readValue(request.getInputStream(), LoginUserDto.class);
+            loginUserDto = LOGIN_READER.readValue(request.getInputStream());
         } catch (Exception e) {
             throw new PhotogramException("Unable to convert Json into Java Object: " + e, e);
         }
-        return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(loginUserDto.getUsername(),
-                loginUserDto.getPassword()));
+        if (!loginThrottle.tryAcquire(request.getRemoteAddr(), loginUserDto.getUsername()))
+            throw new LoginRejectedException("Too many login attempts", HttpStatus.TOO_MANY_REQUESTS);
+        try {
+            return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
+                    loginUserDto.getUsername(), loginUserDto.getPassword()));
+        } catch (ServiceUnavailablePhotogramException e) {
+            throw new LoginRejectedException(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @Override
+    protected void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+                                              AuthenticationException failed) throws IOException, ServletException {
+        if (!(failed instanceof LoginRejectedException)) {
+            super.unsuccessfulAuthentication(request, response, failed);
+            return;
+        }
+        SecurityContextHolder.clearContext();
+        log.debug("Login rejected [address={}]: {}", request.getRemoteAddr(), failed.getMessage());
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.sendError(((LoginRejectedException) failed).status.value(), failed.getMessage());
     }
 
 
@@ -57,13 +88,25 @@ public class JwtAuthentication extends UsernamePasswordAuthenticationFilter {
         response.setStatus(HttpStatus.NO_CONTENT.value());
 
         String jwtToken = JWT.create()
-                .withIssuer("Photogram")
+                .withIssuer(SecurityConstants.ISSUER)
+                .withJWTId(UUID.randomUUID().toString())
                 .withSubject(user.getUsername())
-                .withArrayClaim("roles", roles.stream().toArray(String[]::new))
+                .withArrayClaim(SecurityConstants.ROLES_CLAIM, roles.stream().toArray(String[]::new))
                 .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
-                .sign(Algorithm.HMAC256(SecurityConstants.SECRET));
+                .sign(SecurityConstants.ALGORITHM);
         response.addHeader(SecurityConstants.HEADER_TYPE, SecurityConstants.TOKEN_PREFIX + jwtToken);
     }
 
+    private static class LoginRejectedException extends AuthenticationException {
+
+        private final HttpStatus status;
+
+        private LoginRejectedException(final String message, final HttpStatus status) {
+            super(message);
+            this.status = status;
+        }
+
+    }
+
 }
 
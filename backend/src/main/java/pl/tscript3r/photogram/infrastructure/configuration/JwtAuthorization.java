@@ -1,12 +1,7 @@
 package pl.tscript3r.photogram.infrastructure.configuration;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
-import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -15,13 +10,16 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
 
 @Slf4j
 public class JwtAuthorization extends OncePerRequestFilter {
 
+    private final VerifiedTokens verifiedTokens;
+
+    JwtAuthorization(VerifiedTokens verifiedTokens) {
+        this.verifiedTokens = verifiedTokens;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -48,15 +46,12 @@ public class JwtAuthorization extends OncePerRequestFilter {
                 filterChain.doFilter(request, response);
                 return;
             }
-            JWT.require(Algorithm.HMAC256(SecurityConstants.SECRET));
-            DecodedJWT jwt = JWT.decode(jwtToken.substring(SecurityConstants.TOKEN_PREFIX.length()));
-            String username = jwt.getSubject();
-            List<String> roles = jwt.getClaims().get("roles").asList(String.class);
-            Collection<GrantedAuthority> authorities = new ArrayList<>();
-            roles.forEach(role -> authorities.add(new SimpleGrantedAuthority(role)));
-            UsernamePasswordAuthenticationToken authenticatedUser = new UsernamePasswordAuthenticationToken(username,
-                    null, authorities);
-            SecurityContextHolder.getContext().setAuthentication(authenticatedUser);
+            try {
+                SecurityContextHolder.getContext().setAuthentication(
+                        verifiedTokens.authenticate(jwtToken.substring(SecurityConstants.TOKEN_PREFIX.length())));
+            } catch (JWTVerificationException e) {
+                log.debug("Rejected token: {}", e.getMessage());
+            }
             filterChain.doFilter(request, response);
         }
     }
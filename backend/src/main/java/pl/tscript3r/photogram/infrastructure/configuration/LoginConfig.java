@@ -0,0 +1,25 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties("photogram.login")
+public class LoginConfig {
+
+    private Integer passwordStrength = 10;
+    private Integer hashingThreadPool = 2;
+    private Integer hashingQueueCapacity = 50;
+    private Duration hashingTimeout = Duration.ofSeconds(5);
+
+    private Integer usernameAttempts = 20;
+    private Duration usernameRefillPeriod = Duration.ofMinutes(15);
+    private Integer addressAttempts = 100;
+    private Duration addressRefillPeriod = Duration.ofMinutes(1);
+    private Long throttledKeysCapacity = 100_000L;
+
+}
@@ -0,0 +1,83 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Token buckets of the login attempts, per username and per client address - a bucket holds up to the attempts
+ * limit and refills evenly over the refill period. A bucket idle for the whole period is full again, so it is
+ * dropped.
+ */
+@Component
+class LoginThrottle {
+
+    private final Cache<String, TokenBucket> usernameBuckets;
+    private final Cache<String, TokenBucket> addressBuckets;
+    private final LoginConfig loginConfig;
+    private final Ticker ticker;
+
+    @Autowired
+    LoginThrottle(final LoginConfig loginConfig) {
+        this(loginConfig, Ticker.systemTicker());
+    }
+
+    LoginThrottle(final LoginConfig loginConfig, final Ticker ticker) {
+        this.loginConfig = loginConfig;
+        this.ticker = ticker;
+        usernameBuckets = newBuckets(loginConfig.getUsernameRefillPeriod());
+        addressBuckets = newBuckets(loginConfig.getAddressRefillPeriod());
+    }
+
+    private Cache<String, TokenBucket> newBuckets(final Duration refillPeriod) {
+        return Caffeine.newBuilder()
+                .maximumSize(loginConfig.getThrottledKeysCapacity())
+                .expireAfterAccess(refillPeriod)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Both buckets are charged - guessing many usernames from one address is throttled as well as guessing one
+     * username from many addresses.
+     */
+    boolean tryAcquire(final String address, final String username) {
+        var addressAllowed = addressBuckets.get(address, key ->
+                new TokenBucket(loginConfig.getAddressAttempts(), loginConfig.getAddressRefillPeriod()))
+                .tryConsume(ticker.read());
+        var usernameAllowed = username == null || usernameBuckets.get(username, key ->
+                new TokenBucket(loginConfig.getUsernameAttempts(), loginConfig.getUsernameRefillPeriod()))
+                .tryConsume(ticker.read());
+        return addressAllowed && usernameAllowed;
+    }
+
+    private class TokenBucket {
+
+        private final int capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt;
+
+        private TokenBucket(final int capacity, final Duration refillPeriod) {
+            this.capacity = capacity;
+            tokensPerNano = (double) capacity / refillPeriod.toNanos();
+            tokens = capacity;
+            refilledAt = ticker.read();
+        }
+
+        private synchronized boolean tryConsume(final long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens < 1)
+                return false;
+            tokens--;
+            return true;
+        }
+
+    }
+
+}
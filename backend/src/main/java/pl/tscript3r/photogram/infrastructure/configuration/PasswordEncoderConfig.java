@@ -3,13 +3,16 @@ package pl.tscript3r.photogram.infrastructure.configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class PasswordEncoderConfig {
 
     @Bean
-    public BCryptPasswordEncoder getBCryptPasswordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder getPasswordEncoder(LoginConfig loginConfig) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(loginConfig.getPasswordStrength()),
+                loginConfig.getHashingThreadPool(), loginConfig.getHashingQueueCapacity(),
+                loginConfig.getHashingTimeout());
     }
 
 }
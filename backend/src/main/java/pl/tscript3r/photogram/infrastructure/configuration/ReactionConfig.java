@@ -0,0 +1,14 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("photogram.reaction")
+public class ReactionConfig {
+
+    private String snapshotPath = "backend/src/main/resources/reactions.snapshot";
+
+}
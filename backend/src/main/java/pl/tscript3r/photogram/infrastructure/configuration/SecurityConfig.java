@@ -7,11 +7,14 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import pl.tscript3r.photogram.user.token.TokenRevocationService;
 
 import static pl.tscript3r.photogram.infrastructure.MappingsConsts.*;
+import static pl.tscript3r.photogram.infrastructure.configuration.SecurityConstants.VERIFIED_TOKENS_CAPACITY;
 
 @Configuration
 @EnableWebSecurity
@@ -21,23 +24,32 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
             "/resources/**", "/static/**", "/css/**", "/js/**", "/images/**", "/h2-console/**", "/*"};
 
     private final UserDetailsService userDetailsService;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final UserDetailsPasswordService userDetailsPasswordService;
+    private final PasswordEncoder passwordEncoder;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginThrottle loginThrottle;
 
     @Lazy
-    public SecurityConfig(UserDetailsService userDetailsService, BCryptPasswordEncoder passwordEncoder) {
+    public SecurityConfig(UserDetailsService userDetailsService, UserDetailsPasswordService userDetailsPasswordService,
+                          PasswordEncoder passwordEncoder, TokenRevocationService tokenRevocationService,
+                          LoginThrottle loginThrottle) {
         this.userDetailsService = userDetailsService;
+        this.userDetailsPasswordService = userDetailsPasswordService;
         this.passwordEncoder = passwordEncoder;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginThrottle = loginThrottle;
     }
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
         auth.userDetailsService(userDetailsService)
-                .passwordEncoder(passwordEncoder);
+                .passwordEncoder(passwordEncoder)
+                .userDetailsPasswordManager(userDetailsPasswordService);
     }
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
-        var jwtAuthentication = new JwtAuthentication(authenticationManager());
+        var jwtAuthentication = new JwtAuthentication(authenticationManager(), loginThrottle);
         jwtAuthentication.setFilterProcessesUrl(PUBLIC_MATCHERS[0]);
         // TODO: for h2-console
         http.headers().frameOptions().disable();
@@ -48,7 +60,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .anyRequest().authenticated()
                 .and()
                 .addFilter(jwtAuthentication)
-                .addFilterBefore(new JwtAuthorization(), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(new JwtAuthorization(new VerifiedTokens(VERIFIED_TOKENS_CAPACITY, tokenRevocationService)),
+                        UsernamePasswordAuthenticationFilter.class);
     }
 
 }
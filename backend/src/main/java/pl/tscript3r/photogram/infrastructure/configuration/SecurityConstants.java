@@ -1,9 +1,15 @@
 package pl.tscript3r.photogram.infrastructure.configuration;
 
+import com.auth0.jwt.algorithms.Algorithm;
+
 class SecurityConstants {
 
     static final String SECRET = "^[a-zA-Z0-9._]+$\r\nGuidelines89797987forAlphabeticalArraNumeralsandOtherSymbo$";
+    static final Algorithm ALGORITHM = Algorithm.HMAC256(SECRET);
+    static final String ISSUER = "Photogram";
+    static final String ROLES_CLAIM = "roles";
     static final Long EXPIRATION_TIME = 432_000_000L; // 5 days
+    static final long VERIFIED_TOKENS_CAPACITY = 10_000;
     static final String TOKEN_PREFIX = "Bearer ";
     static final String HEADER_TYPE = "Authorization";
     static final String CLIENT_DOMAIN_URL = "*";
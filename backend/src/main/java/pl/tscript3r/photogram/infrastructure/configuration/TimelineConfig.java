@@ -0,0 +1,34 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("photogram.timeline")
+public class TimelineConfig {
+
+    /**
+     * Count of the newest posts kept in each users timeline, older ones are trimmed periodically
+     */
+    private Integer capacity = 800;
+
+    /**
+     * Posts of the authors followed by more users are not pushed into the followers timelines,
+     * they are merged in when the timeline is read
+     */
+    private Integer fanOutFollowerLimit = 10_000;
+
+    /**
+     * Pulled authors are pushed again only when their followers drop this many below the fan-out limit, so an
+     * author around the limit does not switch with every follow
+     */
+    private Integer fanOutHysteresis = 1_000;
+
+    /**
+     * Followers backfilled in a single transaction, when their author is pushed again
+     */
+    private Integer backfillBatchSize = 500;
+
+}
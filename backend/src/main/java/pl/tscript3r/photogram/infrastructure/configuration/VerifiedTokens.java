@@ -0,0 +1,116 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import pl.tscript3r.photogram.user.token.RevocableToken;
+import pl.tscript3r.photogram.user.token.TokenRevocationService;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tokens are verified once and kept until they expire, keyed by the whole token - repeated requests with the same
+ * token skip the decoding and the HMAC, while a token differing in any part, a copied signature included, is
+ * verified on its own. The revocation is checked on every request.
+ */
+class VerifiedTokens {
+
+    private static final JWTVerifier VERIFIER = JWT.require(SecurityConstants.ALGORITHM)
+            .withIssuer(SecurityConstants.ISSUER)
+            .build();
+
+    private final Cache<String, VerifiedToken> cache;
+    private final TokenRevocationService tokenRevocationService;
+
+    VerifiedTokens(final long capacity, final TokenRevocationService tokenRevocationService) {
+        this.tokenRevocationService = tokenRevocationService;
+        cache = Caffeine.newBuilder()
+                .maximumSize(capacity)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+    }
+
+    /**
+     * @throws JWTVerificationException for a token with an invalid signature, issuer, expired or revoked
+     */
+    UsernamePasswordAuthenticationToken authenticate(final String token) {
+        var verifiedToken = cache.getIfPresent(token);
+        if (verifiedToken == null) {
+            verifiedToken = verify(token);
+            if (verifiedToken.expiresAt != null)
+                cache.put(token, verifiedToken);
+        }
+        var authentication = new UsernamePasswordAuthenticationToken(verifiedToken.username, null,
+                verifiedToken.authorities);
+        if (verifiedToken.id != null) {
+            if (tokenRevocationService.isRevoked(verifiedToken.id))
+                throw new JWTVerificationException("Token id=" + verifiedToken.id + " revoked");
+            authentication.setDetails(new RevocableToken(verifiedToken.id, verifiedToken.expiresAt.toInstant()));
+        }
+        return authentication;
+    }
+
+    private VerifiedToken verify(final String token) {
+        var jwt = VERIFIER.verify(token);
+        var roles = jwt.getClaim(SecurityConstants.ROLES_CLAIM).asList(String.class);
+        List<GrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableList());
+        return new VerifiedToken(jwt.getSubject(), authorities, jwt.getId(), jwt.getExpiresAt());
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private static class VerifiedToken {
+
+        private final String username;
+        private final List<GrantedAuthority> authorities;
+        private final String id;
+        private final Date expiresAt;
+
+        private VerifiedToken(final String username, final List<GrantedAuthority> authorities, final String id,
+                              final Date expiresAt) {
+            this.username = username;
+            this.authorities = authorities;
+            this.id = id;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+    private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(final String token, final VerifiedToken verifiedToken,
+                                      final long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(
+                    Math.max(0, verifiedToken.expiresAt.getTime() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(final String token, final VerifiedToken verifiedToken,
+                                      final long currentTime, final long currentDuration) {
+            return expireAfterCreate(token, verifiedToken, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(final String token, final VerifiedToken verifiedToken,
+                                    final long currentTime, final long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
@@ -0,0 +1,13 @@
+package pl.tscript3r.photogram.infrastructure.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceUnavailablePhotogramException extends PhotogramException {
+
+    public ServiceUnavailablePhotogramException(String message) {
+        super(message);
+    }
+
+}
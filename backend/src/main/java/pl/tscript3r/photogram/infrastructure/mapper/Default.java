@@ -0,0 +1,15 @@
+package pl.tscript3r.photogram.infrastructure.mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the constructor used by the generated mappers, when the mapped class has more than one - matched by the
+ * annotation processor by its name.
+ */
+@Target(ElementType.CONSTRUCTOR)
+@Retention(RetentionPolicy.CLASS)
+public @interface Default {
+}
@@ -1,10 +1,14 @@
 package pl.tscript3r.photogram.infrastructure.mapper;
 
 import javax.validation.constraints.NotNull;
+import java.util.List;
 
 public interface Mapper {
 
-    <T extends DataStructure> Boolean compatible(@NotNull final Class<T> t);
+    /**
+     * @return types mapped one to another, registered by the mapper service
+     */
+    List<Class<? extends DataStructure>> getTypes();
 
     <T extends DataStructure, S extends DataStructure> T map(@NotNull final S source, @NotNull final Class<T> target);
 
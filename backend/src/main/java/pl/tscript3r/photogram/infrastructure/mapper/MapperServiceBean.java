@@ -9,68 +9,71 @@ import pl.tscript3r.photogram.infrastructure.exception.InternalErrorPhotogramExc
 import javax.validation.constraints.NotNull;
 import java.util.*;
 
+/**
+ * Mappers are registered once by the (source, target) type pair, a mapping is dispatched with two map lookups.
+ * A subclass of a registered type, like a Hibernate proxy, is resolved to the registered type once per class.
+ */
 @Lazy
 @Service
 public class MapperServiceBean implements MapperService, ApplicationContextAware {
 
-    private final Set<Mapper> mappers = new HashSet<>();
+    // source -> target -> mapper
+    private final Map<Class<?>, Map<Class<?>, Mapper>> registry = new HashMap<>();
+
+    private final ClassValue<Map<Class<?>, Mapper>> sourceMappers = new ClassValue<>() {
+        @Override
+        protected Map<Class<?>, Mapper> computeValue(final Class<?> source) {
+            for (Class<?> type = source; type != null; type = type.getSuperclass()) {
+                var mappers = registry.get(type);
+                if (mappers != null)
+                    return mappers;
+            }
+            return Collections.emptyMap();
+        }
+    };
 
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) {
-        mappers.addAll(applicationContext.getBeansOfType(Mapper.class)
-                .values());
+        applicationContext.getBeansOfType(Mapper.class)
+                .values()
+                .forEach(this::register);
+    }
+
+    private void register(final Mapper mapper) {
+        for (Class<?> source : mapper.getTypes())
+            for (Class<?> target : mapper.getTypes())
+                if (source != target && registry.computeIfAbsent(source, type -> new HashMap<>())
+                        .putIfAbsent(target, mapper) != null)
+                    throw new InternalErrorPhotogramException("Mapper for [" + source.getName() + "] -> ["
+                            + target.getName() + "] already registered");
     }
 
     @Override
     public <E extends DataStructure, T extends DataStructure> E map(@NotNull final T source,
                                                                     @NotNull final Class<E> convertTo) {
-        try {
-            Mapper mapper = getMapper(source);
-            if (mapper.compatible(convertTo))
-                return mapper.map(source, convertTo);
-            throw new InternalErrorPhotogramException("Type [" + source.getClass().getName()
-                    + "] cannot be converted to [" + convertTo.getName() + "]");
-        } catch (ClassCastException e) {
-            throw getCustomException(e, source.getClass(), convertTo);
-        }
+        return getMapper(source, convertTo).map(source, convertTo);
     }
 
-    private Mapper getMapper(final DataStructure source) {
-        for (Mapper mapper : mappers)
-            if (mapper.compatible(source.getClass()))
-                return mapper;
-        throw new InternalErrorPhotogramException("Mapper for [" +
-                source.getClass().getName() + "] not found");
-    }
-
-    private InternalErrorPhotogramException getCustomException(ClassCastException e, Class source, Class target) {
-        String message = "Class cast exception by %s of [%s] -> [%s]";
-        if (isCollection(source))
-            message = String.format(message, "collection mapping", source.getName(), target.getName());
-        else
-            message = String.format(message, "mapping", source.getName(), target.getName());
-        return new InternalErrorPhotogramException(message, e);
-    }
-
-    private boolean isCollection(final Object o) {
-        return o instanceof Collection || o instanceof Map;
+    private Mapper getMapper(final DataStructure source, final Class<?> target) {
+        var mapper = sourceMappers.get(source.getClass()).get(target);
+        if (mapper == null)
+            throw new InternalErrorPhotogramException("Type [" + source.getClass().getName()
+                    + "] cannot be converted to [" + target.getName() + "]");
+        return mapper;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <E extends DataStructure, T extends DataStructure, F extends Collection<E>>
     F map(@NotNull final Collection<T> source, @NotNull final Class<E> convertTo) {
-        try {
-            if (source.isEmpty())
-                return (F) new ArrayList<E>();
-            return getCollectionMapper(source).map(source, convertTo);
-        } catch (ClassCastException e) {
-            throw getCustomException(e, source.getClass(), convertTo);
-        }
+        if (source.isEmpty())
+            return (F) new ArrayList<E>();
+        return getCollectionMapper(source, convertTo).map(source, convertTo);
     }
 
-    private <T extends DataStructure> CollectionMapper getCollectionMapper(final Collection<T> source) {
-        Mapper mapper = getMapper(source.iterator().next());
+    private <T extends DataStructure> CollectionMapper getCollectionMapper(final Collection<T> source,
+                                                                           final Class<?> target) {
+        Mapper mapper = getMapper(source.iterator().next(), target);
         if (mapper instanceof CollectionMapper)
             return (CollectionMapper) mapper;
         throw new InternalErrorPhotogramException("Mapper for [" +
@@ -2,6 +2,8 @@ package pl.tscript3r.photogram.post;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
@@ -20,17 +22,21 @@ import java.util.List;
 
 @Getter
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "posts_valid_id_idx", columnList = "valid, id"),
+        @Index(name = "posts_user_valid_id_idx", columnList = "user_id, valid, id")})
 @Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts")
 public class Post extends AbstractEntity {
 
     private static final int MAX_IMAGES_PER_POST = 10;
+    private static final Long BASE_IMAGE_ID = 1000L;
 
     @Setter
     @OneToOne
     private User user;
 
-    @OneToMany(mappedBy = "post", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "post", cascade = CascadeType.ALL)
     private List<Comment> comments = new ArrayList<>();
 
     @Setter
@@ -42,6 +48,7 @@ public class Post extends AbstractEntity {
 
     @ManyToMany(cascade = CascadeType.ALL)
     @Fetch(value = FetchMode.SUBSELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts-images")
     @JoinTable(name = "post_images",
             joinColumns = @JoinColumn(name = "post_id", referencedColumnName = "id"),
             inverseJoinColumns = @JoinColumn(name = "image_id", referencedColumnName = "id"))
@@ -65,12 +72,22 @@ public class Post extends AbstractEntity {
     @Enumerated(EnumType.STRING)
     private Visibility visibility = Visibility.PRIVATE;
 
-    @Column(nullable = false)
+    /**
+     * The counters are changed by single statements only, see {@link PostReactionRepository#incrementLikes(Long)} -
+     * not updatable, a post flushed with stale counters does not overwrite the concurrent reactions.
+     */
+    @Column(nullable = false, updatable = false)
     private Integer likes = 0;
 
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private Integer dislikes = 0;
 
+    /**
+     * Changed by single statements as well, see {@link pl.tscript3r.photogram.post.comment.CommentCountRepository}.
+     */
+    @Column(nullable = false, updatable = false)
+    private Integer commentCount = 0;
+
     @CreationTimestamp
     private LocalDateTime creationDate;
 
@@ -87,6 +104,18 @@ public class Post extends AbstractEntity {
         images.add(image);
     }
 
+    /**
+     * Image ids are unique per post only, the next one is allocated from the images metadata. Concurrent uploads
+     * to the same post have to be serialized by the caller - see {@link PostRepository#findForUpdateById(Long)}.
+     */
+    public Long getNextImageId() {
+        return images.stream()
+                .map(Image::getImageId)
+                .max(Long::compare)
+                .map(imageId -> imageId + 1)
+                .orElse(BASE_IMAGE_ID);
+    }
+
     public Image getImage(@NotNull final Long imageId) {
         for (var image : images)
             if (image.getImageId().equals(imageId))
@@ -95,22 +124,4 @@ public class Post extends AbstractEntity {
                 getId()));
     }
 
-    public void incrementLikes() {
-        likes++;
-    }
-
-    public void decrementLikes() {
-        if (likes > 0)
-            likes--;
-    }
-
-    public void incrementDislikes() {
-        dislikes++;
-    }
-
-    public void decrementDislikes() {
-        if (dislikes > 0)
-            dislikes--;
-    }
-
 }
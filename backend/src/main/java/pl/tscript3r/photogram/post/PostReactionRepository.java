@@ -0,0 +1,38 @@
+package pl.tscript3r.photogram.post;
+
+/**
+ * Reaction rows and the post counters are written by native statements, see {@link PostReactionRepositoryImpl}.
+ */
+public interface PostReactionRepository {
+
+    /**
+     * Inserts the reaction row only when it is not there yet - returns 0 for a repeated reaction. Concurrent
+     * duplicates are rejected by the join table primary key.
+     */
+    int insertLike(Long userId, Long postId);
+
+    int deleteLike(Long userId, Long postId);
+
+    int insertDislike(Long userId, Long postId);
+
+    int deleteDislike(Long userId, Long postId);
+
+    /**
+     * Changes the counter by a single statement, only the cached entry of the post is invalidated - not every
+     * cached post, as by a bulk JPQL update.
+     */
+    int incrementLikes(Long postId);
+
+    int decrementLikes(Long postId);
+
+    int incrementDislikes(Long postId);
+
+    int decrementDislikes(Long postId);
+
+    /**
+     * Counts the changes of the reaction tables - incremented by each transaction changing them, which holds the
+     * single sequence row locked until it completes. See {@link pl.tscript3r.photogram.post.reaction.ReactionIndex}.
+     */
+    int incrementReactionSequence();
+
+}
@@ -0,0 +1,81 @@
+package pl.tscript3r.photogram.post;
+
+import lombok.RequiredArgsConstructor;
+import pl.tscript3r.photogram.infrastructure.NativeUpdates;
+
+import java.util.Map;
+
+@RequiredArgsConstructor
+class PostReactionRepositoryImpl implements PostReactionRepository {
+
+    private static final String LIKES_TABLE = "users_likes";
+    private static final String DISLIKES_TABLE = "users_dislikes";
+    private static final String INSERT = "insert into %1$s (user_id, post_id) select u.id, :postId from users u " +
+            "where u.id = :userId and not exists " +
+            "(select 1 from %1$s r where r.user_id = :userId and r.post_id = :postId)";
+    private static final String DELETE = "delete from %s where user_id = :userId and post_id = :postId";
+    private static final String INCREMENT = "update posts set %1$s = %1$s + 1 where id = :postId";
+    private static final String DECREMENT = "update posts set %1$s = %1$s - 1 where id = :postId and %1$s > 0";
+    private static final String LIKES_COLUMN = "likes";
+    private static final String DISLIKES_COLUMN = "dislikes";
+    private static final String SEQUENCE_TABLE = "reaction_sequence";
+    private static final String INCREMENT_SEQUENCE = "update reaction_sequence " +
+            "set sequence_number = sequence_number + 1";
+
+    private final NativeUpdates nativeUpdates;
+
+    @Override
+    public int insertLike(final Long userId, final Long postId) {
+        return execute(INSERT, LIKES_TABLE, userId, postId);
+    }
+
+    @Override
+    public int deleteLike(final Long userId, final Long postId) {
+        return execute(DELETE, LIKES_TABLE, userId, postId);
+    }
+
+    @Override
+    public int insertDislike(final Long userId, final Long postId) {
+        return execute(INSERT, DISLIKES_TABLE, userId, postId);
+    }
+
+    @Override
+    public int deleteDislike(final Long userId, final Long postId) {
+        return execute(DELETE, DISLIKES_TABLE, userId, postId);
+    }
+
+    @Override
+    public int incrementLikes(final Long postId) {
+        return updateCounter(INCREMENT, LIKES_COLUMN, postId);
+    }
+
+    @Override
+    public int decrementLikes(final Long postId) {
+        return updateCounter(DECREMENT, LIKES_COLUMN, postId);
+    }
+
+    @Override
+    public int incrementDislikes(final Long postId) {
+        return updateCounter(INCREMENT, DISLIKES_COLUMN, postId);
+    }
+
+    @Override
+    public int decrementDislikes(final Long postId) {
+        return updateCounter(DECREMENT, DISLIKES_COLUMN, postId);
+    }
+
+    @Override
+    public int incrementReactionSequence() {
+        return nativeUpdates.execute(SEQUENCE_TABLE, INCREMENT_SEQUENCE, Map.of());
+    }
+
+    private int updateCounter(final String sql, final String column, final Long postId) {
+        return nativeUpdates.executeOnEntity(Post.class, postId, String.format(sql, column),
+                Map.of("postId", postId));
+    }
+
+    private int execute(final String sql, final String table, final Long userId, final Long postId) {
+        return nativeUpdates.execute(table, String.format(sql, table), Map.of("userId", userId, "postId", postId));
+    }
+
+}
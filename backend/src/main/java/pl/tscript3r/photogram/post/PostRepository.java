@@ -2,20 +2,113 @@ package pl.tscript3r.photogram.post;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.transaction.annotation.Transactional;
+import pl.tscript3r.photogram.post.api.v1.PostDto;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface PostRepository extends PagingAndSortingRepository<Post, Long> {
+public interface PostRepository extends PagingAndSortingRepository<Post, Long>, PostReactionRepository {
 
-    Slice<Post> findByUserIdAndValidIsTrue(Long userId, Pageable pageable);
+    /**
+     * Selects only the columns of the {@link PostDto}, the posts are not loaded to the persistence context.
+     */
+    String SELECT_POST_DTO = "select new pl.tscript3r.photogram.post.api.v1.PostDto(p.id, u.id, u.username, " +
+            "p.caption, p.location, p.visibility, p.likes, p.dislikes, p.commentCount, p.creationDate) " +
+            "from Post p join p.user u ";
 
-    Slice<Post> findAllByValidIsTrue(Pageable pageable);
+    @Query(SELECT_POST_DTO + "where u.id = :userId and p.valid = true")
+    Slice<PostDto> findDtosByUserId(Long userId, Pageable pageable);
+
+    @Query(SELECT_POST_DTO + "where p.valid = true")
+    Slice<PostDto> findDtos(Pageable pageable);
+
+    @Query(SELECT_POST_DTO + "where u.id = :userId and p.valid = true and p.id < :before")
+    Slice<PostDto> findDtosByUserIdBefore(Long userId, Long before, Pageable pageable);
+
+    @Query(SELECT_POST_DTO + "where p.valid = true and p.id < :before")
+    Slice<PostDto> findDtosBefore(Long before, Pageable pageable);
+
+    @Query(SELECT_POST_DTO + "where p.id in :ids and p.valid = true")
+    List<PostDto> findDtosByIds(Collection<Long> ids, Sort sort);
+
+    @Query("select p.id as postId, i.imageId as imageId, i.extension as extension, i.width as width, " +
+            "i.height as height from Post p join p.images i where p.id in :postIds order by i.id")
+    List<PostImage> findImagesByPostIds(Collection<Long> postIds);
+
+    @Query("select p.id from Post p where p.user.id in :userIds and p.valid = true and p.id < :before " +
+            "order by p.id desc")
+    List<Long> findIdsByUserIds(Collection<Long> userIds, Long before, Pageable pageable);
+
+    @Query("select p.user.id as userId, count(p) as count from Post p where p.user.id in :userIds group by p.user.id")
+    List<UserPostCount> countByUserIds(Collection<Long> userIds);
+
+    @Query("select count(p) from Post p where p.user.id = :userId")
+    long countByUserId(Long userId);
+
+    @Query("select count(p) > 0 from User u join u.likedPost p where u.id = :userId and p.id = :postId")
+    boolean existsLike(Long userId, Long postId);
+
+    @Query("select count(p) > 0 from User u join u.dislikedPost p where u.id = :userId and p.id = :postId")
+    boolean existsDislike(Long userId, Long postId);
+
+    @Query("select p.id from User u join u.likedPost p where u.id = :userId and p.id in :postIds")
+    Set<Long> findLikedIds(Long userId, Collection<Long> postIds);
+
+    @Query("select p.id from User u join u.dislikedPost p where u.id = :userId and p.id in :postIds")
+    Set<Long> findDislikedIds(Long userId, Collection<Long> postIds);
+
+    /**
+     * Locks the post row until the end of the transaction, so the uploads to the same post
+     * allocate image ids one after another.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Post p where p.id = :id")
+    Optional<Post> findForUpdateById(Long id);
+
+    @Query(value = "select post_id, user_id from users_likes", nativeQuery = true)
+    Stream<Object[]> streamLikes();
+
+    @Query(value = "select post_id, user_id from users_dislikes", nativeQuery = true)
+    Stream<Object[]> streamDislikes();
+
+    @Query(value = "select sequence_number from reaction_sequence", nativeQuery = true)
+    Long getReactionSequence();
 
     @Transactional
     void deleteByCreationDateBefore(LocalDateTime expiryDate);
 
     Integer countByCreationDateBefore(LocalDateTime expiryDate);
 
+    interface PostImage {
+
+        Long getPostId();
+
+        Long getImageId();
+
+        String getExtension();
+
+        Integer getWidth();
+
+        Integer getHeight();
+
+    }
+
+    interface UserPostCount {
+
+        Long getUserId();
+
+        Long getCount();
+
+    }
+
 }
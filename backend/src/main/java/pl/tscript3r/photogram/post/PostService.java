@@ -1,26 +1,42 @@
 package pl.tscript3r.photogram.post;
 
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.io.FilenameUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.tscript3r.photogram.infrastructure.MappingsConsts;
 import pl.tscript3r.photogram.infrastructure.exception.IgnoredPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.InternalErrorPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
 import pl.tscript3r.photogram.infrastructure.mapper.MapperService;
 import pl.tscript3r.photogram.post.api.v1.PostDto;
+import pl.tscript3r.photogram.post.api.v1.PostFeedAssembler;
 import pl.tscript3r.photogram.post.image.Image;
 import pl.tscript3r.photogram.post.image.ImageService;
+import pl.tscript3r.photogram.post.image.UploadSession;
+import pl.tscript3r.photogram.post.image.UploadSessionService;
+import pl.tscript3r.photogram.post.image.api.v1.UploadSessionDto;
+import pl.tscript3r.photogram.post.reaction.ReactionIndex;
+import pl.tscript3r.photogram.post.timeline.TimelineService;
 import pl.tscript3r.photogram.user.AuthorizationService;
 import pl.tscript3r.photogram.user.User;
 import pl.tscript3r.photogram.user.UserService;
 
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
+import java.util.List;
 
 @Service
 @Transactional
@@ -31,30 +47,62 @@ public class PostService {
     private final AuthorizationService authorizationService;
     private final PostRepository postRepository;
     private final ImageService imageService;
+    private final UploadSessionService uploadSessionService;
     private final MapperService mapperService;
+    private final PostFeedAssembler postFeedAssembler;
+    private final TimelineService timelineService;
+    private final ReactionIndex reactionIndex;
+    private final PlatformTransactionManager transactionManager;
 
-    public Slice<PostDto> getLatest(@NotNull final Pageable pageable) {
-        return postRepository.findAllByValidIsTrue(pageable)
-                .map(post -> {
-                    var postDto = mapperService.map(post, PostDto.class);
-                    postDto.setUsername(post.getUser().getUsername());
-                    return postDto;
-                });
+    /**
+     * @param before id of the last post already seen by the client - when given, the page is seeked with
+     *               {@code id < before} in the newest first order, instead of being offset by the page number
+     */
+    @Transactional(readOnly = true)
+    public Slice<PostDto> getLatest(final Long before, @NotNull final Pageable pageable) {
+        if (before == null)
+            return postFeedAssembler.assemble(postRepository.findDtos(pageable));
+        return postFeedAssembler.assemble(postRepository.findDtosBefore(before, getSeekPageable(pageable)));
     }
 
-    public Slice<PostDto> getLatest(@NotNull final String username, @NotNull final Pageable pageable) {
+    @Transactional(readOnly = true)
+    public Slice<PostDto> getLatest(@NotNull final String username, final Long before,
+                                    @NotNull final Pageable pageable) {
         User user = userService.getByUsername(username);
-        return getLatestDtosFromUser(user, pageable);
+        return getLatestDtosFromUser(user, before, pageable);
     }
 
-    private Slice<PostDto> getLatestDtosFromUser(final User user, final Pageable pageable) {
-        return postRepository.findByUserIdAndValidIsTrue(user.getId(), pageable)
-                .map(post -> mapperService.map(post, PostDto.class));
+    private Slice<PostDto> getLatestDtosFromUser(final User user, final Long before, final Pageable pageable) {
+        if (before == null)
+            return postFeedAssembler.assemble(postRepository.findDtosByUserId(user.getId(), pageable));
+        return postFeedAssembler.assemble(postRepository.findDtosByUserIdBefore(user.getId(), before,
+                getSeekPageable(pageable)));
     }
 
-    public Slice<PostDto> getLatest(@NotNull final Principal principal, @NotNull final Pageable pageable) {
+    private Pageable getSeekPageable(final Pageable pageable) {
+        return PageRequest.of(0, pageable.getPageSize(), Sort.by(Sort.Direction.DESC, MappingsConsts.ID_VARIABLE));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<PostDto> getLatest(@NotNull final Principal principal, final Long before,
+                                    @NotNull final Pageable pageable) {
         User user = userService.getByPrincipal(principal);
-        return getLatestDtosFromUser(user, pageable);
+        return getLatestDtosFromUser(user, before, pageable);
+    }
+
+    /**
+     * Posts of the followed users and the users own ones, newest first. Paged by the before cursor only.
+     */
+    @Transactional(readOnly = true)
+    public Slice<PostDto> getTimeline(final Principal principal, final Long before, @NotNull final Pageable pageable) {
+        authorizationService.requireLogin(principal);
+        var user = userService.getByPrincipal(principal);
+        var postIds = timelineService.getPostIds(user.getId(), before, pageable.getPageSize() + 1);
+        var hasNext = postIds.size() > pageable.getPageSize();
+        if (hasNext)
+            postIds = postIds.subList(0, pageable.getPageSize());
+        var posts = postRepository.findDtosByIds(postIds, Sort.by(Sort.Direction.DESC, MappingsConsts.ID_VARIABLE));
+        return postFeedAssembler.assemble(new SliceImpl<>(posts, pageable, hasNext));
     }
 
     public Post getById(@NotNull final Long id) {
@@ -62,6 +110,11 @@ public class PostService {
                 new NotFoundPhotogramException(String.format("Post id=%s not found", id)));
     }
 
+    private Post getByIdForUpdate(final Long id) {
+        return postRepository.findForUpdateById(id).orElseThrow(() ->
+                new NotFoundPhotogramException(String.format("Post id=%s not found", id)));
+    }
+
     public PostDto getByIdDto(@NotNull final Long id) {
         return mapperService.map(getById(id), PostDto.class);
     }
@@ -100,43 +153,64 @@ public class PostService {
         var post = getById(id);
         authorizationService.requireLogin(principal)
                 .accessValidation(principal, post.getUser().getId());
+        imageService.deletePostImages(post.getImages());
+        timelineService.remove(post.getId());
+        reactionIndex.removePost(post.getId());
         postRepository.delete(post);
     }
 
+    /**
+     * The reaction rows and the counters are changed by single statements in the database, the post row is
+     * locked only by the counter update - so concurrent reactions are neither lost nor counted twice, and the users
+     * reacted posts are never loaded. The reaction is recorded first, taking the reaction sequence row before the
+     * post row. The post is mapped after the commit, not holding the locks.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public PostDto react(@NotNull final Reactions reaction, final Principal principal, @NotNull final Long id) {
         authorizationService.requireLogin(principal);
-        var post = getById(id);
-        var reactedByUser = userService.getByPrincipal(principal);
-        doReact(post, reactedByUser, reaction);
-        checkIfAlreadyReactedOppositeAndIfRemove(reaction, reactedByUser, post);
-        post = postRepository.save(post);
-        userService.update(reactedByUser);
-        return mapperService.map(post, PostDto.class);
+        inTransaction(false, status -> {
+            applyReaction(reaction, principal, id);
+            return null;
+        });
+        return inTransaction(true, status -> mapperService.map(getById(id), PostDto.class));
     }
 
-    private void doReact(final Post post, final User reactedByUser, final Reactions reaction) {
+    private void applyReaction(final Reactions reaction, final Principal principal, final Long id) {
+        requireExisting(id);
+        var reactedByUserId = userService.getByPrincipal(principal).getId();
+        reactionIndex.record(reaction, id, reactedByUserId);
+        doReact(id, reactedByUserId, reaction);
+        checkIfAlreadyReactedOppositeAndIfRemove(reaction, reactedByUserId, id);
+    }
+
+    private void requireExisting(final Long id) {
+        if (!postRepository.existsById(id))
+            throw new NotFoundPhotogramException(String.format("Post id=%s not found", id));
+    }
+
+    private void doReact(final Long postId, final Long userId, final Reactions reaction) {
         switch (reaction) {
             case LIKE:
-                if (reactedByUser.addLikedPost(post))
-                    post.incrementLikes();
+                if (postRepository.insertLike(userId, postId) > 0)
+                    postRepository.incrementLikes(postId);
                 else
                     throwAlreadyReactedIgnoredException();
                 break;
             case UNLIKE:
-                if (reactedByUser.removeLikedPost(post))
-                    post.decrementLikes();
+                if (postRepository.deleteLike(userId, postId) > 0)
+                    postRepository.decrementLikes(postId);
                 else
                     throwNotReactedIgnoredException();
                 break;
             case DISLIKE:
-                if (reactedByUser.addDislikedPost(post))
-                    post.incrementDislikes();
+                if (postRepository.insertDislike(userId, postId) > 0)
+                    postRepository.incrementDislikes(postId);
                 else
                     throwAlreadyReactedIgnoredException();
                 break;
             case UNDISLIKE:
-                if (reactedByUser.removeDislikedPost(post))
-                    post.decrementDislikes();
+                if (postRepository.deleteDislike(userId, postId) > 0)
+                    postRepository.decrementDislikes(postId);
                 else
                     throwNotReactedIgnoredException();
                 break;
@@ -145,11 +219,12 @@ public class PostService {
         }
     }
 
-    private void checkIfAlreadyReactedOppositeAndIfRemove(final Reactions reaction, final User user, final Post post) {
-        if (reaction == Reactions.LIKE && user.hasDislikedPost(post))
-            user.removeDislikedPost(post);
-        if (reaction == Reactions.DISLIKE && user.hasLikedPost(post))
-            user.removeLikedPost(post);
+    private void checkIfAlreadyReactedOppositeAndIfRemove(final Reactions reaction, final Long userId,
+                                                          final Long postId) {
+        if (reaction == Reactions.LIKE && postRepository.deleteDislike(userId, postId) > 0)
+            postRepository.decrementDislikes(postId);
+        if (reaction == Reactions.DISLIKE && postRepository.deleteLike(userId, postId) > 0)
+            postRepository.decrementLikes(postId);
     }
 
     private void throwAlreadyReactedIgnoredException() {
@@ -160,24 +235,104 @@ public class PostService {
         throw new IgnoredPhotogramException("Not reacted that way, ignored");
     }
 
-    public PostDto saveImage(final Principal principal, @NotNull final Long id, @NotNull final MultipartFile imageFile) {
+    /**
+     * The content is streamed to the image store outside of any transaction, so a slow client holds neither
+     * a connection nor the post row. The image is attached afterwards in a short transaction, which locks the post
+     * to allocate the image id - the stored blob is released when it fails.
+     *
+     * @param extension declared by the client, used only when the format could not be sniffed from the content
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PostDto saveImage(final Principal principal, @NotNull final Long id, @NotNull final InputStream content,
+                             final String extension) {
+        inTransaction(true, status -> authorizationService.requireLogin(principal)
+                .accessValidation(principal, getById(id).getUser().getId()));
+        return storeImage(id, content, extension);
+    }
+
+    private PostDto storeImage(final Long id, final InputStream content, final String extension) {
+        var image = new Image(null, extension);
+        imageService.savePostImage(id, image, content);
+        try {
+            inTransaction(false, status -> attachImage(id, image));
+        } catch (RuntimeException e) {
+            imageService.deletePostImages(List.of(image));
+            throw e;
+        }
+        return inTransaction(true, status -> mapperService.map(getById(id), PostDto.class));
+    }
+
+    private Post attachImage(final Long id, final Image image) {
+        var post = getByIdForUpdate(id);
+        image.setImageId(post.getNextImageId());
+        post.addImage(image);
+        if (!post.getValid()) {
+            post.setValid(true);
+            timelineService.publish(post);
+        }
+        return postRepository.save(post);
+    }
+
+    private <T> T inTransaction(final boolean readOnly, final TransactionCallback<T> action) {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(action);
+    }
+
+    public UploadSessionDto createUploadSession(final Principal principal, @NotNull final Long id, final long length,
+                                                final String extension) {
         var post = getById(id);
         authorizationService.requireLogin(principal)
                 .accessValidation(principal, post.getUser().getId());
-        var image = new Image(imageService.getNextId(post.getId()), getImageExtension(imageFile));
-        post.addImage(image);
-        post.setValid(true);
-        imageService.savePostImage(id, image, imageFile);
-        return mapperService.map(postRepository.save(post), PostDto.class);
+        return getUploadSessionDto(uploadSessionService.create(id, post.getUser().getId(), length, extension));
+    }
+
+    public UploadSessionDto getUploadSession(final Principal principal, @NotNull final Long id,
+                                             @NotNull final String uploadId) {
+        return getUploadSessionDto(getAccessibleUploadSession(principal, id, uploadId));
+    }
+
+    private UploadSession getAccessibleUploadSession(final Principal principal, final Long id, final String uploadId) {
+        var session = uploadSessionService.get(uploadId);
+        if (!session.getPostId().equals(id))
+            throw new NotFoundPhotogramException(String.format("Upload session id=%s not found in post id=%d",
+                    uploadId, id));
+        authorizationService.requireLogin(principal)
+                .accessValidation(principal, session.getUserId());
+        return session;
+    }
+
+    /**
+     * The chunk is written outside of any transaction. The chunk which completes the upload stores the assembled
+     * image like a regular single request upload, attached to the post in a short transaction.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UploadSessionDto uploadChunk(final Principal principal, @NotNull final Long id,
+                                       @NotNull final String uploadId, final long offset,
+                                       @NotNull final InputStream content, final String checksum) {
+        var session = inTransaction(true, status -> getAccessibleUploadSession(principal, id, uploadId));
+        if (!uploadSessionService.write(session, offset, content, checksum))
+            return getUploadSessionDto(session);
+        try (var assembled = uploadSessionService.open(session)) {
+            var uploadSessionDto = getUploadSessionDto(session);
+            uploadSessionDto.setPost(storeImage(id, assembled, session.getExtension()));
+            return uploadSessionDto;
+        } catch (IOException e) {
+            throw new InternalErrorPhotogramException("Upload could not be finalized: " + e, e);
+        } finally {
+            uploadSessionService.remove(session);
+        }
     }
 
-    private String getImageExtension(final MultipartFile multipartFile) {
-        return FilenameUtils.getExtension(multipartFile.getOriginalFilename());
+    private UploadSessionDto getUploadSessionDto(final UploadSession session) {
+        return new UploadSessionDto(session.getId(), session.getLength(), session.getReceivedLength(),
+                session.getMissingRanges(), null);
     }
 
-    public ResponseEntity<byte[]> getImage(@NotNull final Long id, @NotNull final Long imageId) {
+    public ResponseEntity<Resource> getImage(@NotNull final Long id, @NotNull final Long imageId,
+                                             final Integer width) {
         var post = getById(id);
-        return imageService.getPostImage(id, post.getImage(imageId));
+        return imageService.getPostImage(id, post.getImage(imageId), width);
     }
 
 }
@@ -0,0 +1,41 @@
+package pl.tscript3r.photogram.post.api.v1;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import pl.tscript3r.photogram.infrastructure.configuration.CommentConfig;
+import pl.tscript3r.photogram.post.comment.CommentRepository;
+import pl.tscript3r.photogram.post.comment.api.v1.CommentDto;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Sets the newest comments of the posts, so the payload of a post does not grow with its comments - all of them
+ * are paged through the comments endpoint. The previews of all the posts are loaded with a single query, a seek
+ * of the preview size on the (post_id, id) index per post. The comment count is kept on the post row, the posts
+ * without comments are not queried.
+ */
+@Component
+@RequiredArgsConstructor
+public class CommentPreviews {
+
+    private final CommentRepository commentRepository;
+    private final CommentConfig commentConfig;
+
+    public void set(@NotNull final Collection<PostDto> posts) {
+        var postIds = posts.stream()
+                .filter(post -> post.getCommentCount() == null || post.getCommentCount() > 0)
+                .map(PostDto::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<CommentDto>> comments = postIds.isEmpty() ? Map.of() :
+                commentRepository.findNewestDtosByPostIds(postIds, commentConfig.getPreviewSize()).stream()
+                        .collect(Collectors.groupingBy(CommentDto::getPostId));
+        for (PostDto post : posts)
+            post.setComments(new ArrayList<>(comments.getOrDefault(post.getId(), List.of())));
+    }
+
+}
@@ -1,19 +1,26 @@
 package pl.tscript3r.photogram.post.api.v1;
 
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import pl.tscript3r.photogram.infrastructure.exception.BadRequestPhotogramException;
 import pl.tscript3r.photogram.post.PostService;
 import pl.tscript3r.photogram.post.Reactions;
+import pl.tscript3r.photogram.post.image.api.v1.UploadSessionDto;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
 
 import static pl.tscript3r.photogram.infrastructure.MappingsConsts.*;
@@ -28,25 +35,43 @@ public class PostController {
     public static final String DISLIKE_MAPPING = "/dislike";
     public static final String UNDISLIKE_MAPPING = "/undislike";
     public static final String UPLOAD_IMAGE_MAPPING = "/upload";
+    public static final String TIMELINE_MAPPING = "/timeline";
     private static final String IMAGE_ID_VARIABLE = "imageId";
     private static final String IMAGE_ID_PATH_VARIABLE = "{" + IMAGE_ID_VARIABLE + "}";
     public static final String GET_IMAGE_MAPPING = "/images/";
+    public static final String UPLOADS_MAPPING = "/uploads";
+    private static final String UPLOAD_ID_VARIABLE = "uploadId";
+    private static final String UPLOAD_ID_PATH_VARIABLE = "/{" + UPLOAD_ID_VARIABLE + "}";
+    // header names follow the tus resumable upload protocol
+    public static final String UPLOAD_LENGTH_HEADER = "Upload-Length";
+    public static final String UPLOAD_OFFSET_HEADER = "Upload-Offset";
+    public static final String UPLOAD_CHECKSUM_HEADER = "Upload-Checksum";
+    private static final String UPLOAD_CHUNK_CONTENT_TYPE = "application/offset+octet-stream";
+    private static final String EXTENSION_PARAM = "extension";
     private final PostService postService;
 
     @GetMapping
     public Slice<PostDto> getLatest(Principal principal,
                                     @PageableDefault(size = 20, sort = ID_VARIABLE, direction = Sort.Direction.DESC) Pageable pageable,
                                     @RequestParam(value = OWN_PARAM, required = false) Boolean ownPosts,
-                                    @RequestParam(value = USERNAME_PARAM, required = false) String username) {
+                                    @RequestParam(value = USERNAME_PARAM, required = false) String username,
+                                    @RequestParam(value = BEFORE_PARAM, required = false) Long before) {
 
         if (isSet(ownPosts) && ownPosts && isSet(username))
             throw new BadRequestPhotogramException("Specify either own param or username param");
         if (isSet(ownPosts) && ownPosts)
-            return postService.getLatest(principal, pageable);
+            return postService.getLatest(principal, before, pageable);
         if (isSet(username))
-            return postService.getLatest(username, pageable);
+            return postService.getLatest(username, before, pageable);
 
-        return postService.getLatest(pageable);
+        return postService.getLatest(before, pageable);
+    }
+
+    @GetMapping(TIMELINE_MAPPING)
+    public Slice<PostDto> getTimeline(Principal principal,
+                                      @PageableDefault(size = 20) Pageable pageable,
+                                      @RequestParam(value = BEFORE_PARAM, required = false) Long before) {
+        return postService.getTimeline(principal, before, pageable);
     }
 
     @GetMapping(ID_VARIABLE_MAPPING)
@@ -98,16 +123,54 @@ public class PostController {
         return postService.react(Reactions.UNDISLIKE, principal, postId);
     }
 
-    @PostMapping(ID_VARIABLE_MAPPING + UPLOAD_IMAGE_MAPPING)
+    @PostMapping(value = ID_VARIABLE_MAPPING + UPLOAD_IMAGE_MAPPING, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public PostDto uploadImage(Principal principal, @PathVariable(ID_VARIABLE) Long id,
+                               @RequestParam("image") MultipartFile imageFile) throws IOException {
+        return postService.saveImage(principal, id, imageFile.getInputStream(),
+                FilenameUtils.getExtension(imageFile.getOriginalFilename()));
+    }
+
+    /**
+     * Raw image in the request body - streamed straight to the image store, without the multipart parsing
+     * and its temporary file.
+     */
+    @PostMapping(value = ID_VARIABLE_MAPPING + UPLOAD_IMAGE_MAPPING,
+            consumes = {IMAGE_CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
     public PostDto uploadImage(Principal principal, @PathVariable(ID_VARIABLE) Long id,
-                               @RequestParam("image") MultipartFile imageFile) {
-        return postService.saveImage(principal, id, imageFile);
+                               @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                               InputStream content) {
+        return postService.saveImage(principal, id, content, contentType.getSubtype());
+    }
+
+    @PostMapping(ID_VARIABLE_MAPPING + UPLOADS_MAPPING)
+    @ResponseStatus(HttpStatus.CREATED)
+    public UploadSessionDto createUpload(Principal principal, @PathVariable(ID_VARIABLE) Long id,
+                                         @RequestHeader(UPLOAD_LENGTH_HEADER) Long length,
+                                         @RequestParam(value = EXTENSION_PARAM, required = false) String extension) {
+        return postService.createUploadSession(principal, id, length, extension);
+    }
+
+    @GetMapping(ID_VARIABLE_MAPPING + UPLOADS_MAPPING + UPLOAD_ID_PATH_VARIABLE)
+    public UploadSessionDto getUpload(Principal principal, @PathVariable(ID_VARIABLE) Long id,
+                                      @PathVariable(UPLOAD_ID_VARIABLE) String uploadId) {
+        return postService.getUploadSession(principal, id, uploadId);
+    }
+
+    @PatchMapping(value = ID_VARIABLE_MAPPING + UPLOADS_MAPPING + UPLOAD_ID_PATH_VARIABLE,
+            consumes = {UPLOAD_CHUNK_CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public UploadSessionDto uploadChunk(Principal principal, @PathVariable(ID_VARIABLE) Long id,
+                                        @PathVariable(UPLOAD_ID_VARIABLE) String uploadId,
+                                        @RequestHeader(UPLOAD_OFFSET_HEADER) Long offset,
+                                        @RequestHeader(value = UPLOAD_CHECKSUM_HEADER, required = false) String checksum,
+                                        InputStream content) {
+        return postService.uploadChunk(principal, id, uploadId, offset, content, checksum);
     }
 
     @GetMapping(ID_VARIABLE_MAPPING + GET_IMAGE_MAPPING + IMAGE_ID_PATH_VARIABLE)
-    public ResponseEntity<byte[]> getImage(@PathVariable(ID_VARIABLE) Long id,
-                                           @PathVariable(IMAGE_ID_VARIABLE) Long imageId) {
-        return postService.getImage(id, imageId);
+    public ResponseEntity<Resource> getImage(@PathVariable(ID_VARIABLE) Long id,
+                                           @PathVariable(IMAGE_ID_VARIABLE) Long imageId,
+                                           @RequestParam(value = WIDTH_PARAM, required = false) Integer width) {
+        return postService.getImage(id, imageId, width);
     }
 
 }
@@ -28,6 +28,9 @@ public class PostDto implements Dto {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private List<CommentDto> comments = new ArrayList<>();
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer commentCount;
+
     @Nullable
     private String caption;
 
@@ -58,4 +61,21 @@ public class PostDto implements Dto {
 
     private Visibility visibility;
 
+    /**
+     * Read model of the feed queries, the comments, images and post count are set by the {@link PostFeedAssembler}.
+     */
+    public PostDto(Long id, Long userId, String username, String caption, String location, Visibility visibility,
+                   Integer likesCount, Integer dislikesCount, Integer commentCount, LocalDateTime creationDate) {
+        this.id = id;
+        this.userId = userId;
+        this.username = username;
+        this.caption = caption;
+        this.location = location;
+        this.visibility = visibility;
+        this.likesCount = likesCount;
+        this.dislikesCount = dislikesCount;
+        this.commentCount = commentCount;
+        this.creationDate = creationDate;
+    }
+
 }
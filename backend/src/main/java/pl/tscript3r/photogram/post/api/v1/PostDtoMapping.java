@@ -0,0 +1,28 @@
+package pl.tscript3r.photogram.post.api.v1;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import pl.tscript3r.photogram.post.Post;
+import pl.tscript3r.photogram.post.image.Image;
+import pl.tscript3r.photogram.post.image.api.v1.ImageDto;
+
+/**
+ * Field copy of the post mapper generated on compile, the comment previews and the reactions of the logged user
+ * are set by the post mapper.
+ */
+@Mapper
+interface PostDtoMapping {
+
+    @Mapping(target = "userId", source = "source.user.id")
+    @Mapping(target = "username", source = "source.user.username")
+    @Mapping(target = "comments", ignore = true)
+    @Mapping(target = "postCount", source = "postCount")
+    @Mapping(target = "likesCount", source = "source.likes")
+    @Mapping(target = "dislikesCount", source = "source.dislikes")
+    @Mapping(target = "liked", ignore = true)
+    @Mapping(target = "disliked", ignore = true)
+    PostDto toDto(Post source, Integer postCount);
+
+    ImageDto toDto(Image source);
+
+}
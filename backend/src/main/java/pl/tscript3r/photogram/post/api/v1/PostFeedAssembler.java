@@ -0,0 +1,69 @@
+package pl.tscript3r.photogram.post.api.v1;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import pl.tscript3r.photogram.post.Post;
+import pl.tscript3r.photogram.post.PostRepository;
+import pl.tscript3r.photogram.post.image.api.v1.ImageDto;
+import pl.tscript3r.photogram.post.reaction.ReactionIndex;
+import pl.tscript3r.photogram.user.LoggedUserContext;
+
+import javax.validation.constraints.NotNull;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Completes a page of the post projections with a constant number of queries - the logged user, the comment
+ * previews, the images, the authors post counts and the logged user reactions (from the {@link ReactionIndex}) are loaded
+ * once for the whole page, instead of once per post like {@link PostMapper#firstToSecond(Post)} does.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostFeedAssembler {
+
+    private final PostRepository postRepository;
+    private final CommentPreviews commentPreviews;
+    private final ReactionIndex reactionIndex;
+    private final LoggedUserContext loggedUserContext;
+
+    public Slice<PostDto> assemble(@NotNull final Slice<PostDto> posts) {
+        if (!posts.hasContent())
+            return posts;
+        var postIds = posts.map(PostDto::getId).toList();
+        var images = getImages(postIds);
+        var postCounts = getPostCounts(posts);
+        var loggedUser = loggedUserContext.find().orElse(null);
+        Set<Long> liked = loggedUser == null ? Set.of() : reactionIndex.getLikedIds(loggedUser.getId(), postIds);
+        Set<Long> disliked = loggedUser == null ? Set.of() :
+                reactionIndex.getDislikedIds(loggedUser.getId(), postIds);
+        commentPreviews.set(posts.getContent());
+        for (PostDto postDto : posts) {
+            postDto.setImages(images.getOrDefault(postDto.getId(), new ArrayList<>()));
+            postDto.setPostCount(postCounts.getOrDefault(postDto.getUserId(), 0));
+            if (loggedUser != null) {
+                postDto.setLiked(liked.contains(postDto.getId()));
+                postDto.setDisliked(disliked.contains(postDto.getId()));
+            }
+        }
+        return posts;
+    }
+
+    private Map<Long, List<ImageDto>> getImages(final List<Long> postIds) {
+        var result = new HashMap<Long, List<ImageDto>>();
+        for (PostRepository.PostImage image : postRepository.findImagesByPostIds(postIds))
+            result.computeIfAbsent(image.getPostId(), postId -> new ArrayList<>())
+                    .add(new ImageDto(image.getImageId(), image.getExtension(), image.getWidth(), image.getHeight()));
+        return result;
+    }
+
+    private Map<Long, Integer> getPostCounts(final Slice<PostDto> posts) {
+        var userIds = posts.stream()
+                .map(PostDto::getUserId)
+                .collect(Collectors.toSet());
+        return postRepository.countByUserIds(userIds).stream()
+                .collect(Collectors.toMap(PostRepository.UserPostCount::getUserId,
+                        postCount -> postCount.getCount().intValue()));
+    }
+
+}
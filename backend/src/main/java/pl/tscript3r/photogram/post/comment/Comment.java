@@ -5,6 +5,7 @@ import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
 import pl.tscript3r.photogram.infrastructure.AbstractEntity;
 import pl.tscript3r.photogram.post.Post;
+import pl.tscript3r.photogram.post.comment.api.v1.CommentDto;
 import pl.tscript3r.photogram.user.User;
 
 import javax.persistence.*;
@@ -12,9 +13,22 @@ import java.time.LocalDateTime;
 
 @Getter
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = @Index(name = "comments_post_id_id_idx", columnList = "post_id, id"))
+@SqlResultSetMapping(name = Comment.COMMENT_DTO_MAPPING, classes = @ConstructorResult(targetClass = CommentDto.class,
+        columns = {
+                @ColumnResult(name = "id", type = Long.class),
+                @ColumnResult(name = "user_id", type = Long.class),
+                @ColumnResult(name = "username", type = String.class),
+                @ColumnResult(name = "post_id", type = Long.class),
+                @ColumnResult(name = "content", type = String.class),
+                @ColumnResult(name = "creation_date", type = LocalDateTime.class)}))
 public class Comment extends AbstractEntity {
 
+    /**
+     * Native rows of the id, user id, username, post id, content and creation date to a {@link CommentDto}.
+     */
+    static final String COMMENT_DTO_MAPPING = "CommentDto";
+
     @Setter
     @OneToOne(fetch = FetchType.EAGER)
     private User user;
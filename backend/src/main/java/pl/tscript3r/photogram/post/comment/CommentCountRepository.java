@@ -0,0 +1,13 @@
+package pl.tscript3r.photogram.post.comment;
+
+/**
+ * The comment count of a post is kept on its row, changed by single statements - see
+ * {@link CommentCountRepositoryImpl}.
+ */
+public interface CommentCountRepository {
+
+    int incrementCommentCount(Long postId);
+
+    int decrementCommentCount(Long postId);
+
+}
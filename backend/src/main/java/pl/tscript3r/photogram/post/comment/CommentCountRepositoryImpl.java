@@ -0,0 +1,32 @@
+package pl.tscript3r.photogram.post.comment;
+
+import lombok.RequiredArgsConstructor;
+import pl.tscript3r.photogram.infrastructure.NativeUpdates;
+import pl.tscript3r.photogram.post.Post;
+
+import java.util.Map;
+
+@RequiredArgsConstructor
+class CommentCountRepositoryImpl implements CommentCountRepository {
+
+    private static final String INCREMENT = "update posts set comment_count = comment_count + 1 where id = :postId";
+    private static final String DECREMENT = "update posts set comment_count = comment_count - 1 " +
+            "where id = :postId and comment_count > 0";
+
+    private final NativeUpdates nativeUpdates;
+
+    @Override
+    public int incrementCommentCount(final Long postId) {
+        return execute(INCREMENT, postId);
+    }
+
+    @Override
+    public int decrementCommentCount(final Long postId) {
+        return execute(DECREMENT, postId);
+    }
+
+    private int execute(final String sql, final Long postId) {
+        return nativeUpdates.executeOnEntity(Post.class, postId, sql, Map.of("postId", postId));
+    }
+
+}
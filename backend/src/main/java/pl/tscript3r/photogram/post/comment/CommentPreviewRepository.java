@@ -0,0 +1,18 @@
+package pl.tscript3r.photogram.post.comment;
+
+import pl.tscript3r.photogram.post.comment.api.v1.CommentDto;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The newest comments of many posts in a single statement, see {@link CommentPreviewRepositoryImpl}.
+ */
+public interface CommentPreviewRepository {
+
+    /**
+     * Up to the limit of the newest comments of each post, oldest first.
+     */
+    List<CommentDto> findNewestDtosByPostIds(Collection<Long> postIds, int limit);
+
+}
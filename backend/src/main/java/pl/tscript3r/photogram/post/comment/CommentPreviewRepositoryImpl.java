@@ -0,0 +1,43 @@
+package pl.tscript3r.photogram.post.comment;
+
+import lombok.RequiredArgsConstructor;
+import pl.tscript3r.photogram.post.comment.api.v1.CommentDto;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Each post is a seek of the limit on the (post_id, id) index, the seeks are joined by union all - a window
+ * function would rank all the comments of the posts, however many there are.
+ */
+@RequiredArgsConstructor
+class CommentPreviewRepositoryImpl implements CommentPreviewRepository {
+
+    private static final String SELECT = "select c.id, c.user_id, u.username, c.post_id, c.content, c.creation_date " +
+            "from (%s) newest join comments c on c.id = newest.id join users u on u.id = c.user_id order by c.id";
+    private static final String SEEK = "select id from (select id from comments where post_id = :post%1$d " +
+            "order by id desc limit :limit) post%1$d";
+    private static final String UNION = " union all ";
+
+    private final EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CommentDto> findNewestDtosByPostIds(final Collection<Long> postIds, final int limit) {
+        if (postIds.isEmpty())
+            return new ArrayList<>();
+        var seeks = new StringJoiner(UNION);
+        for (int i = 0; i < postIds.size(); i++)
+            seeks.add(String.format(SEEK, i));
+        var query = entityManager.createNativeQuery(String.format(SELECT, seeks), Comment.COMMENT_DTO_MAPPING)
+                .setParameter("limit", limit);
+        int i = 0;
+        for (Long postId : postIds)
+            query.setParameter("post" + i++, postId);
+        return query.getResultList();
+    }
+
+}
@@ -2,10 +2,23 @@ package pl.tscript3r.photogram.post.comment;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import pl.tscript3r.photogram.post.comment.api.v1.CommentDto;
 
-public interface CommentRepository extends PagingAndSortingRepository<Comment, Long> {
+public interface CommentRepository extends PagingAndSortingRepository<Comment, Long>, CommentCountRepository,
+        CommentPreviewRepository {
 
-    Slice<Comment> findByPostId(Long postId, Pageable pageable);
+    /**
+     * Selects only the columns of the {@link CommentDto}, the comments are not loaded to the persistence context.
+     */
+    String SELECT_COMMENT_DTO = "select new pl.tscript3r.photogram.post.comment.api.v1.CommentDto(c.id, u.id, " +
+            "u.username, c.post.id, c.content, c.creationDate) from Comment c join c.user u ";
+
+    @Query(SELECT_COMMENT_DTO + "where c.post.id = :postId and c.id < :before")
+    Slice<CommentDto> findDtosByPostIdBefore(Long postId, Long before, Pageable pageable);
+
+    @Query(SELECT_COMMENT_DTO + "where c.post.id = :postId and c.id > :after")
+    Slice<CommentDto> findDtosByPostIdAfter(Long postId, Long after, Pageable pageable);
 
 }
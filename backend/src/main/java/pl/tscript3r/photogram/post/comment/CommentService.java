@@ -1,10 +1,13 @@
 package pl.tscript3r.photogram.post.comment;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
-import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.tscript3r.photogram.infrastructure.MappingsConsts;
 import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
 import pl.tscript3r.photogram.infrastructure.mapper.MapperService;
 import pl.tscript3r.photogram.post.PostService;
@@ -25,18 +28,48 @@ public class CommentService {
     private final CommentRepository commentRepository;
     private final AuthorizationService authorizationService;
 
-    public Slice<CommentDto> getLatest(@NotNull final Long postId, @NotNull final Pageable pageable) {
-        var comments = commentRepository.findByPostId(postId, pageable);
-        return new SliceImpl<>(mapperService.map(comments.getContent(), CommentDto.class));
+    /**
+     * Newest first, seeked on the (post_id, id) index instead of being offset by the page number - comments added
+     * meanwhile do not shift the following pages, so none of them is skipped or repeated.
+     *
+     * @param before id of the last comment already seen by the client, null for the newest ones
+     */
+    @Transactional(readOnly = true)
+    public Slice<CommentDto> getLatest(@NotNull final Long postId, final Long before,
+                                       @NotNull final Pageable pageable) {
+        return commentRepository.findDtosByPostIdBefore(postId, before == null ? Long.MAX_VALUE : before,
+                getSeekPageable(pageable, Sort.Direction.DESC));
     }
 
+    /**
+     * Oldest first, the thread read in the creation order.
+     *
+     * @param after id of the last comment already seen by the client, null for the oldest ones
+     */
+    @Transactional(readOnly = true)
+    public Slice<CommentDto> getOldest(@NotNull final Long postId, final Long after,
+                                       @NotNull final Pageable pageable) {
+        return commentRepository.findDtosByPostIdAfter(postId, after == null ? 0L : after,
+                getSeekPageable(pageable, Sort.Direction.ASC));
+    }
+
+    private Pageable getSeekPageable(final Pageable pageable, final Sort.Direction direction) {
+        return PageRequest.of(0, pageable.getPageSize(), Sort.by(direction, MappingsConsts.ID_VARIABLE));
+    }
+
+    /**
+     * The comment is inserted together with the increment of the post comment count.
+     */
+    @Transactional
     public CommentDto save(final Principal principal, @NotNull final Long postId, @NotNull final CommentDto commentDto) {
         var userOptional = authorizationService.requireLogin(principal)
                 .accessValidation(principal, commentDto.getUserId());
         var comment = mapperService.map(commentDto, Comment.class);
         comment.setUser(userOptional.orElse(userService.getByPrincipal(principal)));
         comment.setPost(postService.getById(postId));
-        return mapperService.map(commentRepository.save(comment), CommentDto.class);
+        var result = commentRepository.save(comment);
+        commentRepository.incrementCommentCount(postId);
+        return mapperService.map(result, CommentDto.class);
     }
 
     public CommentDto update(final Principal principal, @NotNull final Long id, @NotNull final CommentDto commentDto) {
@@ -52,11 +85,13 @@ public class CommentService {
                 new NotFoundPhotogramException(String.format("Comment id=%d not found", id)));
     }
 
+    @Transactional
     public void delete(final Principal principal, @NotNull final Long id) {
         var comment = getById(id); // <-- checking if the given comment id is existing
         authorizationService.requireLogin(principal)
                 .accessValidation(principal, comment.getUser().getId());
         commentRepository.delete(comment);
+        commentRepository.decrementCommentCount(comment.getPost().getId());
     }
 
 }
@@ -3,10 +3,10 @@ package pl.tscript3r.photogram.post.comment.api.v1;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import pl.tscript3r.photogram.infrastructure.exception.BadRequestPhotogramException;
 import pl.tscript3r.photogram.post.comment.CommentService;
 
 import javax.validation.Valid;
@@ -23,8 +23,14 @@ public class CommentController {
 
     @GetMapping(ID_VARIABLE_MAPPING)
     public Slice<CommentDto> getLatest(@PathVariable(ID_POST_VARIABLE) Long postId,
-                                       @PageableDefault(size = 5, sort = ID_VARIABLE, direction = Sort.Direction.DESC) Pageable pageable) {
-        return commentService.getLatest(postId, pageable);
+                                       @PageableDefault(size = 5) Pageable pageable,
+                                       @RequestParam(value = BEFORE_PARAM, required = false) Long before,
+                                       @RequestParam(value = AFTER_PARAM, required = false) Long after) {
+        if (before != null && after != null)
+            throw new BadRequestPhotogramException("Specify either before param or after param");
+        if (after != null)
+            return commentService.getOldest(postId, after, pageable);
+        return commentService.getLatest(postId, before, pageable);
     }
 
     @PostMapping
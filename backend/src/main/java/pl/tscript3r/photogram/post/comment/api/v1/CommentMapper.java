@@ -1,27 +1,26 @@
 package pl.tscript3r.photogram.post.comment.api.v1;
 
-import org.springframework.stereotype.Component;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import pl.tscript3r.photogram.infrastructure.mapper.AbstractMapper;
 import pl.tscript3r.photogram.infrastructure.mapper.CollectionMapper;
 import pl.tscript3r.photogram.post.comment.Comment;
 
 import javax.validation.constraints.NotNull;
 
-@Component
-public class CommentMapper extends AbstractMapper<Comment, CommentDto> implements CollectionMapper {
+@Mapper(componentModel = "spring")
+public abstract class CommentMapper extends AbstractMapper<Comment, CommentDto> implements CollectionMapper {
 
-    @Override
-    public CommentDto firstToSecond(@NotNull final Comment source) {
-        var result = new CommentDto();
-        result.setId(source.getId());
-        result.setUserId(source.getUser().getId());
-        result.setUsername(source.getUser().getUsername());
-        result.setContent(source.getContent());
-        result.setCreationDate(source.getCreationDate());
-        result.setPostId(source.getPost().getId());
-        return result;
+    protected CommentMapper() {
+        super(Comment.class, CommentDto.class);
     }
 
+    @Override
+    @Mapping(target = "userId", source = "user.id")
+    @Mapping(target = "username", source = "user.username")
+    @Mapping(target = "postId", source = "post.id")
+    public abstract CommentDto firstToSecond(@NotNull final Comment source);
+
     @Override
     public Comment secondToFirst(@NotNull final CommentDto source) {
         return new Comment(source.getContent());
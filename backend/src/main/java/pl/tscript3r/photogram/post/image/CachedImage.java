@@ -0,0 +1,120 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.Getter;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import javax.validation.constraints.NotNull;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Image bytes held in a direct (off-heap) buffer, together with the file attributes the validators are built from.
+ * The buffer is never modified after loading, every reader works on its own duplicate.
+ */
+@Getter
+public class CachedImage {
+
+    private final ByteBuffer content;
+    private final long size;
+    private final long lastModified;
+
+    private CachedImage(final ByteBuffer content, final long lastModified) {
+        this.content = content.asReadOnlyBuffer();
+        this.size = content.capacity();
+        this.lastModified = lastModified;
+    }
+
+    static CachedImage read(@NotNull final Path path, @NotNull final BasicFileAttributes attributes)
+            throws IOException {
+        var buffer = ByteBuffer.allocateDirect(Math.toIntExact(attributes.size()));
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0)
+                    throw new EOFException(String.format("Image has been truncated while reading [path=%s]", path));
+        }
+        buffer.flip();
+        return new CachedImage(buffer, attributes.lastModifiedTime().toMillis());
+    }
+
+    public Resource getResource() {
+        return new ByteBufferResource(content.duplicate(), lastModified);
+    }
+
+    private static class ByteBufferResource extends AbstractResource {
+
+        private final ByteBuffer buffer;
+        private final long lastModified;
+
+        private ByteBufferResource(final ByteBuffer buffer, final long lastModified) {
+            this.buffer = buffer;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteBufferInputStream(buffer.duplicate());
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Cached image [" + buffer.remaining() + " bytes]";
+        }
+
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+}
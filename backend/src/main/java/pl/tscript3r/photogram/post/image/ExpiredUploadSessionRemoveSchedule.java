@@ -0,0 +1,42 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+
+import java.time.Instant;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExpiredUploadSessionRemoveSchedule {
+
+    private static final int EXECUTION_RATE = 3600_000; // 1h
+
+    private final UploadSessionService uploadSessionService;
+    private final ImageConfig imageConfig;
+
+    // no session survives a restart, so all of the files found on startup are orphaned
+    @EventListener(ApplicationReadyEvent.class)
+    public void removeOrphanedUploadFiles() {
+        var removedCount = uploadSessionService.removeOrphanedFiles(Instant.now());
+        if (removedCount > 0)
+            log.info("Removed {} upload files left by the previous run", removedCount);
+    }
+
+    @Scheduled(fixedRate = EXECUTION_RATE)
+    public void removeExpiredUploadSessions() {
+        var expiryDate = Instant.now().minus(imageConfig.getUploadSessionExpiry());
+        var removedCount = uploadSessionService.removeInactiveSince(expiryDate);
+        if (removedCount > 0)
+            log.info("Removed {} abandoned upload sessions", removedCount);
+        var orphanedCount = uploadSessionService.removeOrphanedFiles(expiryDate);
+        if (orphanedCount > 0)
+            log.info("Removed {} orphaned upload files", orphanedCount);
+    }
+
+}
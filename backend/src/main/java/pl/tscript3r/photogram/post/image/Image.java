@@ -1,23 +1,62 @@
 package pl.tscript3r.photogram.post.image;
 
 import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.springframework.lang.Nullable;
 import pl.tscript3r.photogram.infrastructure.AbstractEntity;
 
-import javax.persistence.Cacheable;
-import javax.persistence.Entity;
-import javax.persistence.Table;
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
 
 @Entity
 @Table(name = "images")
 @Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "images")
 public class Image extends AbstractEntity {
 
+    /**
+     * Allocated from the post metadata once the stored image is attached to the post.
+     */
     @Getter
+    @Setter
     private Long imageId;
 
     @Getter
     private String extension;
 
+    /**
+     * Detected from the content on upload, together with the dimensions and the size - images uploaded before
+     * the detection existed do not have them.
+     */
+    @Getter
+    @Nullable
+    @Enumerated(EnumType.STRING)
+    private ImageFormat format;
+
+    @Getter
+    @Nullable
+    private Integer width;
+
+    @Getter
+    @Nullable
+    private Integer height;
+
+    @Getter
+    @Nullable
+    private Long size;
+
+    /**
+     * Hash of the content in the {@link ImageStore}. Images uploaded before the store existed do not have it,
+     * they are still read from the per post directories.
+     */
+    @Getter
+    @Setter
+    @Nullable
+    @Column(length = 64)
+    private String blobHash;
+
     Image() {
     }
 
@@ -26,6 +65,15 @@ public class Image extends AbstractEntity {
         this.extension = extension;
     }
 
+    public void setMetadata(@NotNull final ImageFormat format, final Integer width, final Integer height,
+                            final Long size) {
+        this.extension = format.getExtension();
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.size = size;
+    }
+
     public String getFileName() {
         return imageId.toString();
     }
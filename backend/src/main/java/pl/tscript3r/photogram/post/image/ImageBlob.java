@@ -0,0 +1,28 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.Getter;
+import pl.tscript3r.photogram.infrastructure.AbstractEntity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+@Getter
+@Entity
+@Table(name = "image_blobs")
+public class ImageBlob extends AbstractEntity {
+
+    @Column(nullable = false, unique = true, updatable = false, length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private Integer referenceCount = 1;
+
+    ImageBlob() {
+    }
+
+    public ImageBlob(String hash) {
+        this.hash = hash;
+    }
+
+}
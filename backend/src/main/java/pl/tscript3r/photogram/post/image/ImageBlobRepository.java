@@ -0,0 +1,25 @@
+package pl.tscript3r.photogram.post.image;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+
+public interface ImageBlobRepository extends CrudRepository<ImageBlob, Long> {
+
+    Optional<ImageBlob> findByHash(String hash);
+
+    @Modifying
+    @Query("update ImageBlob b set b.referenceCount = b.referenceCount + 1 where b.hash = :hash")
+    int incrementReferences(String hash);
+
+    @Modifying
+    @Query("update ImageBlob b set b.referenceCount = b.referenceCount - 1 where b.hash = :hash and b.referenceCount > 0")
+    int decrementReferences(String hash);
+
+    @Modifying
+    @Query("delete from ImageBlob b where b.hash = :hash and b.referenceCount = 0")
+    int deleteUnreferenced(String hash);
+
+}
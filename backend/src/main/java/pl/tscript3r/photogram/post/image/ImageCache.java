@@ -0,0 +1,153 @@
+package pl.tscript3r.photogram.post.image;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte budgeted cache of the most requested images, kept off-heap in direct buffers so it does not inflate the old
+ * generation. Entries are admitted only after they have been requested {@code cacheAdmissionThreshold} times
+ * (one-hit wonders never push out the hot set) and are evicted in the least recently used order.
+ */
+@Slf4j
+@Component
+public class ImageCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "images";
+    private static final int MAX_TRACKED_CANDIDATES = 10_000;
+
+    private final long capacity;
+    private final long maxEntrySize;
+    private final int admissionThreshold;
+
+    private final LinkedHashMap<String, CachedImage> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Integer> candidates = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Integer> eldest) {
+            return size() > MAX_TRACKED_CANDIDATES;
+        }
+    };
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long residentBytes;
+    private long version;
+
+    public ImageCache(ImageConfig imageConfig) {
+        capacity = imageConfig.getCacheCapacity().toBytes();
+        maxEntrySize = Math.min(imageConfig.getCacheMaxEntrySize().toBytes(), capacity);
+        admissionThreshold = imageConfig.getCacheAdmissionThreshold();
+    }
+
+    /**
+     * Returns the cached image, or loads it when it has been requested often enough to be admitted. Empty result
+     * means that the caller should stream the file from the disk by itself.
+     */
+    public Optional<CachedImage> get(@NotNull final String key, @NotNull final Path path) throws IOException {
+        long loadVersion;
+        synchronized (this) {
+            var cachedImage = entries.get(key);
+            if (cachedImage != null) {
+                hits.increment();
+                return Optional.of(cachedImage);
+            }
+            misses.increment();
+            if (!isAdmitted(key))
+                return Optional.empty();
+            loadVersion = version;
+        }
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attributes.size() > maxEntrySize)
+            return Optional.empty();
+        var cachedImage = CachedImage.read(path, attributes);
+        put(key, cachedImage, loadVersion);
+        return Optional.of(cachedImage);
+    }
+
+    private boolean isAdmitted(final String key) {
+        int requests = candidates.merge(key, 1, Integer::sum);
+        if (requests < admissionThreshold)
+            return false;
+        candidates.remove(key);
+        return true;
+    }
+
+    private synchronized void put(final String key, final CachedImage cachedImage, final long loadVersion) {
+        // an invalidation in the meantime could have made the loaded bytes stale
+        if (loadVersion != version)
+            return;
+        var replaced = entries.put(key, cachedImage);
+        if (replaced != null)
+            residentBytes -= replaced.getSize();
+        residentBytes += cachedImage.getSize();
+        evict();
+    }
+
+    private void evict() {
+        var iterator = entries.values().iterator();
+        while (residentBytes > capacity && iterator.hasNext()) {
+            residentBytes -= iterator.next().getSize();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized void invalidate(@NotNull final String key) {
+        version++;
+        candidates.remove(key);
+        var removed = entries.remove(key);
+        if (removed != null) {
+            residentBytes -= removed.getSize();
+            log.debug("Invalidated cached image [key={}]", key);
+        }
+    }
+
+    synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(@NotNull final MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::doubleValue)
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .description("The number of times cache lookup methods have returned a cached value")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::doubleValue)
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .description("The number of times cache lookup methods have not returned a value")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::doubleValue)
+                .tags("cache", CACHE_NAME)
+                .description("The number of times the cache was evicted")
+                .register(registry);
+        Gauge.builder("cache.size", this, ImageCache::size)
+                .tags("cache", CACHE_NAME)
+                .description("The number of entries in this cache")
+                .register(registry);
+        Gauge.builder("cache.resident", this, ImageCache::getResidentBytes)
+                .tags("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .description("The number of off-heap bytes held by this cache")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,47 @@
+package pl.tscript3r.photogram.post.image;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the uploaded content next to its final location and moves it in place only when it is complete, so
+ * readers never see a partially written image and a failed upload never replaces a previous one.
+ */
+final class ImageFiles {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ImageFiles() {
+    }
+
+    static Path createTemporary(@NotNull final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, "upload", ".tmp");
+    }
+
+    static void write(@NotNull final InputStream content, @NotNull final Path target) throws IOException {
+        var bytes = new byte[BUFFER_SIZE];
+        var buffer = ByteBuffer.wrap(bytes);
+        try (var channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int read;
+            while ((read = content.read(bytes)) >= 0) {
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+        }
+    }
+
+    static void commit(@NotNull final Path temporary, @NotNull final Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
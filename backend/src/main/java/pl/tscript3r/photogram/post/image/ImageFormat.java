@@ -0,0 +1,37 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+import java.util.Optional;
+
+@Getter
+public enum ImageFormat {
+
+    JPEG("jpg", MediaType.IMAGE_JPEG),
+    PNG("png", MediaType.IMAGE_PNG),
+    GIF("gif", MediaType.IMAGE_GIF),
+    WEBP("webp", MediaType.valueOf("image/webp")),
+    BMP("bmp", MediaType.valueOf("image/bmp"));
+
+    private final String extension;
+    private final MediaType mediaType;
+
+    ImageFormat(final String extension, final MediaType mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Used for the images uploaded before the format has been detected, where only the extension declared by
+     * the client is known.
+     */
+    public static Optional<ImageFormat> fromExtension(final String extension) {
+        if (extension != null)
+            for (ImageFormat format : values())
+                if (format.extension.equalsIgnoreCase(extension) || format.name().equalsIgnoreCase(extension))
+                    return Optional.of(format);
+        return Optional.empty();
+    }
+
+}
@@ -1,9 +1,12 @@
 package pl.tscript3r.photogram.post.image;
 
-import org.apache.commons.io.FileUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
 import pl.tscript3r.photogram.infrastructure.exception.InternalErrorPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
 
@@ -12,39 +15,62 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class ImageService {
 
-    static final Long BASE_IMAGE_ID = 1000L;
-
-    private static final String BASE_PATH = "backend/src/main/resources/";
-    static final String POST_IMAGES_PATH = BASE_PATH + "posts/%d/images/";
-    private static final String USER_AVATAR_PATH = BASE_PATH + "users/%d/avatar";
-    private static final String DEFAULT_AVATAR_PATH = BASE_PATH + "users/default_avatar.png";
-
+    static final String POST_IMAGES_PATH = "posts/%d/images/";
+    private static final String USER_AVATAR_PATH = "users/%d/avatar";
+    private static final String DEFAULT_AVATAR_PATH = "users/default_avatar.png";
+    private static final ImageFormat DEFAULT_AVATAR_FORMAT = ImageFormat.PNG;
+
+    // post images are never overwritten - a new image always gets a new id, so the url can be cached forever
+    private static final String IMMUTABLE_CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePublic()
+            .getHeaderValue() + ", immutable";
+
+    private final ImageConfig imageConfig;
+    private final ImageStore imageStore;
+    private final ImageCache imageCache;
+    private final ImageVariantGenerator imageVariantGenerator;
+
+    /**
+     * The content is streamed once, straight into the {@link ImageStore} - the format and the dimensions are sniffed
+     * from its first bytes on the way and kept on the image, the detected format replaces the extension given by
+     * the client. Content which is not a supported image is rejected before it is stored.
+     */
     public void savePostImage(@NotNull final Long postId, @NotNull final Image image,
-                              @NotNull final MultipartFile multipartFile) {
-        try {
-            writeFile(getPostPath(postId) + getFileName(image), multipartFile.getInputStream());
+                              @NotNull final InputStream content) {
+        try (var sniffer = getSniffer(content)) {
+            image.setBlobHash(imageStore.store(sniffer));
+            image.setMetadata(sniffer.getFormat(), sniffer.getWidth().orElse(null), sniffer.getHeight().orElse(null),
+                    sniffer.getSize());
+            log.debug("Post image saved [postId={}, hash={}, format={}, width={}, height={}]", postId,
+                    image.getBlobHash(), image.getFormat(), image.getWidth(), image.getHeight());
+            imageVariantGenerator.generate(imageStore.getPath(image.getBlobHash()));
         } catch (IOException e) {
             throw getSaveInternalErrorException(e);
         }
     }
 
-    private InternalErrorPhotogramException getSaveInternalErrorException(Exception e) {
-        return new InternalErrorPhotogramException("Something went wrong by saving the image: " + e, e);
+    private ImageSniffer getSniffer(final InputStream content) {
+        return new ImageSniffer(content, imageConfig.getMaxUploadSize().toBytes());
     }
 
-    private void writeFile(final String savePath, final InputStream imageInputStream) throws IOException {
-        File targetFile = new File(savePath);
-        FileUtils.copyInputStreamToFile(imageInputStream, targetFile);
+    private InternalErrorPhotogramException getSaveInternalErrorException(Exception e) {
+        return new InternalErrorPhotogramException("Something went wrong by saving the image: " + e, e);
     }
 
     private String getPostPath(final Long postId) {
-        return String.format(POST_IMAGES_PATH, postId);
+        return imageConfig.getBasePath() + String.format(POST_IMAGES_PATH, postId);
     }
 
     private String getFileName(final Image image) {
@@ -52,79 +78,138 @@ public class ImageService {
     }
 
     public Boolean exists(@NotNull final Long postId, @NotNull final Image image) {
-        File directory = new File(getPostPath(postId));
-        File[] imagesList = directory.listFiles();
-        if (imagesList != null)
-            for (File file : imagesList)
-                if (file.getName().equalsIgnoreCase(getFileName(image)))
-                    return true;
-        return false;
+        return Files.exists(getOriginalPath(postId, image));
+    }
+
+    public ResponseEntity<Resource> getPostImage(@NotNull final Long postId, @NotNull final Image image) {
+        return getPostImage(postId, image, null);
     }
 
-    public Long getNextId(@NotNull final Long postId) {
-        Path path = Paths.get(getPostPath(postId));
-        long searchedId = BASE_IMAGE_ID;
-        while (isExisting(path, searchedId))
-            searchedId++;
-        return searchedId;
+    /**
+     * @param width requested width, the smallest {@link ImageVariant} covering it is served. Until the variant is
+     *              generated the original is served instead, and the generation is requested once again - it covers
+     *              images uploaded before the variants existed, or skipped because of a full queue. The fallback
+     *              is revalidated on every use, so it is not pinned to the variant url once the variant exists.
+     */
+    public ResponseEntity<Resource> getPostImage(@NotNull final Long postId, @NotNull final Image image,
+                                                 final Integer width) {
+        var original = getOriginalPath(postId, image);
+        var mediaType = getMediaType(image);
+        var variantPath = ImageVariant.fitting(width).map(variant -> variant.getPath(original));
+        if (variantPath.isPresent() && !isVariantReady(original, variantPath.get()))
+            return loadFile(original.toString(), getHeader(mediaType, CacheControl.noCache().getHeaderValue()));
+        return loadFile(variantPath.orElse(original).toString(), getHeader(mediaType, IMMUTABLE_CACHE_CONTROL));
     }
 
-    private Boolean isExisting(final Path path, final Long id) {
-        return Files.exists(path.resolve(id.toString()));
+    private Path getOriginalPath(final Long postId, final Image image) {
+        if (image.getBlobHash() != null)
+            return imageStore.getPath(image.getBlobHash());
+        return Paths.get(getPostPath(postId) + getFileName(image));
     }
 
-    public ResponseEntity<byte[]> getPostImage(@NotNull final Long postId, @NotNull final Image image) {
-        return loadFile(getPostPath(postId) + getFileName(image), getHeader(image.getExtension()));
+    // blobs are immutable, the cached entries of released ones can not get stale and are left for the eviction
+    public void deletePostImages(@NotNull final List<Image> images) {
+        for (Image image : images)
+            if (image.getBlobHash() != null)
+                imageStore.release(image.getBlobHash());
     }
 
-    private ResponseEntity<byte[]> loadFile(final String filePath, final HttpHeaders header) {
+    private boolean isVariantReady(final Path original, final Path variantPath) {
+        if (Files.isReadable(variantPath))
+            return true;
+        if (Files.isReadable(original))
+            imageVariantGenerator.generate(original);
+        return false;
+    }
+
+    /**
+     * The body is served either from the off-heap {@link ImageCache}, or as a file backed resource streamed from
+     * the disk by the message converter through a fixed size buffer - it is never loaded into the heap as a whole.
+     * Validators (ETag and Last-Modified) are built from the file attributes only, which lets Spring MVC answer
+     * conditional requests with 304 without reading the content, and Range requests with 206 partial content.
+     */
+    private ResponseEntity<Resource> loadFile(final String filePath, final HttpHeaders header) {
+        Path imagePath = Paths.get(filePath);
         try {
-            File imageFile = new File(filePath);
-            if (imageFile.exists()) {
-                byte[] imageBytes = readToByteArray(imageFile);
-                return new ResponseEntity<>(imageBytes, header, HttpStatus.OK);
-            } else
-                throw new NotFoundPhotogramException(String.format("Image could not be found [path=%s]", filePath));
+            var cachedImage = imageCache.get(filePath, imagePath);
+            if (cachedImage.isPresent())
+                return getResponse(cachedImage.get().getResource(), cachedImage.get().getSize(),
+                        cachedImage.get().getLastModified(), header);
+            var attributes = Files.readAttributes(imagePath, BasicFileAttributes.class);
+            return getResponse(new FileSystemResource(imagePath), attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), header);
+        } catch (NoSuchFileException e) {
+            throw new NotFoundPhotogramException(String.format("Image could not be found [path=%s]", filePath));
         } catch (IOException e) {
             throw new InternalErrorPhotogramException(String.format("Image could not be read [path=%s]: ", filePath), e);
         }
     }
 
-    private byte[] readToByteArray(final File file) throws IOException {
-        return FileUtils.readFileToByteArray(file);
+    private ResponseEntity<Resource> getResponse(final Resource resource, final long size, final long lastModified,
+                                                 final HttpHeaders header) {
+        header.setETag(String.format("\"%x-%x\"", size, lastModified));
+        header.setLastModified(lastModified);
+        return new ResponseEntity<>(resource, header, HttpStatus.OK);
     }
 
-    private HttpHeaders getHeader(final String imageExtension) {
+    private HttpHeaders getHeader(final MediaType mediaType, final String cacheControl) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setCacheControl(CacheControl.noCache().getHeaderValue());
-        headers.setContentType(getMediaType(imageExtension));
+        headers.setCacheControl(cacheControl);
+        headers.setContentType(mediaType);
         return headers;
     }
 
-    private MediaType getMediaType(final String imageExtension) {
-        // TODO: refactor
-        return MediaType.IMAGE_PNG;
+    // variants keep the format of their original, so they share its media type
+    private MediaType getMediaType(final Image image) {
+        if (image.getFormat() != null)
+            return image.getFormat().getMediaType();
+        return getMediaType(ImageFormat.fromExtension(image.getExtension()).orElse(null));
     }
 
-    public ResponseEntity<byte[]> getAvatar(@NotNull final Long userId) {
+    private MediaType getMediaType(final ImageFormat format) {
+        return format != null ? format.getMediaType() : MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    /**
+     * @param avatarFormat detected on the avatar upload, avatars uploaded before the detection existed are PNGs
+     */
+    public ResponseEntity<Resource> getAvatar(@NotNull final Long userId, final ImageFormat avatarFormat) {
         File usersAvatar = new File(getUserAvatarPath(userId));
         if (usersAvatar.exists())
-            return loadFile(usersAvatar.getPath(), getHeader(""));
+            return loadFile(usersAvatar.getPath(),
+                    getAvatarHeader(avatarFormat != null ? avatarFormat : DEFAULT_AVATAR_FORMAT));
         else
             return getDefaultAvatar();
     }
 
     private String getUserAvatarPath(final Long userId) {
-        return String.format(USER_AVATAR_PATH, userId);
+        return imageConfig.getBasePath() + String.format(USER_AVATAR_PATH, userId);
     }
 
-    private ResponseEntity<byte[]> getDefaultAvatar() {
-        return loadFile(DEFAULT_AVATAR_PATH, getHeader("png"));
+    private ResponseEntity<Resource> getDefaultAvatar() {
+        return loadFile(imageConfig.getBasePath() + DEFAULT_AVATAR_PATH, getAvatarHeader(DEFAULT_AVATAR_FORMAT));
     }
 
-    public void saveAvatar(@NotNull final Long userId, @NotNull final MultipartFile multipartFile) {
-        try {
-            writeFile(getUserAvatarPath(userId), multipartFile.getInputStream());
+    // avatars are overwritten in place, so the client has to revalidate them - the ETag turns it into a 304
+    private HttpHeaders getAvatarHeader(final ImageFormat format) {
+        return getHeader(getMediaType(format), CacheControl.noCache().getHeaderValue());
+    }
+
+    /**
+     * @return format of the saved avatar, detected from its content
+     */
+    public ImageFormat saveAvatar(@NotNull final Long userId, @NotNull final InputStream content) {
+        var savePath = Paths.get(getUserAvatarPath(userId));
+        try (var sniffer = getSniffer(content)) {
+            var temporary = ImageFiles.createTemporary(savePath.getParent());
+            try {
+                ImageFiles.write(sniffer, temporary);
+                ImageFiles.commit(temporary, savePath);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            imageCache.invalidate(savePath.toString());
+            return sniffer.getFormat();
         } catch (IOException e) {
             throw getSaveInternalErrorException(e);
         }
@@ -0,0 +1,240 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.Getter;
+import pl.tscript3r.photogram.infrastructure.exception.BadRequestPhotogramException;
+
+import javax.validation.constraints.NotNull;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Passes the uploaded content through while keeping its first bytes, from which the format and the dimensions are
+ * read by the magic numbers - the content is never read twice. Fails the upload as soon as the first bytes do not
+ * match any of the supported {@link ImageFormat}s, or when it exceeds the allowed size.
+ */
+public class ImageSniffer extends FilterInputStream {
+
+    // covers the headers of every supported format, apart from JPEGs with huge metadata segments before the frame
+    private static final int HEAD_SIZE = 64 * 1024;
+    private static final int SIGNATURE_LENGTH = 12;
+
+    private final long maxSize;
+    private final byte[] head = new byte[HEAD_SIZE];
+    private int headLength;
+
+    @Getter
+    private long size;
+
+    private ImageFormat format;
+    private Integer width;
+    private Integer height;
+    private boolean formatDetected;
+    private boolean dimensionsSniffed;
+
+    public ImageSniffer(@NotNull final InputStream content, final long maxSize) {
+        super(content);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = super.read();
+        if (read >= 0)
+            consumed(new byte[]{(byte) read}, 0, 1);
+        else
+            detectFormat();
+        return read;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        int read = super.read(bytes, offset, length);
+        if (read > 0)
+            consumed(bytes, offset, read);
+        else if (read < 0)
+            detectFormat();
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        // every byte has to be seen, skipping is done by reading
+        var buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        int read;
+        while (skipped < n && (read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0)
+            skipped += read;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void consumed(final byte[] bytes, final int offset, final int length) {
+        size += length;
+        if (size > maxSize)
+            throw new BadRequestPhotogramException(String.format("Image exceeds the maximum size of %d bytes", maxSize));
+        if (headLength < HEAD_SIZE) {
+            int copied = Math.min(length, HEAD_SIZE - headLength);
+            System.arraycopy(bytes, offset, head, headLength, copied);
+            headLength += copied;
+        }
+        if (!formatDetected && headLength >= SIGNATURE_LENGTH)
+            detectFormat();
+    }
+
+    private void detectFormat() {
+        if (formatDetected)
+            return;
+        formatDetected = true;
+        if (startsWith(0xFF, 0xD8, 0xFF))
+            format = ImageFormat.JPEG;
+        else if (startsWith(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A))
+            format = ImageFormat.PNG;
+        else if (startsWith('G', 'I', 'F', '8'))
+            format = ImageFormat.GIF;
+        else if (startsWith('R', 'I', 'F', 'F') && matches(8, 'W', 'E', 'B', 'P'))
+            format = ImageFormat.WEBP;
+        else if (startsWith('B', 'M'))
+            format = ImageFormat.BMP;
+        else
+            throw new BadRequestPhotogramException("Not supported image format, accepted are: "
+                    + Arrays.toString(ImageFormat.values()));
+    }
+
+    public ImageFormat getFormat() {
+        detectFormat();
+        return format;
+    }
+
+    public Optional<Integer> getWidth() {
+        sniffDimensions();
+        return Optional.ofNullable(width);
+    }
+
+    public Optional<Integer> getHeight() {
+        sniffDimensions();
+        return Optional.ofNullable(height);
+    }
+
+    private void sniffDimensions() {
+        if (dimensionsSniffed)
+            return;
+        dimensionsSniffed = true;
+        switch (getFormat()) {
+            case JPEG:
+                sniffJpeg();
+                break;
+            case PNG:
+                sniffPng();
+                break;
+            case GIF:
+                sniffGif();
+                break;
+            case WEBP:
+                sniffWebp();
+                break;
+            case BMP:
+                sniffBmp();
+                break;
+        }
+    }
+
+    private void sniffJpeg() {
+        int position = 2;
+        while (position + 9 <= headLength) {
+            if (unsigned(position) != 0xFF)
+                return;
+            int marker = unsigned(position + 1);
+            if (marker == 0xFF) {
+                position++;
+                continue;
+            }
+            if (isStartOfFrame(marker)) {
+                setDimensions(bigEndian(position + 7, 2), bigEndian(position + 5, 2));
+                return;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7))
+                position += 2;
+            else
+                position += 2 + bigEndian(position + 2, 2);
+        }
+    }
+
+    // SOF0-SOF15 apart from DHT, JPG and DAC which share the range
+    private boolean isStartOfFrame(final int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private void sniffPng() {
+        if (headLength >= 24 && matches(12, 'I', 'H', 'D', 'R'))
+            setDimensions(bigEndian(16, 4), bigEndian(20, 4));
+    }
+
+    private void sniffGif() {
+        if (headLength >= 10)
+            setDimensions(littleEndian(6, 2), littleEndian(8, 2));
+    }
+
+    private void sniffWebp() {
+        if (headLength < 30)
+            return;
+        if (matches(12, 'V', 'P', '8', 'X'))
+            setDimensions(littleEndian(24, 3) + 1, littleEndian(27, 3) + 1);
+        else if (matches(12, 'V', 'P', '8', ' '))
+            setDimensions(littleEndian(26, 2) & 0x3FFF, littleEndian(28, 2) & 0x3FFF);
+        else if (matches(12, 'V', 'P', '8', 'L')) {
+            int bits = littleEndian(21, 4);
+            setDimensions((bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1);
+        }
+    }
+
+    private void sniffBmp() {
+        if (headLength >= 26)
+            setDimensions(littleEndian(18, 4), Math.abs(littleEndian(22, 4)));
+    }
+
+    private void setDimensions(final int width, final int height) {
+        if (width > 0 && height > 0) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private boolean startsWith(final int... signature) {
+        return matches(0, signature);
+    }
+
+    private boolean matches(final int offset, final int... signature) {
+        if (headLength < offset + signature.length)
+            return false;
+        for (int i = 0; i < signature.length; i++)
+            if (unsigned(offset + i) != signature[i])
+                return false;
+        return true;
+    }
+
+    private int unsigned(final int position) {
+        return head[position] & 0xFF;
+    }
+
+    private int bigEndian(final int position, final int length) {
+        int value = 0;
+        for (int i = 0; i < length; i++)
+            value = (value << 8) | unsigned(position + i);
+        return value;
+    }
+
+    private int littleEndian(final int position, final int length) {
+        int value = 0;
+        for (int i = length - 1; i >= 0; i--)
+            value = (value << 8) | unsigned(position + i);
+        return value;
+    }
+
+}
@@ -0,0 +1,24 @@
+package pl.tscript3r.photogram.post.image;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Content addressed storage of the post images. Blobs are identified by the hash of their content, so identical
+ * uploads are stored once - every {@link #store(InputStream)} takes a reference to the blob and every
+ * {@link #release(String)} gives it back, the blob is removed together with the last reference.
+ */
+public interface ImageStore {
+
+    /**
+     * @return hash of the stored content, used as the blob identifier
+     */
+    String store(@NotNull InputStream content) throws IOException;
+
+    Path getPath(@NotNull String hash);
+
+    void release(@NotNull String hash);
+
+}
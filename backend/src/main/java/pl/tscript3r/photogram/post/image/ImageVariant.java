@@ -0,0 +1,40 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.Getter;
+
+import javax.validation.constraints.NotNull;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Fixed width, downscaled copies of an uploaded image. Variants are stored next to the original file
+ * with the width appended to its name, e.g. {@code posts/1/images/1000_640}.
+ */
+@Getter
+public enum ImageVariant {
+
+    THUMBNAIL(150), MEDIUM(640), LARGE(1080);
+
+    private final int width;
+
+    ImageVariant(final int width) {
+        this.width = width;
+    }
+
+    /**
+     * @return the smallest variant which is at least as wide as requested, or empty when the original should be
+     * served (no width requested, or wider than the largest variant)
+     */
+    public static Optional<ImageVariant> fitting(final Integer requestedWidth) {
+        if (requestedWidth != null)
+            for (ImageVariant variant : values())
+                if (variant.width >= requestedWidth)
+                    return Optional.of(variant);
+        return Optional.empty();
+    }
+
+    public Path getPath(@NotNull final Path original) {
+        return original.resolveSibling(original.getFileName() + "_" + width);
+    }
+
+}
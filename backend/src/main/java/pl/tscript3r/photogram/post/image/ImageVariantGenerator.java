@@ -0,0 +1,213 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.validation.constraints.NotNull;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Derives the {@link ImageVariant}s of an uploaded image in the background. The work is done on a bounded pool with
+ * a bounded queue, when it is full the generation is skipped - the original is served until the variants exist
+ * and the generation is requested again by the next read of a missing variant.
+ */
+@Slf4j
+@Component
+public class ImageVariantGenerator implements DisposableBean {
+
+    private static final String DEFAULT_FORMAT = "png";
+    private static final String JPEG_FORMAT = "jpeg";
+    private static final String GIF_FORMAT = "gif";
+
+    private final ExecutorService variantExecutor;
+    private final Set<Path> inProgress = ConcurrentHashMap.newKeySet();
+    private final long maxDecodedPixels;
+
+    public ImageVariantGenerator(ImageConfig imageConfig) {
+        maxDecodedPixels = imageConfig.getVariantMaxDecodedPixels();
+        variantExecutor = new ThreadPoolExecutor(imageConfig.getVariantThreadPool(), imageConfig.getVariantThreadPool(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(imageConfig.getVariantQueueCapacity()));
+    }
+
+    public CompletableFuture<Void> generate(@NotNull final Path original) {
+        if (isGenerated(original) || !inProgress.add(original))
+            return CompletableFuture.completedFuture(null);
+        try {
+            return CompletableFuture.runAsync(() -> createVariants(original), variantExecutor)
+                    .whenComplete((result, e) -> {
+                        inProgress.remove(original);
+                        if (e != null)
+                            log.error("Image variants could not be created [path={}]: {}", original, e.toString());
+                    });
+        } catch (RejectedExecutionException e) {
+            inProgress.remove(original);
+            log.warn("Image variants queue is full, generation skipped [path={}]", original);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    // deduplicated uploads share the variants of the blob they point to
+    private boolean isGenerated(final Path original) {
+        for (ImageVariant variant : ImageVariant.values())
+            if (!Files.exists(variant.getPath(original)))
+                return false;
+        return true;
+    }
+
+    private void createVariants(final Path original) {
+        try (var input = ImageIO.createImageInputStream(original.toFile())) {
+            var readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                log.warn("Not recognized image format, original used as variants [path={}]", original);
+                copyAsVariants(original);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                var format = reader.getFormatName().toLowerCase();
+                if (isAnimatable(format)) {
+                    log.debug("Animatable image, original used as variants [path={}]", original);
+                    copyAsVariants(original);
+                    return;
+                }
+                var width = reader.getWidth(0);
+                var subsampling = getSubsampling(width, reader.getHeight(0));
+                if (subsampling == 0) {
+                    log.warn("Image too large to be decoded, original used as variants [path={}]", original);
+                    copyAsVariants(original);
+                    return;
+                }
+                var readParam = reader.getDefaultReadParam();
+                readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                var image = reader.read(0, readParam);
+                for (ImageVariant variant : ImageVariant.values())
+                    createVariant(original, width, image, format, variant);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The declared dimensions are checked before anything is decoded - a small file may declare a huge raster.
+     * Above the limit only every n-th pixel is decoded, as long as the result stays at least as wide as the
+     * largest variant.
+     *
+     * @return the subsampling step, 0 when the image can not be decoded within the limit
+     */
+    private int getSubsampling(final int width, final int height) {
+        var pixels = (long) width * height;
+        if (pixels <= maxDecodedPixels)
+            return 1;
+        var required = (int) Math.ceil(Math.sqrt((double) pixels / maxDecodedPixels));
+        var allowed = width / getLargestVariantWidth();
+        if (required > allowed)
+            return 0;
+        return required;
+    }
+
+    private static int getLargestVariantWidth() {
+        var result = 0;
+        for (ImageVariant variant : ImageVariant.values())
+            result = Math.max(result, variant.getWidth());
+        return result;
+    }
+
+    private void copyAsVariants(final Path original) throws IOException {
+        for (ImageVariant variant : ImageVariant.values())
+            write(original, variant, temporary -> Files.copy(original, temporary, StandardCopyOption.REPLACE_EXISTING));
+    }
+
+    private void createVariant(final Path original, final int originalWidth, final BufferedImage image,
+                               final String format, final ImageVariant variant) throws IOException {
+        if (originalWidth <= variant.getWidth()) {
+            write(original, variant, temporary -> Files.copy(original, temporary, StandardCopyOption.REPLACE_EXISTING));
+            return;
+        }
+        var scaled = scale(image, variant.getWidth(), isJpeg(format));
+        var writeFormat = ImageIO.getImageWritersByFormatName(format).hasNext() ? format : DEFAULT_FORMAT;
+        write(original, variant, temporary -> ImageIO.write(scaled, writeFormat, temporary.toFile()));
+    }
+
+    // scaling only the first frame would drop the animation
+    private boolean isAnimatable(final String format) {
+        return format.equals(GIF_FORMAT);
+    }
+
+    private boolean isJpeg(final String format) {
+        return format.equals(JPEG_FORMAT) || format.equals("jpg");
+    }
+
+    /**
+     * Halves the image until it is close to the target width before the final step, so the bilinear filter
+     * does not drop whole pixel rows on big reductions.
+     */
+    private BufferedImage scale(final BufferedImage source, final int targetWidth, final boolean opaque) {
+        var imageType = opaque || !source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_RGB
+                : BufferedImage.TYPE_INT_ARGB;
+        var result = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(width / 2, targetWidth);
+            height = Math.max(1, (int) ((long) source.getHeight() * width / source.getWidth()));
+            var step = new BufferedImage(width, height, imageType);
+            var graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(result, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            result = step;
+        } while (width > targetWidth);
+        return result;
+    }
+
+    // variants are written aside and moved in place, so a reader never gets a partially written file
+    private void write(final Path original, final ImageVariant variant, final VariantWriter writer) throws IOException {
+        var target = variant.getPath(original);
+        var temporary = Files.createTempFile(original.getParent(), original.getFileName().toString(), ".tmp");
+        try {
+            writer.write(temporary);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @FunctionalInterface
+    private interface VariantWriter {
+
+        void write(Path temporary) throws IOException;
+
+    }
+
+    @Override
+    public void destroy() {
+        variantExecutor.shutdown();
+        try {
+            if (!variantExecutor.awaitTermination(800, TimeUnit.MILLISECONDS))
+                variantExecutor.shutdownNow();
+        } catch (InterruptedException e) {
+            variantExecutor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+import pl.tscript3r.photogram.infrastructure.exception.InternalErrorPhotogramException;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keeps the blobs on the local disk under the SHA-256 of their content, sharded by its first two bytes
+ * ({@code blobs/ab/cd/abcd...}) so no directory grows beyond a bounded number of entries. The reference counts
+ * are kept in the {@link ImageBlob} rows, a reference is taken in its own transaction - concurrent uploads of
+ * the same content never collide on an uncommitted row.
+ */
+@Slf4j
+@Component
+public class LocalImageStore implements ImageStore {
+
+    static final String BLOBS_PATH = "blobs";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int LOCK_STRIPES = 64;
+
+    private final ImageConfig imageConfig;
+    private final ImageBlobRepository imageBlobRepository;
+    private final TransactionTemplate newTransaction;
+
+    // the file of a blob is created or removed only together with a check of its row, under the lock of its hash
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public LocalImageStore(ImageConfig imageConfig, ImageBlobRepository imageBlobRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.imageConfig = imageConfig;
+        this.imageBlobRepository = imageBlobRepository;
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < LOCK_STRIPES; i++)
+            locks[i] = new Object();
+    }
+
+    /**
+     * The reference is committed before the content is moved in place. Taken within a transaction, it is given
+     * back when that transaction rolls back - otherwise the caller releases it when it fails afterwards.
+     */
+    @Override
+    public String store(@NotNull final InputStream content) throws IOException {
+        var temporary = ImageFiles.createTemporary(getRoot());
+        try {
+            var digest = getDigest();
+            ImageFiles.write(new DigestInputStream(content, digest), temporary);
+            var hash = String.format("%064x", new BigInteger(1, digest.digest()));
+            synchronized (getLock(hash)) {
+                addReference(hash);
+                commitFile(hash, temporary);
+            }
+            releaseOnRollback(hash);
+            return hash;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new InternalErrorPhotogramException(HASH_ALGORITHM + " is not supported", e);
+        }
+    }
+
+    private Object getLock(final String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    // the insert loses against a row committed meanwhile by another node, the committed one is incremented then
+    private void addReference(final String hash) {
+        if (incrementReferences(hash))
+            return;
+        try {
+            newTransaction.executeWithoutResult(status -> imageBlobRepository.save(new ImageBlob(hash)));
+        } catch (DataIntegrityViolationException e) {
+            if (!incrementReferences(hash))
+                throw new InternalErrorPhotogramException(
+                        String.format("Image blob reference could not be added [hash=%s]", hash), e);
+        }
+    }
+
+    private boolean incrementReferences(final String hash) {
+        var updated = newTransaction.execute(status -> imageBlobRepository.incrementReferences(hash));
+        return updated != null && updated > 0;
+    }
+
+    private void commitFile(final String hash, final Path temporary) throws IOException {
+        var target = getPath(hash);
+        if (Files.exists(target)) {
+            log.debug("Image blob deduplicated [hash={}]", hash);
+            return;
+        }
+        try {
+            ImageFiles.commit(temporary, target);
+        } catch (IOException | RuntimeException e) {
+            releaseNow(hash);
+            throw e;
+        }
+    }
+
+    private void releaseOnRollback(final String hash) {
+        if (TransactionSynchronizationManager.isActualTransactionActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    if (status == STATUS_ROLLED_BACK)
+                        releaseNow(hash);
+                }
+            });
+    }
+
+    @Override
+    public Path getPath(@NotNull final String hash) {
+        return getRoot().resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2, 4))
+                .resolve(hash);
+    }
+
+    private Path getRoot() {
+        return Paths.get(imageConfig.getBasePath(), BLOBS_PATH);
+    }
+
+    /**
+     * The files are removed only after the commit, a rolled back release must still find its blob.
+     */
+    @Override
+    public void release(@NotNull final String hash) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            releaseNow(hash);
+            return;
+        }
+        if (!removeReference(hash))
+            return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                deleteFiles(hash);
+            }
+        });
+    }
+
+    private void releaseNow(final String hash) {
+        if (Boolean.TRUE.equals(newTransaction.execute(status -> removeReference(hash))))
+            deleteFiles(hash);
+    }
+
+    /**
+     * @return true when the last reference has been removed together with the row
+     */
+    private boolean removeReference(final String hash) {
+        imageBlobRepository.decrementReferences(hash);
+        return imageBlobRepository.deleteUnreferenced(hash) > 0;
+    }
+
+    // derived files (e.g. the variants) are kept next to the blob, prefixed with its hash
+    private void deleteFiles(final String hash) {
+        synchronized (getLock(hash)) {
+            if (imageBlobRepository.findByHash(hash).isPresent()) {
+                log.debug("Image blob referenced again, not removed [hash={}]", hash);
+                return;
+            }
+            var blob = getPath(hash);
+            try (var files = Files.newDirectoryStream(blob.getParent(), hash + "*")) {
+                for (Path file : files)
+                    Files.deleteIfExists(file);
+                log.debug("Image blob removed [hash={}]", hash);
+            } catch (IOException e) {
+                log.error("Image blob could not be removed [hash={}]: {}", hash, e.toString());
+            }
+        }
+    }
+
+}
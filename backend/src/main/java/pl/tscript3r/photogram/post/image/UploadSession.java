@@ -0,0 +1,94 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * State of a resumable, chunked upload. Chunks may arrive in any order and may overlap, the received byte ranges
+ * are kept merged, so the client can always be told which bytes are still missing.
+ */
+@Getter
+public class UploadSession {
+
+    private final String id;
+    private final Long postId;
+    private final Long userId;
+    private final long length;
+    private final String extension;
+    private final Path path;
+    private volatile Instant lastActivity = Instant.now();
+
+    // start -> end (exclusive) of the received, disjoint and non adjacent ranges
+    private final TreeMap<Long, Long> received = new TreeMap<>();
+    private boolean completed;
+
+    UploadSession(final String id, final Long postId, final Long userId, final long length, final String extension,
+                  final Path path) {
+        this.id = id;
+        this.postId = postId;
+        this.userId = userId;
+        this.length = length;
+        this.extension = extension;
+        this.path = path;
+    }
+
+    void touch() {
+        lastActivity = Instant.now();
+    }
+
+    synchronized void addReceived(final long start, final long end) {
+        if (start >= end)
+            return;
+        long mergedStart = start;
+        long mergedEnd = end;
+        var floor = received.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            mergedStart = floor.getKey();
+            mergedEnd = Math.max(mergedEnd, floor.getValue());
+        }
+        var overlapping = received.subMap(mergedStart, true, mergedEnd, true);
+        for (Map.Entry<Long, Long> range : overlapping.entrySet())
+            mergedEnd = Math.max(mergedEnd, range.getValue());
+        overlapping.clear();
+        received.put(mergedStart, mergedEnd);
+    }
+
+    public synchronized long getReceivedLength() {
+        return received.entrySet().stream()
+                .mapToLong(range -> range.getValue() - range.getKey())
+                .sum();
+    }
+
+    /**
+     * @return missing ranges in the HTTP Range notation - first and last byte, both inclusive
+     */
+    public synchronized List<String> getMissingRanges() {
+        List<String> missing = new ArrayList<>();
+        long position = 0;
+        for (Map.Entry<Long, Long> range : received.entrySet()) {
+            if (range.getKey() > position)
+                missing.add(position + "-" + (range.getKey() - 1));
+            position = range.getValue();
+        }
+        if (position < length)
+            missing.add(position + "-" + (length - 1));
+        return missing;
+    }
+
+    /**
+     * @return true only once - for the call which finds all of the bytes received, that caller finalizes the upload
+     */
+    synchronized boolean complete() {
+        if (completed || received.size() != 1 || received.firstKey() != 0 || received.firstEntry().getValue() != length)
+            return false;
+        completed = true;
+        return true;
+    }
+
+}
@@ -0,0 +1,220 @@
+package pl.tscript3r.photogram.post.image;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+import pl.tscript3r.photogram.infrastructure.exception.BadRequestPhotogramException;
+import pl.tscript3r.photogram.infrastructure.exception.InternalErrorPhotogramException;
+import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads in the spirit of the tus protocol. The chunks are written at their offsets into a part file,
+ * so a failed transfer is resumed by sending only the missing bytes. A chunk is received into a file of its own
+ * first and copied into the part file only once complete and its checksum (when given) verified - a broken or
+ * corrupt retry never overwrites bytes already received.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadSessionService {
+
+    static final String UPLOADS_PATH = "uploads";
+    private static final String PART_SUFFIX = ".part";
+    private static final String CHUNK_SUFFIX = ".chunk";
+    private static final String CHECKSUM_ALGORITHM = "sha256";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ImageConfig imageConfig;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public UploadSession create(@NotNull final Long postId, @NotNull final Long userId, final long length,
+                                final String extension) {
+        if (length <= 0 || length > imageConfig.getMaxUploadSize().toBytes())
+            throw new BadRequestPhotogramException(String.format("Upload length has to be between 1 and %d bytes",
+                    imageConfig.getMaxUploadSize().toBytes()));
+        var id = UUID.randomUUID().toString();
+        var path = getUploadsPath().resolve(id + PART_SUFFIX);
+        try {
+            Files.createDirectories(path.getParent());
+            Files.createFile(path);
+        } catch (IOException e) {
+            throw new InternalErrorPhotogramException("Upload could not be started: " + e, e);
+        }
+        var session = new UploadSession(id, postId, userId, length, extension, path);
+        sessions.put(id, session);
+        log.debug("Upload session created [id={}, postId={}, length={}]", id, postId, length);
+        return session;
+    }
+
+    public UploadSession get(@NotNull final String id) {
+        var session = sessions.get(id);
+        if (session == null)
+            throw new NotFoundPhotogramException(String.format("Upload session id=%s not found", id));
+        return session;
+    }
+
+    /**
+     * @param checksum optional, {@code sha256 <base64 digest>} of the chunk
+     * @return true when the chunk has completed the upload, the caller is then responsible to finalize it
+     */
+    public boolean write(@NotNull final UploadSession session, final long offset, @NotNull final InputStream content,
+                         final String checksum) {
+        if (session.isCompleted())
+            throw new BadRequestPhotogramException("Upload has been already completed");
+        if (offset < 0 || offset >= session.getLength())
+            throw new BadRequestPhotogramException(String.format("Upload offset has to be between 0 and %d",
+                    session.getLength() - 1));
+        var expectedDigest = parseChecksum(checksum);
+        Path chunk = null;
+        try {
+            chunk = Files.createTempFile(session.getPath().getParent(), session.getId() + ".", CHUNK_SUFFIX);
+            var chunkLength = receiveChunk(session, offset, content, chunk, expectedDigest);
+            copyChunk(chunk, session.getPath(), offset, chunkLength);
+            session.addReceived(offset, offset + chunkLength);
+            return session.complete();
+        } catch (IOException e) {
+            throw new InternalErrorPhotogramException("Chunk could not be written: " + e, e);
+        } finally {
+            session.touch();
+            if (chunk != null)
+                delete(chunk);
+        }
+    }
+
+    /**
+     * @return length of the received chunk, verified against the checksum
+     */
+    private long receiveChunk(final UploadSession session, final long offset, final InputStream content,
+                              final Path chunk, final byte[] expectedDigest) throws IOException {
+        var digest = getDigest();
+        long length = 0;
+        try (var output = Files.newOutputStream(chunk)) {
+            var bytes = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(bytes)) >= 0) {
+                if (offset + length + read > session.getLength())
+                    throw new BadRequestPhotogramException("Chunk exceeds the declared upload length");
+                digest.update(bytes, 0, read);
+                output.write(bytes, 0, read);
+                length += read;
+            }
+        }
+        if (expectedDigest != null && !MessageDigest.isEqual(expectedDigest, digest.digest()))
+            throw new BadRequestPhotogramException("Chunk checksum mismatch, resend the chunk");
+        return length;
+    }
+
+    private void copyChunk(final Path chunk, final Path part, final long offset, final long length)
+            throws IOException {
+        try (var source = FileChannel.open(chunk, StandardOpenOption.READ);
+             var target = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            // transferFrom does not write past the end of the target, while a positioned channel extends it
+            target.position(offset);
+            long copied = 0;
+            while (copied < length)
+                copied += source.transferTo(copied, length - copied, target);
+        }
+    }
+
+    private byte[] parseChecksum(final String checksum) {
+        if (checksum == null)
+            return null;
+        var parts = checksum.trim().split(" ", 2);
+        if (parts.length != 2 || !parts[0].equalsIgnoreCase(CHECKSUM_ALGORITHM))
+            throw new BadRequestPhotogramException("Only " + CHECKSUM_ALGORITHM + " chunk checksums are supported");
+        try {
+            return Base64.getDecoder().decode(parts[1].trim());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestPhotogramException("Chunk checksum is not valid base64");
+        }
+    }
+
+    private MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new InternalErrorPhotogramException(DIGEST_ALGORITHM + " is not supported", e);
+        }
+    }
+
+    public InputStream open(@NotNull final UploadSession session) throws IOException {
+        return Files.newInputStream(session.getPath());
+    }
+
+    public void remove(@NotNull final UploadSession session) {
+        sessions.remove(session.getId());
+        delete(session.getPath());
+    }
+
+    private void delete(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.error("Upload part file could not be removed [path={}]: {}", path, e.toString());
+        }
+    }
+
+    public int removeInactiveSince(@NotNull final Instant expiryDate) {
+        int removed = 0;
+        for (UploadSession session : sessions.values())
+            if (session.getLastActivity().isBefore(expiryDate) && sessions.remove(session.getId(), session)) {
+                delete(session.getPath());
+                removed++;
+            }
+        return removed;
+    }
+
+    /**
+     * The sessions are kept in memory only, the part and chunk files of the sessions lost with a restart are
+     * found on the disk. Files of the live sessions are kept, as well as the ones modified after the given date -
+     * their session may be just being created.
+     *
+     * @return count of the removed files
+     */
+    public int removeOrphanedFiles(@NotNull final Instant modifiedBefore) {
+        var directory = getUploadsPath();
+        if (!Files.isDirectory(directory))
+            return 0;
+        int removed = 0;
+        try (var files = Files.newDirectoryStream(directory, "*{" + PART_SUFFIX + "," + CHUNK_SUFFIX + "}")) {
+            for (Path file : files)
+                if (isOrphaned(file, modifiedBefore)) {
+                    delete(file);
+                    removed++;
+                }
+        } catch (IOException e) {
+            log.error("Upload directory could not be swept [path={}]: {}", directory, e.toString());
+        }
+        return removed;
+    }
+
+    private boolean isOrphaned(final Path file, final Instant modifiedBefore) throws IOException {
+        var fileName = file.getFileName().toString();
+        var sessionId = fileName.substring(0, fileName.indexOf('.'));
+        return !sessions.containsKey(sessionId)
+                && Files.getLastModifiedTime(file).toInstant().isBefore(modifiedBefore);
+    }
+
+    private Path getUploadsPath() {
+        return Paths.get(imageConfig.getBasePath(), UPLOADS_PATH);
+    }
+
+}
@@ -2,6 +2,8 @@ package pl.tscript3r.photogram.post.image.api.v1;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
+import org.springframework.lang.Nullable;
+import pl.tscript3r.photogram.infrastructure.mapper.Default;
 import pl.tscript3r.photogram.infrastructure.mapper.Dto;
 
 public class ImageDto implements Dto {
@@ -14,9 +16,26 @@ public class ImageDto implements Dto {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private final String extension;
 
+    @Getter
+    @Nullable
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private final Integer width;
+
+    @Getter
+    @Nullable
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private final Integer height;
+
     public ImageDto(Long imageId, String extension) {
+        this(imageId, extension, null, null);
+    }
+
+    @Default
+    public ImageDto(Long imageId, String extension, Integer width, Integer height) {
         this.imageId = imageId;
         this.extension = extension;
+        this.width = width;
+        this.height = height;
     }
 
 }
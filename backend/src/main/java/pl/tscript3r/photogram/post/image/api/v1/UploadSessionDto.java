@@ -0,0 +1,32 @@
+package pl.tscript3r.photogram.post.image.api.v1;
+
+import lombok.*;
+import org.springframework.lang.Nullable;
+import pl.tscript3r.photogram.infrastructure.mapper.Dto;
+import pl.tscript3r.photogram.post.api.v1.PostDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto implements Dto {
+
+    private String id;
+
+    private Long length;
+
+    private Long receivedLength;
+
+    private List<String> missingRanges = new ArrayList<>();
+
+    /**
+     * Set only by the request which has completed the upload
+     */
+    @Nullable
+    private PostDto post;
+
+}
@@ -0,0 +1,295 @@
+package pl.tscript3r.photogram.post.reaction;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non negative ints, in the Roaring bitmap layout - values are split by their high 16 bits
+ * into containers, a sparse container keeps the sorted low bits, a dense one switches to a 2^16 bit bitmap.
+ * Not thread safe.
+ */
+public class ReactionBitmap {
+
+    private static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final byte ARRAY_CONTAINER = 0;
+    private static final byte BITMAP_CONTAINER = 1;
+
+    private char[] keys = new char[0];
+    private Container[] containers = new Container[0];
+    private int size;
+
+    public boolean add(final int value) {
+        var key = highBits(value);
+        var index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        var container = containers[index];
+        var cardinality = container.cardinality();
+        containers[index] = container.add(lowBits(value));
+        return containers[index].cardinality() > cardinality;
+    }
+
+    public boolean remove(final int value) {
+        var index = Arrays.binarySearch(keys, 0, size, highBits(value));
+        if (index < 0)
+            return false;
+        var cardinality = containers[index].cardinality();
+        containers[index] = containers[index].remove(lowBits(value));
+        var removed = containers[index].cardinality() < cardinality;
+        if (containers[index].cardinality() == 0)
+            removeContainer(index);
+        return removed;
+    }
+
+    public boolean contains(final int value) {
+        var index = Arrays.binarySearch(keys, 0, size, highBits(value));
+        return index >= 0 && containers[index].contains(lowBits(value));
+    }
+
+    public int cardinality() {
+        var result = 0;
+        for (int i = 0; i < size; i++)
+            result += containers[i].cardinality();
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(final IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            var high = keys[i] << 16;
+            containers[i].forEach(low -> consumer.accept(high | low));
+        }
+    }
+
+    public void write(final DataOutput output) throws IOException {
+        output.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            output.writeChar(keys[i]);
+            containers[i].write(output);
+        }
+    }
+
+    public static ReactionBitmap read(final DataInput input) throws IOException {
+        var result = new ReactionBitmap();
+        result.size = input.readInt();
+        result.keys = new char[result.size];
+        result.containers = new Container[result.size];
+        for (int i = 0; i < result.size; i++) {
+            result.keys[i] = input.readChar();
+            result.containers[i] = readContainer(input);
+        }
+        return result;
+    }
+
+    private static char highBits(final int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char lowBits(final int value) {
+        return (char) value;
+    }
+
+    private void insertContainer(final int index, final char key, final Container container) {
+        if (size == keys.length) {
+            var capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainer(final int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    private static Container readContainer(final DataInput input) throws IOException {
+        var type = input.readByte();
+        var cardinality = input.readInt();
+        if (type == ARRAY_CONTAINER) {
+            var values = new char[Math.max(cardinality, 4)];
+            for (int i = 0; i < cardinality; i++)
+                values[i] = input.readChar();
+            return new ArrayContainer(values, cardinality);
+        }
+        var words = new long[BITMAP_WORDS];
+        for (int i = 0; i < BITMAP_WORDS; i++)
+            words[i] = input.readLong();
+        return new BitmapContainer(words, cardinality);
+    }
+
+    private interface Container {
+
+        Container add(char value);
+
+        Container remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        void forEach(IntConsumer consumer);
+
+        void write(DataOutput output) throws IOException;
+
+    }
+
+    private static class ArrayContainer implements Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(final char[] values, final int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(final char value) {
+            var index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0)
+                return this;
+            if (cardinality == ARRAY_CONTAINER_MAX_SIZE)
+                return toBitmap().add(value);
+            index = -index - 1;
+            if (cardinality == values.length)
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_CONTAINER_MAX_SIZE));
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container remove(final char value) {
+            var index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index < 0)
+                return this;
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return this;
+        }
+
+        @Override
+        public boolean contains(final char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public void forEach(final IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++)
+                consumer.accept(values[i]);
+        }
+
+        @Override
+        public void write(final DataOutput output) throws IOException {
+            output.writeByte(ARRAY_CONTAINER);
+            output.writeInt(cardinality);
+            for (int i = 0; i < cardinality; i++)
+                output.writeChar(values[i]);
+        }
+
+        private BitmapContainer toBitmap() {
+            var result = new BitmapContainer(new long[BITMAP_WORDS], 0);
+            for (int i = 0; i < cardinality; i++)
+                result.add(values[i]);
+            return result;
+        }
+
+    }
+
+    private static class BitmapContainer implements Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(final long[] words, final int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(final char value) {
+            var word = words[value >>> 6];
+            var updated = word | (1L << value);
+            if (updated != word) {
+                words[value >>> 6] = updated;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(final char value) {
+            var word = words[value >>> 6];
+            var updated = word & ~(1L << value);
+            if (updated == word)
+                return this;
+            words[value >>> 6] = updated;
+            cardinality--;
+            return cardinality <= ARRAY_CONTAINER_MAX_SIZE ? toArray() : this;
+        }
+
+        @Override
+        public boolean contains(final char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public void forEach(final IntConsumer consumer) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                var word = words[i];
+                while (word != 0) {
+                    consumer.accept(i * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        public void write(final DataOutput output) throws IOException {
+            output.writeByte(BITMAP_CONTAINER);
+            output.writeInt(cardinality);
+            for (long word : words)
+                output.writeLong(word);
+        }
+
+        private ArrayContainer toArray() {
+            var values = new char[ARRAY_CONTAINER_MAX_SIZE];
+            var index = new int[1];
+            forEach(value -> values[index[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+
+    }
+
+}
@@ -0,0 +1,356 @@
+package pl.tscript3r.photogram.post.reaction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.tscript3r.photogram.infrastructure.configuration.ReactionConfig;
+import pl.tscript3r.photogram.infrastructure.exception.InternalErrorPhotogramException;
+import pl.tscript3r.photogram.post.PostRepository;
+import pl.tscript3r.photogram.post.Reactions;
+
+import javax.validation.constraints.NotNull;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In memory copy of the users_likes and users_dislikes tables - post id to the bitmap of the reacting user ids,
+ * so "did the viewer react" is answered without the database. Until loaded the database is queried.
+ * <p>
+ * Each change of the tables increments the {@link ReactionSequence} in its transaction, the index keeps the
+ * sequence number up to which it has applied all of them. The snapshot stores that number and is restored only
+ * when the database is still at it exactly, otherwise the index is rebuilt from the tables. The reactions of the
+ * other instances are never recorded here - the index is rebuilt as well when it falls behind the database, see
+ * {@link #isStale()}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReactionIndex {
+
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final PostRepository postRepository;
+    private final ReactionConfig reactionConfig;
+
+    private volatile Map<Long, ReactionBitmap> likes = new ConcurrentHashMap<>();
+    private volatile Map<Long, ReactionBitmap> dislikes = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // changes committed while loading, replayed on the loaded index
+    private List<Change> pendingChanges;
+    // all the changes up to the sequence number are applied, the ones past a gap are kept aside
+    private long sequence;
+    private final SortedSet<Long> appliedAhead = new TreeSet<>();
+    // sequence number of the database at the previous staleness check
+    private long observedSequence;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Loads the index, or reloads it when stale - the current one is served meanwhile.
+     */
+    @Transactional(readOnly = true)
+    public void load() {
+        synchronized (this) {
+            pendingChanges = new ArrayList<>();
+        }
+        // read before the rows, these may only be newer
+        var databaseSequence = postRepository.getReactionSequence();
+        var snapshot = readSnapshot();
+        Map<Long, ReactionBitmap> loadedLikes;
+        Map<Long, ReactionBitmap> loadedDislikes;
+        if (snapshot != null && snapshot.sequence == databaseSequence) {
+            loadedLikes = snapshot.likes;
+            loadedDislikes = snapshot.dislikes;
+            log.info("Reaction index restored from the snapshot [sequence={}]", databaseSequence);
+        } else {
+            try (var rows = postRepository.streamLikes()) {
+                loadedLikes = build(rows);
+            }
+            try (var rows = postRepository.streamDislikes()) {
+                loadedDislikes = build(rows);
+            }
+            log.info("Reaction index built from the tables [sequence={}]", databaseSequence);
+        }
+        synchronized (this) {
+            likes = loadedLikes;
+            dislikes = loadedDislikes;
+            sequence = databaseSequence;
+            observedSequence = databaseSequence;
+            appliedAhead.clear();
+            for (Change change : pendingChanges) {
+                change.action.run();
+                advance(change.sequence);
+            }
+            pendingChanges = null;
+            ready = true;
+        }
+    }
+
+    private static Map<Long, ReactionBitmap> build(final Stream<Object[]> rows) {
+        var result = new ConcurrentHashMap<Long, ReactionBitmap>();
+        rows.forEach(row -> add(result, ((Number) row[0]).longValue(), ((Number) row[1]).longValue()));
+        return result;
+    }
+
+    /**
+     * Stale when the index has not reached, since the previous check, the sequence number the database was at -
+     * some changes were committed elsewhere. The changes of this instance are applied right after their commits,
+     * the time between the checks is left for them.
+     */
+    @Transactional(readOnly = true)
+    public boolean isStale() {
+        var databaseSequence = postRepository.getReactionSequence();
+        synchronized (this) {
+            if (!ready || pendingChanges != null)
+                return false;
+            var stale = sequence < observedSequence;
+            observedSequence = databaseSequence;
+            return stale;
+        }
+    }
+
+    /**
+     * Applied after the commit of the current transaction, a rolled back reaction is not indexed. Increments the
+     * reaction sequence, locking its row until the transaction completes - to be called before the post row is
+     * locked, so the reactions and the post removals lock them in the same order.
+     */
+    public void record(@NotNull final Reactions reaction, @NotNull final Long postId, @NotNull final Long userId) {
+        var change = nextSequence();
+        switch (reaction) {
+            case LIKE:
+                afterCommit(change, () -> {
+                    add(likes, postId, userId);
+                    remove(dislikes, postId, userId);
+                });
+                break;
+            case UNLIKE:
+                afterCommit(change, () -> remove(likes, postId, userId));
+                break;
+            case DISLIKE:
+                afterCommit(change, () -> {
+                    add(dislikes, postId, userId);
+                    remove(likes, postId, userId);
+                });
+                break;
+            case UNDISLIKE:
+                afterCommit(change, () -> remove(dislikes, postId, userId));
+                break;
+            default:
+                throw new InternalErrorPhotogramException("Not recognized reaction=" + reaction.name());
+        }
+    }
+
+    public void removePost(@NotNull final Long postId) {
+        afterCommit(nextSequence(), () -> {
+            likes.remove(postId);
+            dislikes.remove(postId);
+        });
+    }
+
+    private long nextSequence() {
+        postRepository.incrementReactionSequence();
+        return postRepository.getReactionSequence();
+    }
+
+    private void afterCommit(final long sequence, final Runnable action) {
+        var change = new Change(sequence, action);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        else
+            apply(change);
+    }
+
+    private void apply(final Change change) {
+        synchronized (this) {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+                return;
+            }
+        }
+        change.action.run();
+        synchronized (this) {
+            advance(change.sequence);
+        }
+    }
+
+    // the commits are ordered by the sequence row lock, their after commit hooks are not
+    private void advance(final long changeSequence) {
+        if (changeSequence != sequence + 1) {
+            if (changeSequence > sequence)
+                appliedAhead.add(changeSequence);
+            return;
+        }
+        sequence = changeSequence;
+        while (appliedAhead.remove(sequence + 1))
+            sequence++;
+    }
+
+    public Set<Long> getLikedIds(@NotNull final Long userId, @NotNull final Collection<Long> postIds) {
+        if (!ready)
+            return postRepository.findLikedIds(userId, postIds);
+        return filter(likes, userId, postIds);
+    }
+
+    public Set<Long> getDislikedIds(@NotNull final Long userId, @NotNull final Collection<Long> postIds) {
+        if (!ready)
+            return postRepository.findDislikedIds(userId, postIds);
+        return filter(dislikes, userId, postIds);
+    }
+
+    public boolean isLiked(@NotNull final Long userId, @NotNull final Long postId) {
+        if (!ready)
+            return postRepository.existsLike(userId, postId);
+        return contains(likes, postId, userId);
+    }
+
+    public boolean isDisliked(@NotNull final Long userId, @NotNull final Long postId) {
+        if (!ready)
+            return postRepository.existsDislike(userId, postId);
+        return contains(dislikes, postId, userId);
+    }
+
+    private static Set<Long> filter(final Map<Long, ReactionBitmap> index, final Long userId,
+                                    final Collection<Long> postIds) {
+        var result = new HashSet<Long>();
+        for (Long postId : postIds)
+            if (contains(index, postId, userId))
+                result.add(postId);
+        return result;
+    }
+
+    private static void add(final Map<Long, ReactionBitmap> index, final Long postId, final Long userId) {
+        index.compute(postId, (id, bitmap) -> {
+            var result = bitmap == null ? new ReactionBitmap() : bitmap;
+            synchronized (result) {
+                result.add(Math.toIntExact(userId));
+            }
+            return result;
+        });
+    }
+
+    private static void remove(final Map<Long, ReactionBitmap> index, final Long postId, final Long userId) {
+        index.computeIfPresent(postId, (id, bitmap) -> {
+            synchronized (bitmap) {
+                bitmap.remove(Math.toIntExact(userId));
+                return bitmap.isEmpty() ? null : bitmap;
+            }
+        });
+    }
+
+    private static boolean contains(final Map<Long, ReactionBitmap> index, final Long postId, final Long userId) {
+        var bitmap = index.get(postId);
+        if (bitmap == null)
+            return false;
+        synchronized (bitmap) {
+            return bitmap.contains(Math.toIntExact(userId));
+        }
+    }
+
+    /**
+     * Written to a temporary file first, a crash while writing leaves the previous snapshot intact. The sequence
+     * number is taken before the bitmaps - changes applied meanwhile are past it, so such a snapshot never
+     * matches the database.
+     */
+    public void snapshot() throws IOException {
+        long snapshotSequence;
+        synchronized (this) {
+            snapshotSequence = sequence;
+        }
+        var path = getSnapshotPath();
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        var temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(SNAPSHOT_VERSION);
+                output.writeLong(snapshotSequence);
+                write(output, likes);
+                write(output, dislikes);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void write(final DataOutput output, final Map<Long, ReactionBitmap> index) throws IOException {
+        var entries = new ArrayList<>(index.entrySet());
+        output.writeInt(entries.size());
+        for (var entry : entries) {
+            output.writeLong(entry.getKey());
+            synchronized (entry.getValue()) {
+                entry.getValue().write(output);
+            }
+        }
+    }
+
+    private Snapshot readSnapshot() {
+        var path = getSnapshotPath();
+        if (!Files.exists(path))
+            return null;
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != SNAPSHOT_VERSION)
+                return null;
+            return new Snapshot(input.readLong(), read(input), read(input));
+        } catch (IOException e) {
+            log.warn("Reaction index snapshot could not be read: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static Map<Long, ReactionBitmap> read(final DataInput input) throws IOException {
+        var size = input.readInt();
+        var result = new ConcurrentHashMap<Long, ReactionBitmap>(size);
+        for (int i = 0; i < size; i++)
+            result.put(input.readLong(), ReactionBitmap.read(input));
+        return result;
+    }
+
+    private Path getSnapshotPath() {
+        return Paths.get(reactionConfig.getSnapshotPath());
+    }
+
+    private static class Change {
+
+        private final long sequence;
+        private final Runnable action;
+
+        private Change(final long sequence, final Runnable action) {
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+    }
+
+    private static class Snapshot {
+
+        private final long sequence;
+        private final Map<Long, ReactionBitmap> likes;
+        private final Map<Long, ReactionBitmap> dislikes;
+
+        private Snapshot(final long sequence, final Map<Long, ReactionBitmap> likes,
+                         final Map<Long, ReactionBitmap> dislikes) {
+            this.sequence = sequence;
+            this.likes = likes;
+            this.dislikes = dislikes;
+        }
+
+    }
+
+}
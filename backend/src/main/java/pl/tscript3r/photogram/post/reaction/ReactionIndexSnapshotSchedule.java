@@ -0,0 +1,46 @@
+package pl.tscript3r.photogram.post.reaction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReactionIndexSnapshotSchedule {
+
+    private static final int EXECUTION_RATE = 3600_000; // 1h
+    private static final int RECONCILE_RATE = 60_000; // 1min
+
+    private final ReactionIndex reactionIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        reactionIndex.load();
+    }
+
+    @Scheduled(fixedRate = RECONCILE_RATE, initialDelay = RECONCILE_RATE)
+    public void reconcileIndex() {
+        if (reactionIndex.isStale()) {
+            log.info("Reaction index behind the reaction tables, reloading");
+            reactionIndex.load();
+        }
+    }
+
+    @Scheduled(fixedRate = EXECUTION_RATE, initialDelay = EXECUTION_RATE)
+    public void snapshotIndex() {
+        if (!reactionIndex.isReady())
+            return;
+        try {
+            reactionIndex.snapshot();
+        } catch (IOException e) {
+            log.error("Reaction index snapshot failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package pl.tscript3r.photogram.post.reaction;
+
+import lombok.Getter;
+import pl.tscript3r.photogram.infrastructure.AbstractEntity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * Single row counting the committed changes of the reaction tables, of all the instances - the
+ * {@link ReactionIndex} is in sync with the tables when it has applied every one of them.
+ */
+@Getter
+@Entity
+@Table(name = "reaction_sequence")
+public class ReactionSequence extends AbstractEntity {
+
+    @Column(name = "sequence_number", nullable = false)
+    private Long sequenceNumber = 0L;
+
+    ReactionSequence() {
+    }
+
+}
@@ -0,0 +1,38 @@
+package pl.tscript3r.photogram.post.timeline;
+
+import lombok.Getter;
+import lombok.Setter;
+import pl.tscript3r.photogram.infrastructure.AbstractEntity;
+
+import javax.persistence.*;
+
+/**
+ * Author whose posts are pulled on read instead of pushed into the followers timelines. The mode is kept until
+ * the author is pushed again and the followers timelines are backfilled, it does not follow the live followers
+ * count - the posts published meanwhile never disappear from the timelines. A pushed author is backfilled in
+ * batches of the followers in the background, meanwhile its new posts are pushed and the older ones still pulled.
+ */
+@Getter
+@Entity
+@Table(name = "timeline_pulled_authors",
+        uniqueConstraints = @UniqueConstraint(name = "timeline_pulled_authors_author_uk",
+                columnNames = "author_id"))
+public class PulledAuthor extends AbstractEntity {
+
+    @Column(name = "author_id", nullable = false, updatable = false)
+    private Long authorId;
+
+    @Column(nullable = false)
+    private Boolean pushed = false;
+
+    /**
+     * Followers up to this id are backfilled, the batches are taken in the id order.
+     */
+    @Setter
+    @Column(nullable = false)
+    private Long backfilledFollowerId = 0L;
+
+    PulledAuthor() {
+    }
+
+}
@@ -0,0 +1,31 @@
+package pl.tscript3r.photogram.post.timeline;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the followers timelines of the authors pushed again, outside of the transactions switching them - a
+ * batch of the followers per transaction.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimelineBackfillSchedule {
+
+    private static final int EXECUTION_DELAY = 10_000; // 10s
+
+    private final TimelineService timelineService;
+
+    @Scheduled(fixedDelay = EXECUTION_DELAY)
+    public void backfillTimelines() {
+        for (Long authorId : timelineService.getPushedAuthorIds()) {
+            var batches = 1;
+            while (timelineService.backfillNextFollowers(authorId))
+                batches++;
+            log.info("Author id={} pushed again, followers timelines backfilled in {} batches", authorId, batches);
+        }
+    }
+
+}
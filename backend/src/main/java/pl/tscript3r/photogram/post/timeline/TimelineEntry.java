@@ -0,0 +1,33 @@
+package pl.tscript3r.photogram.post.timeline;
+
+import lombok.Getter;
+import pl.tscript3r.photogram.infrastructure.AbstractEntity;
+
+import javax.persistence.*;
+
+/**
+ * Post pushed into the users home timeline. Ids are kept without associations, so reading a timeline page is
+ * a range scan over the (user_id, post_id) index.
+ */
+@Getter
+@Entity
+@Table(name = "timeline_entries",
+        uniqueConstraints = @UniqueConstraint(name = "timeline_entries_user_post_uk",
+                columnNames = {"user_id", "post_id"}))
+public class TimelineEntry extends AbstractEntity {
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    @Column(name = "post_id", nullable = false, updatable = false)
+    private Long postId;
+
+    TimelineEntry() {
+    }
+
+    public TimelineEntry(final Long userId, final Long postId) {
+        this.userId = userId;
+        this.postId = postId;
+    }
+
+}
@@ -0,0 +1,65 @@
+package pl.tscript3r.photogram.post.timeline;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+public interface TimelineEntryRepository extends CrudRepository<TimelineEntry, Long>, TimelineFanOutRepository {
+
+    @Query("select t.postId from TimelineEntry t where t.userId = :userId and t.postId < :before order by t.postId desc")
+    List<Long> findPostIds(Long userId, Long before, Pageable pageable);
+
+    @Query("select count(f) from User f join f.follows u where u.id = :userId")
+    long countFollowers(Long userId);
+
+    @Query("select f.id from User f join f.follows u where u.id = :authorId and f.id > :after order by f.id")
+    List<Long> findFollowerIds(Long authorId, Long after, Pageable pageable);
+
+    /**
+     * Includes the authors pushed again, until their followers timelines are backfilled.
+     */
+    @Query("select a.authorId from PulledAuthor a, User f join f.follows u where f.id = :userId and u.id = a.authorId")
+    List<Long> findFollowedPulled(Long userId);
+
+    @Query("select count(a) > 0 from PulledAuthor a where a.authorId = :authorId and a.pushed = false")
+    boolean isPulled(Long authorId);
+
+    @Query("select a.authorId from PulledAuthor a where a.pushed = true")
+    List<Long> findPushedAuthorIds();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from PulledAuthor a where a.authorId = :authorId")
+    Optional<PulledAuthor> findForUpdateByAuthorId(Long authorId);
+
+    /**
+     * @return 0 when the author is not pulled
+     */
+    @Modifying
+    @Query("update PulledAuthor a set a.pushed = true, a.backfilledFollowerId = 0 " +
+            "where a.authorId = :authorId and a.pushed = false")
+    int markPushed(Long authorId);
+
+    @Modifying
+    @Query("update PulledAuthor a set a.pushed = false where a.authorId = :authorId")
+    int markPulled(Long authorId);
+
+    @Modifying
+    @Query("delete from PulledAuthor a where a.authorId = :authorId")
+    int deletePulled(Long authorId);
+
+    @Modifying
+    @Query("delete from TimelineEntry t where t.userId = :userId and " +
+            "t.postId in (select p.id from Post p where p.user.id = :authorId)")
+    int deleteByUserIdAndAuthorId(Long userId, Long authorId);
+
+    @Modifying
+    @Query("delete from TimelineEntry t where t.postId = :postId")
+    int deleteByPostId(Long postId);
+
+}
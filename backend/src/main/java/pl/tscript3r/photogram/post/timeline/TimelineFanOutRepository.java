@@ -0,0 +1,26 @@
+package pl.tscript3r.photogram.post.timeline;
+
+import java.util.Collection;
+
+/**
+ * Timeline rows are written in bulk by native statements, see {@link TimelineFanOutRepositoryImpl}.
+ */
+public interface TimelineFanOutRepository {
+
+    int fanOut(Long authorId, Long postId);
+
+    int backfill(Long userId, Long authorId, int capacity);
+
+    /**
+     * Pushes up to capacity newest posts of the author to the given followers, skipping the ones already there.
+     */
+    int backfillFollowers(Long authorId, Collection<Long> followerIds, int capacity);
+
+    /**
+     * Inserts the pulled author only when it is not there yet - returns 0 when already pulled, or being pushed.
+     */
+    int insertPulled(Long authorId);
+
+    int deleteBeyondCapacity(int capacity);
+
+}
@@ -0,0 +1,63 @@
+package pl.tscript3r.photogram.post.timeline;
+
+import lombok.RequiredArgsConstructor;
+import pl.tscript3r.photogram.infrastructure.NativeUpdates;
+
+import java.util.Collection;
+import java.util.Map;
+
+@RequiredArgsConstructor
+class TimelineFanOutRepositoryImpl implements TimelineFanOutRepository {
+
+    private static final String TABLE = "timeline_entries";
+    private static final String FAN_OUT = "insert into timeline_entries (user_id, post_id) " +
+            "select f.user_id, :postId from users_follows f where f.follows_id = :authorId";
+    private static final String BACKFILL = "insert into timeline_entries (user_id, post_id) " +
+            "select :userId, p.id from posts p where p.user_id = :authorId and p.valid = true and not exists " +
+            "(select 1 from timeline_entries t where t.user_id = :userId and t.post_id = p.id) " +
+            "order by p.id desc limit :capacity";
+    private static final String BACKFILL_FOLLOWERS = "insert into timeline_entries (user_id, post_id) " +
+            "select f.user_id, p.id from users_follows f join posts p on p.user_id = f.follows_id " +
+            "where f.follows_id = :authorId and f.user_id in (:followerIds) " +
+            "and p.id in (select r.id from posts r where r.user_id = :authorId " +
+            "and r.valid = true order by r.id desc limit :capacity) and not exists " +
+            "(select 1 from timeline_entries t where t.user_id = f.user_id and t.post_id = p.id)";
+    private static final String PULLED_TABLE = "timeline_pulled_authors";
+    private static final String INSERT_PULLED = "insert into timeline_pulled_authors " +
+            "(author_id, pushed, backfilled_follower_id) select u.id, false, 0 from users u " +
+            "where u.id = :authorId and not exists " +
+            "(select 1 from timeline_pulled_authors a where a.author_id = :authorId)";
+    private static final String DELETE_BEYOND_CAPACITY = "delete from timeline_entries where id in " +
+            "(select ranked.id from (select id, row_number() over (partition by user_id order by post_id desc) " +
+            "as recency from timeline_entries) ranked where ranked.recency > :capacity)";
+
+    private final NativeUpdates nativeUpdates;
+
+    @Override
+    public int fanOut(final Long authorId, final Long postId) {
+        return nativeUpdates.execute(TABLE, FAN_OUT, Map.of("authorId", authorId, "postId", postId));
+    }
+
+    @Override
+    public int backfill(final Long userId, final Long authorId, final int capacity) {
+        return nativeUpdates.execute(TABLE, BACKFILL,
+                Map.of("userId", userId, "authorId", authorId, "capacity", capacity));
+    }
+
+    @Override
+    public int backfillFollowers(final Long authorId, final Collection<Long> followerIds, final int capacity) {
+        return nativeUpdates.execute(TABLE, BACKFILL_FOLLOWERS,
+                Map.of("authorId", authorId, "followerIds", followerIds, "capacity", capacity));
+    }
+
+    @Override
+    public int insertPulled(final Long authorId) {
+        return nativeUpdates.execute(PULLED_TABLE, INSERT_PULLED, Map.of("authorId", authorId));
+    }
+
+    @Override
+    public int deleteBeyondCapacity(final int capacity) {
+        return nativeUpdates.execute(TABLE, DELETE_BEYOND_CAPACITY, Map.of("capacity", capacity));
+    }
+
+}
@@ -0,0 +1,135 @@
+package pl.tscript3r.photogram.post.timeline;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.tscript3r.photogram.infrastructure.configuration.TimelineConfig;
+import pl.tscript3r.photogram.post.Post;
+import pl.tscript3r.photogram.post.PostRepository;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Home timelines are materialized on write - a published post id is pushed to every follower of its author.
+ * Authors with more followers than {@link TimelineConfig#getFanOutFollowerLimit()}, and the reading user
+ * itself, are pulled instead and merged in on read. An author is pulled until the followers drop
+ * {@link TimelineConfig#getFanOutHysteresis()} below the limit, see {@link PulledAuthor}.
+ */
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class TimelineService {
+
+    private final TimelineEntryRepository timelineEntryRepository;
+    private final PostRepository postRepository;
+    private final TimelineConfig timelineConfig;
+
+    public void publish(@NotNull final Post post) {
+        var authorId = post.getUser().getId();
+        if (updatePulled(authorId))
+            return;
+        var followersCount = timelineEntryRepository.fanOut(authorId, post.getId());
+        log.debug("Post id={} pushed to {} timelines", post.getId(), followersCount);
+    }
+
+    /**
+     * Switches the author to pulled above the fan-out limit, and back to pushed below the limit decreased by
+     * the hysteresis - then the posts published while pulled are backfilled to the followers timelines, later
+     * and in batches, see {@link #backfillNextFollowers(Long)}.
+     *
+     * @return true when the posts of the author are pulled on read
+     */
+    private boolean updatePulled(final Long authorId) {
+        var followersCount = timelineEntryRepository.countFollowers(authorId);
+        if (!timelineEntryRepository.isPulled(authorId)) {
+            if (followersCount <= timelineConfig.getFanOutFollowerLimit())
+                return false;
+            // pulled again before its backfill completed
+            if (timelineEntryRepository.insertPulled(authorId) == 0)
+                timelineEntryRepository.markPulled(authorId);
+            log.debug("Author id={} pulled on read, followed by {} users", authorId, followersCount);
+            return true;
+        }
+        if (followersCount >= timelineConfig.getFanOutFollowerLimit() - timelineConfig.getFanOutHysteresis())
+            return true;
+        if (timelineEntryRepository.markPushed(authorId) > 0)
+            log.debug("Author id={} pushed again, followed by {} users", authorId, followersCount);
+        return false;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> getPushedAuthorIds() {
+        return timelineEntryRepository.findPushedAuthorIds();
+    }
+
+    /**
+     * Backfills the timelines of the next batch of the followers of an author pushed again, with the newest posts
+     * of the author up to the capacity. The author is pulled on read until the last batch, the posts published
+     * meanwhile are pushed to all of the followers.
+     *
+     * @return true when followers are left to be backfilled
+     */
+    public boolean backfillNextFollowers(@NotNull final Long authorId) {
+        var pulledAuthor = timelineEntryRepository.findForUpdateByAuthorId(authorId).orElse(null);
+        if (pulledAuthor == null || !pulledAuthor.getPushed())
+            return false;
+        var batchSize = timelineConfig.getBackfillBatchSize();
+        var followerIds = timelineEntryRepository.findFollowerIds(authorId, pulledAuthor.getBackfilledFollowerId(),
+                PageRequest.of(0, batchSize));
+        if (!followerIds.isEmpty()) {
+            var backfilledCount = timelineEntryRepository.backfillFollowers(authorId, followerIds,
+                    timelineConfig.getCapacity());
+            pulledAuthor.setBackfilledFollowerId(followerIds.get(followerIds.size() - 1));
+            log.debug("Author id={} backfilled to {} followers, {} timeline entries", authorId, followerIds.size(),
+                    backfilledCount);
+        }
+        if (followerIds.size() == batchSize)
+            return true;
+        timelineEntryRepository.deletePulled(authorId);
+        return false;
+    }
+
+    public void follow(@NotNull final Long userId, @NotNull final Long authorId) {
+        if (!updatePulled(authorId))
+            timelineEntryRepository.backfill(userId, authorId, timelineConfig.getCapacity());
+    }
+
+    public void unfollow(@NotNull final Long userId, @NotNull final Long authorId) {
+        timelineEntryRepository.deleteByUserIdAndAuthorId(userId, authorId);
+        updatePulled(authorId);
+    }
+
+    public void remove(@NotNull final Long postId) {
+        timelineEntryRepository.deleteByPostId(postId);
+    }
+
+    /**
+     * @param before id of the last post already seen by the client, null for the newest ones
+     * @return up to limit post ids, newest first
+     */
+    public List<Long> getPostIds(@NotNull final Long userId, final Long before, final int limit) {
+        var seek = before == null ? Long.MAX_VALUE : before;
+        var pageable = PageRequest.of(0, limit);
+        var result = new TreeSet<Long>(Comparator.reverseOrder());
+        result.addAll(timelineEntryRepository.findPostIds(userId, seek, pageable));
+        var pulledAuthorIds = new ArrayList<Long>(timelineEntryRepository.findFollowedPulled(userId));
+        pulledAuthorIds.add(userId);
+        result.addAll(postRepository.findIdsByUserIds(pulledAuthorIds, seek, pageable));
+        return result.stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public int trim() {
+        return timelineEntryRepository.deleteBeyondCapacity(timelineConfig.getCapacity());
+    }
+
+}
@@ -0,0 +1,24 @@
+package pl.tscript3r.photogram.post.timeline;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimelineTrimSchedule {
+
+    private static final int EXECUTION_RATE = 3600_000; // 1h
+
+    private final TimelineService timelineService;
+
+    @Scheduled(fixedRate = EXECUTION_RATE)
+    public void trimTimelines() {
+        var removedCount = timelineService.trim();
+        if (removedCount > 0)
+            log.info("Trimmed {} timeline entries beyond the capacity", removedCount);
+    }
+
+}
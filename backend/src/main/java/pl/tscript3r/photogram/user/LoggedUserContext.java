@@ -0,0 +1,90 @@
+package pl.tscript3r.photogram.user;
+
+import org.hibernate.Hibernate;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.persistence.EntityManager;
+import javax.validation.constraints.NotNull;
+import java.util.Optional;
+
+/**
+ * The logged user is resolved once per request, with the roles loaded, and shared by the authorization,
+ * the services and the mappers. Outside of a request every call loads the user.
+ */
+@Component
+public class LoggedUserContext {
+
+    private static final String USER_ATTRIBUTE = LoggedUserContext.class.getName() + ".USER";
+
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+
+    public LoggedUserContext(final UserRepository userRepository, final EntityManager entityManager,
+                             final PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @return the logged user of the security context, empty for the anonymous one
+     */
+    public Optional<User> find() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken)
+            return Optional.empty();
+        return find(authentication.getName());
+    }
+
+    /**
+     * Runs in a transaction of its own or joins the current one, also when called from {@link #find()} - a self
+     * invocation would not pass through a transactional proxy, the roles could not be loaded then.
+     */
+    public Optional<User> find(@NotNull final String username) {
+        return transaction.execute(status -> load(username));
+    }
+
+    private Optional<User> load(final String username) {
+        var attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            var user = getResolved(attributes, username);
+            if (user != null)
+                return Optional.of(user);
+        }
+        var user = userRepository.findByUsername(username);
+        user.ifPresent(found -> {
+            Hibernate.initialize(found.getRoles());
+            if (attributes != null)
+                attributes.setAttribute(USER_ATTRIBUTE, found, RequestAttributes.SCOPE_REQUEST);
+        });
+        return user;
+    }
+
+    /**
+     * The resolved user is returned as long as it is attached - a request may span more than one persistence
+     * context, then the user is taken again by the id, from the second level cache.
+     */
+    private User getResolved(final RequestAttributes attributes, final String username) {
+        var user = (User) attributes.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (user == null || !username.equals(user.getUsername()))
+            return null;
+        if (entityManager.contains(user))
+            return user;
+        var attached = entityManager.find(User.class, user.getId());
+        if (attached == null) {
+            attributes.removeAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            return null;
+        }
+        Hibernate.initialize(attached.getRoles());
+        attributes.setAttribute(USER_ATTRIBUTE, attached, RequestAttributes.SCOPE_REQUEST);
+        return attached;
+    }
+
+}
@@ -1,11 +1,21 @@
 package pl.tscript3r.photogram.user;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.springframework.lang.Nullable;
 import pl.tscript3r.photogram.infrastructure.AbstractEntity;
 import pl.tscript3r.photogram.post.Post;
+import pl.tscript3r.photogram.post.PostRepository;
+import pl.tscript3r.photogram.post.image.ImageFormat;
 import pl.tscript3r.photogram.user.email.EmailConfirmation;
 import pl.tscript3r.photogram.user.role.Role;
 
@@ -21,6 +31,8 @@ import java.util.Set;
 @Entity
 @Table(name = "users")
 @Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-username")
 public class User extends AbstractEntity {
 
     @Setter
@@ -28,6 +40,7 @@ public class User extends AbstractEntity {
     private String firstname;
 
     @Setter
+    @NaturalId(mutable = true)
     @Column(nullable = false, unique = true)
     private String username;
 
@@ -39,15 +52,22 @@ public class User extends AbstractEntity {
     @Column(unique = true, nullable = false)
     private String email;
 
-    @Setter
-    @OneToOne(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
-    private EmailConfirmation emailConfirmation;
+    /**
+     * Holds at most one confirmation, mapped as a collection because the inverse side of a one to one is
+     * queried on every load of the user, while a collection is served from the second level cache.
+     */
+    @Getter(AccessLevel.NONE)
+    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SUBSELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users-confirmations")
+    private List<EmailConfirmation> emailConfirmations = new ArrayList<>();
 
     @Setter
     @Column(columnDefinition = "text")
     private String bio;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users-roles")
     @JoinTable(name = "users_roles",
             joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"),
             inverseJoinColumns = @JoinColumn(name = "role_id", referencedColumnName = "id"))
@@ -57,6 +77,9 @@ public class User extends AbstractEntity {
     @JoinColumn(name = "user_id")
     private List<Post> posts = new ArrayList<>();
 
+    /**
+     * Mapped for the queries only, reactions are written row by row - see {@link PostRepository#insertLike}
+     */
     @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinTable(name = "users_likes",
             joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"),
@@ -69,15 +92,24 @@ public class User extends AbstractEntity {
             inverseJoinColumns = @JoinColumn(name = "post_id", referencedColumnName = "id"))
     private Set<Post> dislikedPost = new HashSet<>();
 
-    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @JoinTable(name = "users_follows",
+            joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"),
+            inverseJoinColumns = @JoinColumn(name = "follows_id", referencedColumnName = "id"),
+            indexes = @Index(name = "users_follows_follows_id_idx", columnList = "follows_id"))
     private Set<User> follows = new HashSet<>();
 
-    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @ManyToMany(mappedBy = "follows", fetch = FetchType.LAZY)
     private Set<User> followed = new HashSet<>();
 
     @CreationTimestamp
     private LocalDateTime creationDate;
 
+    @Setter
+    @Nullable
+    @Enumerated(EnumType.STRING)
+    private ImageFormat avatarFormat;
+
     User() {
     }
 
@@ -97,42 +129,30 @@ public class User extends AbstractEntity {
         this.username = username;
         this.password = password;
         this.email = email;
-        this.emailConfirmation = emailConfirmation;
+        setEmailConfirmation(emailConfirmation);
         this.bio = bio;
         this.roles = roles;
         this.posts = posts;
         this.creationDate = creationDate;
     }
 
-    public void addRole(final Role role) {
-        roles.add(role);
-    }
-
-    public Boolean addLikedPost(final Post post) {
-        return likedPost.add(post);
+    @Nullable
+    public EmailConfirmation getEmailConfirmation() {
+        return emailConfirmations.isEmpty() ? null : emailConfirmations.get(0);
     }
 
-    public Boolean removeLikedPost(final Post post) {
-        return likedPost.remove(post);
+    public void setEmailConfirmation(@Nullable final EmailConfirmation emailConfirmation) {
+        emailConfirmations.clear();
+        if (emailConfirmation != null)
+            emailConfirmations.add(emailConfirmation);
     }
 
-    public Boolean addDislikedPost(final Post post) {
-        return dislikedPost.add(post);
-    }
-
-    public Boolean removeDislikedPost(final Post post) {
-        return dislikedPost.remove(post);
-    }
-
-    public Boolean hasLikedPost(final Post post) {
-        return likedPost.contains(post);
-    }
-
-    public Boolean hasDislikedPost(final Post post) {
-        return dislikedPost.contains(post);
+    public void addRole(final Role role) {
+        roles.add(role);
     }
 
     public Boolean isEmailConfirmed() {
+        var emailConfirmation = getEmailConfirmation();
         if (emailConfirmation == null) {
             log.error("Email confirmation from user id={} is null", getId());
             return false;
@@ -5,6 +5,7 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,7 +21,7 @@ import java.util.Set;
 @Service
 @Transactional
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserService userService;
 
@@ -42,4 +43,15 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 authorities);
     }
 
+    /**
+     * Called after a successful login with a password hashed below the current strength.
+     */
+    @Override
+    public UserDetails updatePassword(final UserDetails userDetails, final String newPassword) {
+        userService.getByUsername(userDetails.getUsername()).setPassword(newPassword);
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package pl.tscript3r.photogram.user;
+
+import java.util.Optional;
+
+public interface UserNaturalIdRepository {
+
+    /**
+     * Resolved through the natural id cache, a cached username does not reach the database.
+     */
+    Optional<User> findByUsername(String username);
+
+}
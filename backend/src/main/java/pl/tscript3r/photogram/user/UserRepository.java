@@ -3,12 +3,21 @@ package pl.tscript3r.photogram.user;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import pl.tscript3r.photogram.user.api.v1.UserDto;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository {
 
-    Optional<User> findByUsername(String username);
+    /**
+     * Selects only the columns of the {@link UserDto}, the users are not loaded to the persistence context.
+     */
+    String SELECT_USER_DTO = "select new pl.tscript3r.photogram.user.api.v1.UserDto(u.id, u.firstname, " +
+            "u.username, u.email, coalesce(c.confirmed, false), u.bio, u.creationDate) from User u " +
+            "left join u.emailConfirmations c ";
 
     Optional<User> findByEmail(String email);
 
@@ -16,10 +25,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Integer countByFollows(User user);
 
-    Slice<User> findByFollowed(User user, Pageable pageable);
+    @Query(SELECT_USER_DTO + "join u.followed f where f.id = :userId")
+    Slice<UserDto> findDtosByFollowed(Long userId, Pageable pageable);
 
-    Slice<User> findByFollows(User user, Pageable pageable);
+    @Query(SELECT_USER_DTO + "join u.follows f where f.id = :userId")
+    Slice<UserDto> findDtosByFollows(Long userId, Pageable pageable);
 
-    Slice<User> findByUsernameContainingIgnoreCase(String username, Pageable pageable);
+    @Query(SELECT_USER_DTO + "where upper(u.username) like upper(:#{'%' + escape(#username) + '%'}) " +
+            "escape :#{escapeCharacter()}")
+    Slice<UserDto> findDtosByUsernameContaining(String username, Pageable pageable);
+
+    @Query("select u.id as userId, r.name as name from User u join u.roles r where u.id in :userIds")
+    List<UserRole> findRolesByUserIds(Collection<Long> userIds);
+
+    interface UserRole {
+
+        Long getUserId();
+
+        String getName();
+
+    }
 
 }
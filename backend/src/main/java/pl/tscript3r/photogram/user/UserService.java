@@ -2,27 +2,33 @@ package pl.tscript3r.photogram.user;
 
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 import pl.tscript3r.photogram.infrastructure.exception.BadRequestPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.ForbiddenPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.IgnoredPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
 import pl.tscript3r.photogram.infrastructure.mapper.MapperService;
 import pl.tscript3r.photogram.post.image.ImageService;
+import pl.tscript3r.photogram.post.timeline.TimelineService;
+import pl.tscript3r.photogram.user.api.v1.RoleDto;
 import pl.tscript3r.photogram.user.api.v1.UserDto;
 import pl.tscript3r.photogram.user.email.EmailConfirmation;
 import pl.tscript3r.photogram.user.email.EmailService;
 import pl.tscript3r.photogram.user.role.RoleService;
 
 import javax.validation.constraints.NotNull;
+import java.io.InputStream;
 import java.security.Principal;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -35,7 +41,9 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final ImageService imageService;
     private final EmailService emailService;
+    private final TimelineService timelineService;
     private final MapperService mapperService;
+    private final LoggedUserContext loggedUserContext;
 
     public User save(final User user, final Boolean passwordEncode, final Boolean addDefaultRole) {
         if (addDefaultRole)
@@ -97,7 +105,7 @@ public class UserService {
         if (passwordEncode)
             user.setPassword(passwordEncoder.encode(user.getPassword()));
         if (emailConfirmation)
-            emailService.createEmailConfirmation(user, true);
+            user.setEmailConfirmation(emailService.createEmailConfirmation(user, true));
         return userRepository.save(user);
     }
 
@@ -108,7 +116,8 @@ public class UserService {
     public User getByPrincipal(final Principal principal) {
         if (principal == null)
             throw new ForbiddenPhotogramException("Login in order to access this resource");
-        return getByUsername(principal.getName());
+        return loggedUserContext.find(principal.getName()).orElseThrow(() ->
+                new NotFoundPhotogramException(String.format("Username=%s not found", principal.getName())));
     }
 
     public User getById(final Long id) {
@@ -138,9 +147,23 @@ public class UserService {
         return mapperService.map(getByEmail(email), UserDto.class);
     }
 
+    @Transactional(readOnly = true)
     public Slice<UserDto> getContaining(@NotNull final String username, @NotNull final Pageable pageable) {
-        return userRepository.findByUsernameContainingIgnoreCase(username, pageable)
-                .map(user -> mapperService.map(user, UserDto.class));
+        return setRoles(userRepository.findDtosByUsernameContaining(username, pageable));
+    }
+
+    /**
+     * Roles of the whole page loaded with a single query.
+     */
+    private Slice<UserDto> setRoles(final Slice<UserDto> users) {
+        if (!users.hasContent())
+            return users;
+        var roles = new HashMap<Long, Set<RoleDto>>();
+        for (var role : userRepository.findRolesByUserIds(users.map(UserDto::getId).toList()))
+            roles.computeIfAbsent(role.getUserId(), userId -> new HashSet<>()).add(new RoleDto(role.getName()));
+        for (UserDto userDto : users)
+            userDto.setRoles(roles.getOrDefault(userDto.getId(), new HashSet<>()));
+        return users;
     }
 
     public void delete(final Principal principal, @NotNull final Long id) {
@@ -165,31 +188,32 @@ public class UserService {
         emailService.sendNewPassword(user, newPassword);
     }
 
-    public ResponseEntity<byte[]> getAvatar(@NotNull final Long id) {
-        getById(id); // <-- checking if the given user id is existing
-        return imageService.getAvatar(id);
+    public ResponseEntity<Resource> getAvatar(@NotNull final Long id) {
+        var user = getById(id);
+        return imageService.getAvatar(id, user.getAvatarFormat());
     }
 
     public void saveAvatar(final Principal principal, @NotNull final Long id,
-                           @NotNull final MultipartFile multipartFile) {
+                           @NotNull final InputStream content) {
         authorizationService.requireLogin(principal)
                 .accessValidation(principal, id);
-        getById(id); // <-- checking if the given user id is existing
-        imageService.saveAvatar(id, multipartFile);
+        var user = getById(id);
+        user.setAvatarFormat(imageService.saveAvatar(id, content));
+        userRepository.save(user);
     }
 
     public void confirmEmail(@NotNull final String token) {
         emailService.setEmailConfirmed(token);
     }
 
+    @Transactional(readOnly = true)
     public Slice<UserDto> getFollowers(@NotNull final Long id, @NotNull final Pageable pageable) {
-        return userRepository.findByFollowed(getById(id), pageable)
-                .map(user -> mapperService.map(user, UserDto.class));
+        return setRoles(userRepository.findDtosByFollowed(getById(id).getId(), pageable));
     }
 
+    @Transactional(readOnly = true)
     public Slice<UserDto> getFollows(@NotNull final Long id, @NotNull final Pageable pageable) {
-        return userRepository.findByFollows(getById(id), pageable)
-                .map(user -> mapperService.map(user, UserDto.class));
+        return setRoles(userRepository.findDtosByFollows(getById(id).getId(), pageable));
     }
 
     public void follow(final Principal principal, @NotNull final Long followUserId) {
@@ -200,6 +224,7 @@ public class UserService {
             user.follow(followUser);
             userRepository.save(user);
             userRepository.save(followUser);
+            timelineService.follow(user.getId(), followUserId);
         } else
             throw new IgnoredPhotogramException(String.format("Already following user id=%d, ignored", followUserId));
     }
@@ -212,6 +237,7 @@ public class UserService {
             unfollowUser.removeFollowedBy(user);
             userRepository.save(user);
             userRepository.save(unfollowUser);
+            timelineService.unfollow(user.getId(), unfollowUserId);
         } else
             throw new IgnoredPhotogramException(String.format("Did not follow user id=%d, ignored", unfollowUserId));
     }
@@ -1,11 +1,13 @@
 package pl.tscript3r.photogram.user.api.v1;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
@@ -13,8 +15,11 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import pl.tscript3r.photogram.infrastructure.exception.BadRequestPhotogramException;
 import pl.tscript3r.photogram.user.UserService;
+import pl.tscript3r.photogram.user.token.TokenRevocationService;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
 import java.util.List;
 
@@ -33,9 +38,11 @@ public class UserController {
     public static final String FOLLOWS_MAPPING = "/follows";
     public static final String FOLLOW_MAPPING = "/follow";
     public static final String UNFOLLOW_MAPPING = "/unfollow";
+    public static final String LOGOUT_MAPPING = "/logout";
     public static final String TOKEN_PARAM = "token";
     private static final String CONTAINING_MAPPING = "containing";
     private final UserService userService;
+    private final TokenRevocationService tokenRevocationService;
 
     @GetMapping
     public List<UserDto> getAll() {
@@ -104,14 +111,26 @@ public class UserController {
     }
 
     @GetMapping(ID_VARIABLE_MAPPING + AVATAR_MAPPING)
-    public ResponseEntity<byte[]> getAvatar(@PathVariable(ID_VARIABLE) Long id) {
+    public ResponseEntity<Resource> getAvatar(@PathVariable(ID_VARIABLE) Long id) {
         return userService.getAvatar(id);
     }
 
-    @PostMapping(ID_VARIABLE_MAPPING + AVATAR_MAPPING)
+    @PostMapping(value = ID_VARIABLE_MAPPING + AVATAR_MAPPING, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public void uploadAvatar(Principal principal, @PathVariable(ID_VARIABLE) Long id,
-                             @RequestParam("image") MultipartFile imageFile) {
-        userService.saveAvatar(principal, id, imageFile);
+                             @RequestParam("image") MultipartFile imageFile) throws IOException {
+        userService.saveAvatar(principal, id, imageFile.getInputStream());
+    }
+
+    @PostMapping(value = ID_VARIABLE_MAPPING + AVATAR_MAPPING,
+            consumes = {IMAGE_CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public void uploadAvatar(Principal principal, @PathVariable(ID_VARIABLE) Long id, InputStream content) {
+        userService.saveAvatar(principal, id, content);
+    }
+
+    @PostMapping(LOGOUT_MAPPING)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void logout(Principal principal) {
+        tokenRevocationService.revoke(principal);
     }
 
     @PutMapping(EMAIL_CONFIRMATION_MAPPING)
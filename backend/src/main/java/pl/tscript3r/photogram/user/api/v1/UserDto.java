@@ -54,4 +54,18 @@ public class UserDto implements Dto {
     @Nullable
     private Set<RoleDto> roles = new HashSet<>();
 
+    /**
+     * Read model of the user list queries, the password is not selected and the roles are set by the caller.
+     */
+    public UserDto(Long id, String firstname, String username, String email, Boolean emailConfirmed, String bio,
+                   LocalDateTime creationDate) {
+        this.id = id;
+        this.firstname = firstname;
+        this.username = username;
+        this.email = email;
+        this.emailConfirmed = emailConfirmed;
+        this.bio = bio;
+        this.creationDate = creationDate;
+    }
+
 }
@@ -1,26 +1,21 @@
 package pl.tscript3r.photogram.user.api.v1;
 
-import lombok.RequiredArgsConstructor;
-import org.springframework.stereotype.Component;
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.Mapper;
 import pl.tscript3r.photogram.infrastructure.mapper.AbstractMapper;
 import pl.tscript3r.photogram.infrastructure.mapper.CollectionMapper;
 import pl.tscript3r.photogram.user.User;
 import pl.tscript3r.photogram.user.role.RoleMapper;
 
-import java.util.HashSet;
+@Mapper(componentModel = "spring", uses = RoleMapper.class, injectionStrategy = InjectionStrategy.CONSTRUCTOR)
+public abstract class UserMapper extends AbstractMapper<User, UserDto> implements CollectionMapper {
 
-@Component
-@RequiredArgsConstructor
-public class UserMapper extends AbstractMapper<User, UserDto> implements CollectionMapper {
-
-    private final RoleMapper roleMapper;
+    protected UserMapper() {
+        super(User.class, UserDto.class);
+    }
 
     @Override
-    protected UserDto firstToSecond(final User source) {
-        return new UserDto(source.getId(), source.getFirstname(), source.getUsername(), source.getPassword(), source.getEmail(),
-                source.isEmailConfirmed(), source.getBio(), source.getCreationDate(),
-                new HashSet<>(roleMapper.map(source.getRoles(), RoleDto.class)));
-    }
+    public abstract UserDto firstToSecond(final User source);
 
     @Override
     protected User secondToFirst(final UserDto source) {
@@ -2,6 +2,8 @@ package pl.tscript3r.photogram.user.email;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import pl.tscript3r.photogram.infrastructure.AbstractEntity;
 import pl.tscript3r.photogram.user.User;
@@ -17,6 +19,7 @@ import java.util.UUID;
 @Entity
 @Table(name = "confirmations")
 @Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "confirmations")
 public class EmailConfirmation extends AbstractEntity {
 
     @OneToOne
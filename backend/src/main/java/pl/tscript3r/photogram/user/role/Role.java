@@ -2,6 +2,8 @@ package pl.tscript3r.photogram.user.role;
 
 
 import lombok.Getter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import pl.tscript3r.photogram.infrastructure.AbstractEntity;
 import pl.tscript3r.photogram.infrastructure.mapper.DataStructure;
 
@@ -14,6 +16,7 @@ import javax.persistence.Table;
 @Entity
 @Table(name = "roles")
 @Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "roles")
 public class Role extends AbstractEntity implements DataStructure {
 
     @Column(nullable = false, unique = true)
@@ -1,18 +1,20 @@
 package pl.tscript3r.photogram.user.role;
 
-import org.springframework.stereotype.Component;
+import org.mapstruct.Mapper;
 import pl.tscript3r.photogram.infrastructure.mapper.AbstractMapper;
 import pl.tscript3r.photogram.infrastructure.mapper.CollectionMapper;
 import pl.tscript3r.photogram.user.api.v1.RoleDto;
 
-@Component
-public class RoleMapper extends AbstractMapper<Role, RoleDto> implements CollectionMapper {
+@Mapper(componentModel = "spring")
+public abstract class RoleMapper extends AbstractMapper<Role, RoleDto> implements CollectionMapper {
 
-    @Override
-    public RoleDto firstToSecond(final Role source) {
-        return new RoleDto(source.getName());
+    protected RoleMapper() {
+        super(Role.class, RoleDto.class);
     }
 
+    @Override
+    public abstract RoleDto firstToSecond(final Role source);
+
     @Override
     public Role secondToFirst(final RoleDto source) {
         return new Role(null, source.getName());
@@ -0,0 +1,21 @@
+package pl.tscript3r.photogram.user.token;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Authentication details of a request authorized with a token carrying an id.
+ */
+@Getter
+public class RevocableToken {
+
+    private final String id;
+    private final Instant expiresAt;
+
+    public RevocableToken(final String id, final Instant expiresAt) {
+        this.id = id;
+        this.expiresAt = expiresAt;
+    }
+
+}
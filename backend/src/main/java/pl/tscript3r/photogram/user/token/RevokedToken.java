@@ -0,0 +1,33 @@
+package pl.tscript3r.photogram.user.token;
+
+import lombok.Getter;
+import pl.tscript3r.photogram.infrastructure.AbstractEntity;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * Id of a revoked, not yet expired token. Kept only until the token expires, an expired token is rejected anyway.
+ */
+@Getter
+@Entity
+@Table(name = "revoked_tokens",
+        uniqueConstraints = @UniqueConstraint(name = "revoked_tokens_token_id_uk", columnNames = "token_id"),
+        indexes = @Index(name = "revoked_tokens_expires_at_idx", columnList = "expires_at"))
+public class RevokedToken extends AbstractEntity {
+
+    @Column(name = "token_id", nullable = false, updatable = false)
+    private String tokenId;
+
+    @Column(name = "expires_at", nullable = false, updatable = false)
+    private Instant expiresAt;
+
+    RevokedToken() {
+    }
+
+    public RevokedToken(final String tokenId, final Instant expiresAt) {
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+    }
+
+}
@@ -0,0 +1,21 @@
+package pl.tscript3r.photogram.user.token;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+public interface RevokedTokenRepository extends CrudRepository<RevokedToken, Long> {
+
+    boolean existsByTokenId(String tokenId);
+
+    @Query("select r.tokenId from RevokedToken r")
+    Stream<String> streamTokenIds();
+
+    @Modifying
+    @Query("delete from RevokedToken r where r.expiresAt < :now")
+    int deleteExpired(Instant now);
+
+}
@@ -0,0 +1,32 @@
+package pl.tscript3r.photogram.user.token;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RevokedTokenSchedule {
+
+    private static final int EXECUTION_RATE = 3600_000; // 1h
+
+    private final TokenRevocationService tokenRevocationService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildFilter() {
+        tokenRevocationService.rebuild();
+    }
+
+    @Scheduled(fixedRate = EXECUTION_RATE, initialDelay = EXECUTION_RATE)
+    public void purgeExpired() {
+        var removedCount = tokenRevocationService.purgeExpired();
+        if (removedCount > 0)
+            log.info("Purged {} expired revoked tokens", removedCount);
+        tokenRevocationService.rebuild();
+    }
+
+}
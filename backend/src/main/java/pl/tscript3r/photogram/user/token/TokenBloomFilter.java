@@ -0,0 +1,71 @@
+package pl.tscript3r.photogram.user.token;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of token ids - sized for the expected insertions and the false positive probability, the probes
+ * are derived from two 64 bit hashes of the id. Never answers "not contained" for a put id. Thread safe.
+ */
+public class TokenBloomFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public TokenBloomFilter(final long expectedInsertions, final double falsePositiveProbability) {
+        var bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability)
+                / (Math.log(2) * Math.log(2)));
+        words = new AtomicLongArray(Math.toIntExact(Math.max(1, (bits + 63) / 64)));
+        bitCount = words.length() * 64L;
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void put(final String value) {
+        var hash = hash(value);
+        var step = mix(hash) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            var bit = Math.floorMod(hash + i * step, bitCount);
+            var mask = 1L << bit;
+            words.getAndAccumulate((int) (bit >>> 6), mask, (word, added) -> word | added);
+        }
+    }
+
+    public boolean mightContain(final String value) {
+        var hash = hash(value);
+        var step = mix(hash) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            var bit = Math.floorMod(hash + i * step, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    int getHashCount() {
+        return hashCount;
+    }
+
+    private static long hash(final String value) {
+        var hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    // murmur3 64 bit finalizer
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+}
@@ -0,0 +1,103 @@
+package pl.tscript3r.photogram.user.token;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.tscript3r.photogram.infrastructure.exception.ForbiddenPhotogramException;
+
+import javax.validation.constraints.NotNull;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Revoked token ids are kept in the revoked_tokens table until the tokens expire, with a Bloom filter of them in
+ * front - a not revoked token is answered by a few bit probes, only a filter hit queries the table. The filter
+ * is rebuilt from the table periodically, sized for the current count. Until first built the table is queried.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    private static final long MIN_EXPECTED_INSERTIONS = 1024;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    private volatile TokenBloomFilter filter = newFilter(0);
+    private volatile boolean ready;
+
+    // ids revoked while rebuilding, put into the rebuilt filter
+    private List<String> pendingIds;
+
+    public boolean isRevoked(@NotNull final String tokenId) {
+        if (!ready)
+            return revokedTokenRepository.existsByTokenId(tokenId);
+        return filter.mightContain(tokenId) && revokedTokenRepository.existsByTokenId(tokenId);
+    }
+
+    public void revoke(final Principal principal) {
+        if (!(principal instanceof Authentication)
+                || !(((Authentication) principal).getDetails() instanceof RevocableToken))
+            throw new ForbiddenPhotogramException("Forbidden");
+        var token = (RevocableToken) ((Authentication) principal).getDetails();
+        revoke(token.getId(), token.getExpiresAt());
+    }
+
+    /**
+     * Saved before put into the filter, so a rebuild started later always reads it from the table.
+     */
+    public void revoke(@NotNull final String tokenId, @NotNull final Instant expiresAt) {
+        if (!revokedTokenRepository.existsByTokenId(tokenId))
+            try {
+                revokedTokenRepository.save(new RevokedToken(tokenId, expiresAt));
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Token id={} already revoked", tokenId);
+            }
+        synchronized (this) {
+            if (pendingIds != null)
+                pendingIds.add(tokenId);
+        }
+        filter.put(tokenId);
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        synchronized (this) {
+            pendingIds = new ArrayList<>();
+        }
+        try {
+            var count = revokedTokenRepository.count();
+            var rebuilt = newFilter(count);
+            try (var tokenIds = revokedTokenRepository.streamTokenIds()) {
+                tokenIds.forEach(rebuilt::put);
+            }
+            synchronized (this) {
+                pendingIds.forEach(rebuilt::put);
+                filter = rebuilt;
+                ready = true;
+            }
+            log.debug("Revoked tokens filter rebuilt from {} ids", count);
+        } finally {
+            synchronized (this) {
+                pendingIds = null;
+            }
+        }
+    }
+
+    @Transactional
+    public int purgeExpired() {
+        return revokedTokenRepository.deleteExpired(Instant.now());
+    }
+
+    private static TokenBloomFilter newFilter(final long count) {
+        // twice the count, room for the ids revoked until the next rebuild
+        return new TokenBloomFilter(Math.max(MIN_EXPECTED_INSERTIONS, count * 2), FALSE_POSITIVE_PROBABILITY);
+    }
+
+}
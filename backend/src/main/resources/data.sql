@@ -37,15 +37,15 @@ VALUES
 
 
 INSERT INTO `POSTS`
-(`caption`, `likes`, `dislikes`, `location`, `creation_date`, `user_id`, `valid`, `visibility`)
+(`caption`, `likes`, `dislikes`, `comment_count`, `location`, `creation_date`, `user_id`, `valid`, `visibility`)
 VALUES
-('Found at photograms.org', 666, 1, 'Wrocław', CURRENT_TIMESTAMP , 1, true, 'PUBLIC'),
-('Found at photograms.org', 123, 2, 'Warszawa', CURRENT_TIMESTAMP , 1, true, 'PRIVATE'),
-('Found at photograms.org', 1, 3, 'Olesno', CURRENT_TIMESTAMP , 1, true, 'FOLLOWERS'),
-('Found at photograms.org', 13, 4, 'Gdańsk', CURRENT_TIMESTAMP , 2, true, 'PUBLIC'),
-('Found at photograms.org', 12, 5, 'Kluczbork', CURRENT_TIMESTAMP , 2, true, 'PUBLIC'),
-('Found at photograms.org', 4, 6, 'Opole', CURRENT_TIMESTAMP , 3, true, 'PUBLIC'),
-('Just an birth', 11, 7, 'Wrocław', '2019-06-24 13:42:09.446186', 3, false, 'PUBLIC');
+('Found at photograms.org', 666, 1, 1, 'Wrocław', CURRENT_TIMESTAMP , 1, true, 'PUBLIC'),
+('Found at photograms.org', 123, 2, 0, 'Warszawa', CURRENT_TIMESTAMP , 1, true, 'PRIVATE'),
+('Found at photograms.org', 1, 3, 0, 'Olesno', CURRENT_TIMESTAMP , 1, true, 'FOLLOWERS'),
+('Found at photograms.org', 13, 4, 0, 'Gdańsk', CURRENT_TIMESTAMP , 2, true, 'PUBLIC'),
+('Found at photograms.org', 12, 5, 0, 'Kluczbork', CURRENT_TIMESTAMP , 2, true, 'PUBLIC'),
+('Found at photograms.org', 4, 6, 0, 'Opole', CURRENT_TIMESTAMP , 3, true, 'PUBLIC'),
+('Just an birth', 11, 7, 0, 'Wrocław', '2019-06-24 13:42:09.446186', 3, false, 'PUBLIC');
 
 INSERT INTO `IMAGES`
 (`image_id`, `extension`)
@@ -63,4 +63,7 @@ VALUES
 (1, 1), (2, 2), (3, 3), (4, 4), (5, 5), (6, 6);
 
 INSERT INTO `COMMENTS` (`content`, `creation_date`, `post_id`, `user_id`)
-VALUES ('First comment ever', CURRENT_TIMESTAMP , 1, 1);
\ No newline at end of file
+VALUES ('First comment ever', CURRENT_TIMESTAMP , 1, 1);
+
+INSERT INTO `REACTION_SEQUENCE` (`sequence_number`)
+VALUES (0);
\ No newline at end of file
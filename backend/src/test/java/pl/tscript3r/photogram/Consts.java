@@ -1,5 +1,7 @@
 package pl.tscript3r.photogram;
 
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -32,8 +34,13 @@ public class Consts {
     public static final String IMAGE_EXTENSION = "jpg";
     public static final Image IMAGE = new Image(IMAGE_ID, IMAGE_EXTENSION);
     public static final ImageDto IMAGE_DTO = new ImageDto(IMAGE_ID, IMAGE_EXTENSION);
-    public static final MockMultipartFile IMAGE_MOCK_MULTIPART_FILE = new MockMultipartFile("image", "image.jpg",
-            MediaType.IMAGE_JPEG_VALUE, "image bytes".getBytes());
+    // 1x1 transparent GIF
+    public static final byte[] IMAGE_BYTES = {0x47, 0x49, 0x46, 0x38, 0x39, 0x61, 0x01, 0x00, 0x01, 0x00, (byte) 0x80,
+            0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x21, (byte) 0xF9, 0x04, 0x01, 0x00,
+            0x00, 0x00, 0x00, 0x2C, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x01, 0x00, 0x00, 0x02, 0x02, 0x44, 0x01, 0x00,
+            0x3B};
+    public static final MockMultipartFile IMAGE_MOCK_MULTIPART_FILE = new MockMultipartFile("image", "image.gif",
+            MediaType.IMAGE_GIF_VALUE, IMAGE_BYTES);
     public static final String EMAIL_HOST = "smtp.mail.test";
     public static final String EMAIL_PASSWORD = "password";
     public static final String EMAIL_USERNAME = "username";
@@ -61,7 +68,9 @@ public class Consts {
     public static final Integer SECOND_LIKES = 2;
 
     public static final Long THIRD_ID = 3L;
-    public static final ResponseEntity<byte[]> IMAGE_RESPONSE_ENTITY = new ResponseEntity<>(null, new HttpHeaders(), HttpStatus.OK);
+    public static final ResponseEntity<Resource> IMAGE_RESPONSE_ENTITY = new ResponseEntity<>(null, new HttpHeaders(), HttpStatus.OK);
+    public static final Resource IMAGE_RESOURCE = new ByteArrayResource("image bytes".getBytes());
+    public static final String IMAGE_ETAG = "\"b-1\"";
     public static final String SECOND_FIRSTNAME = "secondFirstname";
 
     private Consts() {
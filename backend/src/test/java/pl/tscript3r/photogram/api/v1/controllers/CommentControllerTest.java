@@ -20,12 +20,14 @@ import pl.tscript3r.photogram.post.comment.CommentService;
 import pl.tscript3r.photogram.post.comment.api.v1.CommentController;
 import pl.tscript3r.photogram.post.comment.api.v1.CommentDto;
 import pl.tscript3r.photogram.post.comment.api.v1.CommentDtoList;
+import pl.tscript3r.photogram.user.token.TokenRevocationService;
 
 import java.io.IOException;
 import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static pl.tscript3r.photogram.api.v1.dtos.CommentDtoTest.getDefaultCommentDto;
@@ -47,6 +49,9 @@ class CommentControllerTest {
     @MockBean
     CommentService commentService;
 
+    @MockBean
+    TokenRevocationService tokenRevocationService;
+
     @BeforeEach
     void setUp() {
     }
@@ -55,7 +60,7 @@ class CommentControllerTest {
     @DisplayName("Get latest with default pageable")
     void getLatestByDefault() throws Exception {
         var inputCommentDtos = getInputCommentDtoSlice();
-        when(commentService.getLatest(any(), any())).thenReturn(inputCommentDtos);
+        when(commentService.getLatest(any(), any(), any())).thenReturn(inputCommentDtos);
         var outputCommentDtos = getOutputCommentDtos(mockMvc.perform(MockMvcRequestBuilders.get(
                 COMMENT_MAPPING.replace(ID_POST_VARIABLE_MAPPING, "1") + "/1")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -63,7 +68,7 @@ class CommentControllerTest {
                 .andExpect(status().isOk())
                 .andReturn());
         assertEquals(inputCommentDtos.getContent().size(), outputCommentDtos.getContent().size());
-        verify(commentService, times(1)).getLatest(any(), any());
+        verify(commentService, times(1)).getLatest(any(), any(), any());
     }
 
     private Slice<CommentDto> getInputCommentDtoSlice() {
@@ -80,7 +85,7 @@ class CommentControllerTest {
     @DisplayName("Get latest with custom pageable")
     void getLatestByCustomPageable() throws Exception {
         var inputCommentDtos = getInputCommentDtoSlice();
-        when(commentService.getLatest(any(), any())).thenReturn(inputCommentDtos);
+        when(commentService.getLatest(any(), any(), any())).thenReturn(inputCommentDtos);
         var outputCommentDtos = getOutputCommentDtos(mockMvc.perform(MockMvcRequestBuilders.get(
                 COMMENT_MAPPING.replace(ID_POST_VARIABLE_MAPPING, "1") + "/1" + "?page=1&size=2&sort=id,desc")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -88,7 +93,30 @@ class CommentControllerTest {
                 .andExpect(status().isOk())
                 .andReturn());
         assertEquals(inputCommentDtos.getContent().size(), outputCommentDtos.getContent().size());
-        verify(commentService, times(1)).getLatest(any(), any());
+        verify(commentService, times(1)).getLatest(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Get oldest after cursor")
+    void getOldestAfterCursor() throws Exception {
+        var inputCommentDtos = getInputCommentDtoSlice();
+        when(commentService.getOldest(any(), any(), any())).thenReturn(inputCommentDtos);
+        mockMvc.perform(MockMvcRequestBuilders.get(
+                COMMENT_MAPPING.replace(ID_POST_VARIABLE_MAPPING, "1") + "/1?after=2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        verify(commentService, times(1)).getOldest(eq(1L), eq(2L), any());
+        verify(commentService, never()).getLatest(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Get with both cursors")
+    void getWithBothCursors() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(
+                COMMENT_MAPPING.replace(ID_POST_VARIABLE_MAPPING, "1") + "/1?before=5&after=2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(commentService);
     }
 
     @Test
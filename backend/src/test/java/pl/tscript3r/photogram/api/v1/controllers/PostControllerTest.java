@@ -9,7 +9,10 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,6 +27,7 @@ import pl.tscript3r.photogram.post.Reactions;
 import pl.tscript3r.photogram.post.api.v1.PostController;
 import pl.tscript3r.photogram.post.api.v1.PostDto;
 import pl.tscript3r.photogram.post.api.v1.PostDtoList;
+import pl.tscript3r.photogram.user.token.TokenRevocationService;
 
 import java.io.IOException;
 import java.security.Principal;
@@ -53,18 +57,21 @@ class PostControllerTest {
     @MockBean
     PostService postService;
 
+    @MockBean
+    TokenRevocationService tokenRevocationService;
+
     @Test
     @DisplayName("Get latest without parameters")
     void getLatestWithoutParameters() throws Exception {
         var inputPostDtos = getInputPostDtoSlice();
-        when(postService.getLatest(any())).thenReturn(inputPostDtos);
+        when(postService.getLatest(nullable(Long.class), any())).thenReturn(inputPostDtos);
         var outputPostDtos = getOutputPostDtos(mockMvc.perform(MockMvcRequestBuilders.get(POST_MAPPING)
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andReturn());
         assertEquals(inputPostDtos.getContent().size(), outputPostDtos.getContent().size());
-        verify(postService, times(1)).getLatest(any());
+        verify(postService, times(1)).getLatest(nullable(Long.class), any());
     }
 
     private Slice<PostDto> getInputPostDtoSlice() {
@@ -81,7 +88,7 @@ class PostControllerTest {
     @DisplayName("Get latest with username param")
     void getLatestWithUserParam() throws Exception {
         var inputPostDtos = getInputPostDtoSlice();
-        when(postService.getLatest(anyString(), any())).thenReturn(inputPostDtos);
+        when(postService.getLatest(anyString(), nullable(Long.class), any())).thenReturn(inputPostDtos);
         var outputPostDtos = getOutputPostDtos(mockMvc
                 .perform(MockMvcRequestBuilders.get(POST_MAPPING + "?" + USERNAME_PARAM + "=any")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -89,34 +96,58 @@ class PostControllerTest {
                 .andExpect(status().isOk())
                 .andReturn());
         assertEquals(inputPostDtos.getContent().size(), outputPostDtos.getContent().size());
-        verify(postService, times(1)).getLatest(anyString(), any());
+        verify(postService, times(1)).getLatest(anyString(), nullable(Long.class), any());
     }
 
     @Test
     @DisplayName("Get latest with pageable param")
     void getLatestWithCountParam() throws Exception {
         var inputPostDtos = getInputPostDtoSlice();
-        when(postService.getLatest(any())).thenReturn(inputPostDtos);
+        when(postService.getLatest(nullable(Long.class), any())).thenReturn(inputPostDtos);
         mockMvc.perform(MockMvcRequestBuilders.get(POST_MAPPING + "?page=1&size=2&sort=id,desc")
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andReturn();
-        verify(postService, times(1)).getLatest(any());
+        verify(postService, times(1)).getLatest(nullable(Long.class), any());
+    }
+
+    @Test
+    @DisplayName("Get latest before cursor")
+    void getLatestBeforeCursor() throws Exception {
+        when(postService.getLatest(eq(ID), any())).thenReturn(getInputPostDtoSlice());
+        mockMvc.perform(MockMvcRequestBuilders.get(POST_MAPPING + "?" + BEFORE_PARAM + "=" + ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        verify(postService, times(1)).getLatest(eq(ID), any());
+    }
+
+    @Test
+    @DisplayName("Get timeline")
+    void getTimeline() throws Exception {
+        when(postService.getTimeline(any(), eq(ID), any())).thenReturn(getInputPostDtoSlice());
+        var outputPostDtos = getOutputPostDtos(mockMvc.perform(MockMvcRequestBuilders
+                .get(POST_MAPPING + TIMELINE_MAPPING + "?" + BEFORE_PARAM + "=" + ID)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertEquals(2, outputPostDtos.getContent().size());
     }
 
     @Test
     @DisplayName("Get latest users own posts")
     void getLatestUsersOwnPosts() throws Exception {
         var inputPostDtos = getInputPostDtoSlice();
-        when(postService.getLatest(any(Principal.class), any())).thenReturn(inputPostDtos);
+        when(postService.getLatest(any(Principal.class), nullable(Long.class), any())).thenReturn(inputPostDtos);
         var outputPostDtos = getOutputPostDtos(mockMvc.perform(MockMvcRequestBuilders.get(POST_MAPPING + "?" + OWN_PARAM + "=true")
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andReturn());
         assertEquals(inputPostDtos.getContent().size(), outputPostDtos.getContent().size());
-        verify(postService, times(1)).getLatest(any(Principal.class), any());
+        verify(postService, times(1)).getLatest(any(Principal.class), nullable(Long.class), any());
     }
 
     @Test
@@ -370,13 +401,23 @@ class PostControllerTest {
                 .accept(MediaType.MULTIPART_FORM_DATA)
                 .contentType(MediaType.MULTIPART_FORM_DATA))
                 .andExpect(status().isOk());
-        verify(postService, times(1)).saveImage(any(), any(), any());
+        verify(postService, times(1)).saveImage(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Upload raw image")
+    void postRawImage() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post(POST_MAPPING + "/" + ID + UPLOAD_IMAGE_MAPPING)
+                .content(IMAGE_MOCK_MULTIPART_FILE.getBytes())
+                .contentType(MediaType.IMAGE_JPEG))
+                .andExpect(status().isOk());
+        verify(postService, times(1)).saveImage(any(), eq(ID), any(), eq("jpeg"));
     }
 
     @Test
     @DisplayName("Get image")
     void getAvatar() throws Exception {
-        when(postService.getImage(any(), any())).thenReturn(IMAGE_RESPONSE_ENTITY);
+        when(postService.getImage(any(), any(), any())).thenReturn(IMAGE_RESPONSE_ENTITY);
         MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(POST_MAPPING + "/" + ID + GET_IMAGE_MAPPING + ID)
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
@@ -385,4 +426,60 @@ class PostControllerTest {
         assertNotNull(result);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Get not modified image")
+    void getNotModifiedImage() throws Exception {
+        var headers = new HttpHeaders();
+        headers.setETag(IMAGE_ETAG);
+        when(postService.getImage(any(), any(), any())).thenReturn(new ResponseEntity<>(IMAGE_RESOURCE, headers, HttpStatus.OK));
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(POST_MAPPING + "/" + ID + GET_IMAGE_MAPPING + ID)
+                .header(HttpHeaders.IF_NONE_MATCH, IMAGE_ETAG))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        assertEquals(0, result.getResponse().getContentLength());
+    }
+
+    @Test
+    @DisplayName("Get image range")
+    void getImageRange() throws Exception {
+        when(postService.getImage(any(), any(), any())).thenReturn(new ResponseEntity<>(IMAGE_RESOURCE, HttpStatus.OK));
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(POST_MAPPING + "/" + ID + GET_IMAGE_MAPPING + ID)
+                .header(HttpHeaders.RANGE, "bytes=0-4"))
+                .andExpect(status().isPartialContent())
+                .andReturn();
+        assertEquals("image", result.getResponse().getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Get image variant")
+    void getImageVariant() throws Exception {
+        when(postService.getImage(any(), any(), any())).thenReturn(IMAGE_RESPONSE_ENTITY);
+        mockMvc.perform(MockMvcRequestBuilders.get(POST_MAPPING + "/" + ID + GET_IMAGE_MAPPING + ID)
+                .param(WIDTH_PARAM, "640"))
+                .andExpect(status().isOk());
+        verify(postService, times(1)).getImage(ID, ID, 640);
+    }
+
+    @Test
+    @DisplayName("Create upload session")
+    void createUpload() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post(POST_MAPPING + "/" + ID + UPLOADS_MAPPING)
+                .header(UPLOAD_LENGTH_HEADER, 10))
+                .andExpect(status().isCreated());
+        verify(postService, times(1)).createUploadSession(any(), eq(ID), eq(10L), any());
+    }
+
+    @Test
+    @DisplayName("Upload chunk")
+    void uploadChunk() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch(POST_MAPPING + "/" + ID + UPLOADS_MAPPING + "/upload")
+                .header(UPLOAD_OFFSET_HEADER, 5)
+                .header(UPLOAD_CHECKSUM_HEADER, "sha256 checksum")
+                .contentType("application/offset+octet-stream")
+                .content(new byte[5]))
+                .andExpect(status().isOk());
+        verify(postService, times(1)).uploadChunk(any(), eq(ID), eq("upload"), eq(5L), any(),
+                eq("sha256 checksum"));
+    }
+
+}
@@ -19,7 +19,9 @@ import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramExceptio
 import pl.tscript3r.photogram.user.UserService;
 import pl.tscript3r.photogram.user.api.v1.UserController;
 import pl.tscript3r.photogram.user.api.v1.UserDto;
+import pl.tscript3r.photogram.user.token.TokenRevocationService;
 
+import java.security.Principal;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -55,6 +57,9 @@ class UserControllerTest {
     @MockBean
     UserService userService;
 
+    @MockBean
+    TokenRevocationService tokenRevocationService;
+
     @Test
     @DisplayName("Get all users")
     void getAll() throws Exception {
@@ -367,6 +372,16 @@ class UserControllerTest {
         verify(userService, times(1)).saveAvatar(any(), any(), any());
     }
 
+    @Test
+    @DisplayName("Upload raw avatar")
+    void postRawAvatar() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post(USER_MAPPING + "/" + ID + AVATAR_MAPPING)
+                .content(IMAGE_MOCK_MULTIPART_FILE.getBytes())
+                .contentType(MediaType.IMAGE_PNG))
+                .andExpect(status().isOk());
+        verify(userService, times(1)).saveAvatar(any(), any(), any());
+    }
+
     @Test
     @DisplayName("Email token confirmation")
     void emailTokenConfirmation() throws Exception {
@@ -427,4 +442,13 @@ class UserControllerTest {
         verify(userService, times(1)).unfollow(any(), any());
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Logout")
+    void logout() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post(USER_MAPPING + LOGOUT_MAPPING))
+                .andExpect(status().isNoContent());
+
+        verify(tokenRevocationService, times(1)).revoke(any(Principal.class));
+    }
+
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import pl.tscript3r.photogram.post.comment.Comment;
 import pl.tscript3r.photogram.post.comment.api.v1.CommentDto;
 import pl.tscript3r.photogram.post.comment.api.v1.CommentMapper;
+import pl.tscript3r.photogram.post.comment.api.v1.CommentMapperImpl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static pl.tscript3r.photogram.api.v1.dtos.CommentDtoTest.getDefaultCommentDto;
@@ -36,7 +37,7 @@ class CommentMapperTest {
 
     @BeforeEach
     void setUp() {
-        commentMapper = new CommentMapper();
+        commentMapper = new CommentMapperImpl();
     }
 
     @Test
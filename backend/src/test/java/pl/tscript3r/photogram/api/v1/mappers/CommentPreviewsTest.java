@@ -0,0 +1,88 @@
+package pl.tscript3r.photogram.api.v1.mappers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.tscript3r.photogram.infrastructure.configuration.CommentConfig;
+import pl.tscript3r.photogram.post.Visibility;
+import pl.tscript3r.photogram.post.api.v1.CommentPreviews;
+import pl.tscript3r.photogram.post.api.v1.PostDto;
+import pl.tscript3r.photogram.post.comment.CommentRepository;
+import pl.tscript3r.photogram.post.comment.api.v1.CommentDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static pl.tscript3r.photogram.Consts.*;
+
+@DisplayName("Comment previews")
+@ExtendWith(MockitoExtension.class)
+class CommentPreviewsTest {
+
+    private static final int PREVIEW_SIZE = 2;
+
+    @Mock
+    CommentRepository commentRepository;
+
+    private CommentPreviews commentPreviews;
+
+    @BeforeEach
+    void init() {
+        var commentConfig = new CommentConfig();
+        commentConfig.setPreviewSize(PREVIEW_SIZE);
+        commentPreviews = new CommentPreviews(commentRepository, commentConfig);
+    }
+
+    private PostDto getPostDto(final Long id, final int commentCount) {
+        return new PostDto(id, ID, USERNAME, null, null, Visibility.PUBLIC, 0, 0, commentCount, null);
+    }
+
+    private CommentDto getCommentDto(final Long id, final Long postId) {
+        return new CommentDto(id, ID, USERNAME, postId, CONTENT, LocalDateTime.now());
+    }
+
+    @Test
+    @DisplayName("Newest comments of the posts loaded at once, oldest first")
+    void set() {
+        var first = getPostDto(ID, 50_000);
+        var second = getPostDto(SECOND_ID, 0);
+        var third = getPostDto(THIRD_ID, 1);
+        when(commentRepository.findNewestDtosByPostIds(List.of(ID, THIRD_ID), PREVIEW_SIZE))
+                .thenReturn(List.of(getCommentDto(7L, ID), getCommentDto(8L, THIRD_ID), getCommentDto(9L, ID)));
+
+        commentPreviews.set(List.of(first, second, third));
+
+        assertEquals(2, first.getComments().size());
+        assertEquals(7L, first.getComments().get(0).getId().longValue());
+        assertEquals(ID, first.getComments().get(0).getPostId());
+        assertEquals(50_000, first.getCommentCount().intValue());
+        assertTrue(second.getComments().isEmpty());
+        assertEquals(8L, third.getComments().get(0).getId().longValue());
+        verify(commentRepository, times(1)).findNewestDtosByPostIds(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Nothing queried without comments")
+    void setWithoutComments() {
+        var post = getPostDto(ID, 0);
+        commentPreviews.set(List.of(post));
+        assertTrue(post.getComments().isEmpty());
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    @DisplayName("Nothing queried without posts")
+    void setEmpty() {
+        commentPreviews.set(List.of());
+        verifyNoInteractions(commentRepository);
+    }
+
+}
@@ -0,0 +1,154 @@
+package pl.tscript3r.photogram.api.v1.mappers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.SliceImpl;
+import pl.tscript3r.photogram.post.PostRepository;
+import pl.tscript3r.photogram.post.Visibility;
+import pl.tscript3r.photogram.post.api.v1.CommentPreviews;
+import pl.tscript3r.photogram.post.api.v1.PostDto;
+import pl.tscript3r.photogram.post.api.v1.PostFeedAssembler;
+import pl.tscript3r.photogram.post.reaction.ReactionIndex;
+import pl.tscript3r.photogram.user.LoggedUserContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static pl.tscript3r.photogram.Consts.*;
+import static pl.tscript3r.photogram.domains.UserTest.getDefaultUser;
+
+@DisplayName("Post feed assembler")
+@ExtendWith(MockitoExtension.class)
+class PostFeedAssemblerTest {
+
+    @Mock
+    PostRepository postRepository;
+
+    @Mock
+    CommentPreviews commentPreviews;
+
+    @Mock
+    ReactionIndex reactionIndex;
+
+    @Mock
+    LoggedUserContext loggedUserContext;
+
+    private PostFeedAssembler postFeedAssembler;
+
+    @BeforeEach
+    void init() {
+        postFeedAssembler = new PostFeedAssembler(postRepository, commentPreviews, reactionIndex, loggedUserContext);
+    }
+
+    private PostRepository.UserPostCount postCount(final Long userId, final Long count) {
+        return new PostRepository.UserPostCount() {
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public Long getCount() {
+                return count;
+            }
+        };
+    }
+
+    private PostRepository.PostImage postImage(final Long postId, final Long imageId, final String extension) {
+        return new PostRepository.PostImage() {
+            @Override
+            public Long getPostId() {
+                return postId;
+            }
+
+            @Override
+            public Long getImageId() {
+                return imageId;
+            }
+
+            @Override
+            public String getExtension() {
+                return extension;
+            }
+
+            @Override
+            public Integer getWidth() {
+                return null;
+            }
+
+            @Override
+            public Integer getHeight() {
+                return null;
+            }
+        };
+    }
+
+    private SliceImpl<PostDto> getPostDtos() {
+        return new SliceImpl<>(List.of(
+                new PostDto(ID, ID, USERNAME, null, null, Visibility.PUBLIC, 0, 0, 0, null),
+                new PostDto(SECOND_ID, SECOND_ID, SECOND_USERNAME, null, null, Visibility.PUBLIC, 0, 0, 0, null)));
+    }
+
+    private void stubPageQueries() {
+        when(postRepository.findImagesByPostIds(any())).thenReturn(List.of(
+                postImage(ID, IMAGE_ID, IMAGE_EXTENSION), postImage(ID, SECOND_IMAGE_ID, SECOND_IMAGE_EXTENSION),
+                postImage(SECOND_ID, IMAGE_ID, IMAGE_EXTENSION)));
+        when(postRepository.countByUserIds(any())).thenReturn(List.of(postCount(ID, 3L), postCount(SECOND_ID, 1L)));
+    }
+
+    @Test
+    @DisplayName("Page assembled with one query per association")
+    void assembleWithLoggedUser() {
+        stubPageQueries();
+        when(loggedUserContext.find()).thenReturn(Optional.of(getDefaultUser()));
+        when(reactionIndex.getLikedIds(any(), any())).thenReturn(Set.of(ID));
+        when(reactionIndex.getDislikedIds(any(), any())).thenReturn(Set.of(SECOND_ID));
+
+        var result = postFeedAssembler.assemble(getPostDtos()).getContent();
+
+        assertEquals(2, result.size());
+        assertEquals(2, result.get(0).getImages().size());
+        assertEquals(SECOND_IMAGE_ID, result.get(0).getImages().get(1).getImageId());
+        assertEquals(1, result.get(1).getImages().size());
+        assertEquals(3, result.get(0).getPostCount().intValue());
+        assertEquals(1, result.get(1).getPostCount().intValue());
+        assertTrue(result.get(0).getLiked());
+        assertFalse(result.get(0).getDisliked());
+        assertFalse(result.get(1).getLiked());
+        assertTrue(result.get(1).getDisliked());
+        verify(loggedUserContext, times(1)).find();
+        verify(commentPreviews, times(1)).set(result);
+        verify(postRepository, times(1)).findImagesByPostIds(List.of(ID, SECOND_ID));
+        verify(postRepository, times(1)).countByUserIds(any());
+        verify(reactionIndex, times(1)).getLikedIds(ID, List.of(ID, SECOND_ID));
+        verify(reactionIndex, times(1)).getDislikedIds(ID, List.of(ID, SECOND_ID));
+    }
+
+    @Test
+    @DisplayName("Reactions not queried without logged user")
+    void assembleAnonymous() {
+        stubPageQueries();
+
+        var result = postFeedAssembler.assemble(getPostDtos()).getContent();
+
+        assertNull(result.get(0).getLiked());
+        assertNull(result.get(0).getDisliked());
+        verifyNoInteractions(reactionIndex);
+    }
+
+    @Test
+    @DisplayName("Empty page not completed")
+    void assembleEmpty() {
+        assertFalse(postFeedAssembler.assemble(new SliceImpl<>(List.of())).hasContent());
+        verifyNoInteractions(postRepository, commentPreviews, reactionIndex, loggedUserContext);
+    }
+
+}
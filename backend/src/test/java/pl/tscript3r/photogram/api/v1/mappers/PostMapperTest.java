@@ -7,18 +7,19 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import pl.tscript3r.photogram.post.Post;
+import pl.tscript3r.photogram.post.PostRepository;
+import pl.tscript3r.photogram.post.api.v1.CommentPreviews;
 import pl.tscript3r.photogram.post.api.v1.PostDto;
 import pl.tscript3r.photogram.post.api.v1.PostMapper;
-import pl.tscript3r.photogram.post.comment.api.v1.CommentMapper;
+import pl.tscript3r.photogram.post.reaction.ReactionIndex;
+import pl.tscript3r.photogram.user.LoggedUserContext;
 import pl.tscript3r.photogram.user.UserService;
 
-import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyCollection;
-import static org.mockito.Mockito.when;
-import static pl.tscript3r.photogram.api.v1.dtos.CommentDtoTest.getDefaultCommentDto;
+import static org.mockito.Mockito.*;
 import static pl.tscript3r.photogram.api.v1.dtos.PostDtoTest.getDefaultPostDto;
 import static pl.tscript3r.photogram.domains.PostTest.getDefaultPost;
 import static pl.tscript3r.photogram.domains.UserTest.getDefaultUser;
@@ -36,7 +37,6 @@ class PostMapperTest {
         assertEquals(post.getImages().size(), postDto.getImages().size());
         assertEquals(post.getLikes(), postDto.getLikesCount());
         assertEquals(post.getCreationDate(), postDto.getCreationDate());
-        assertEquals(post.getComments().size(), postDto.getComments().size());
     }
 
     void comparePostDtoWithPost(PostDto postDto, Post post) {
@@ -49,7 +49,16 @@ class PostMapperTest {
     UserService userService;
 
     @Mock
-    CommentMapper commentMapper;
+    PostRepository postRepository;
+
+    @Mock
+    CommentPreviews commentPreviews;
+
+    @Mock
+    ReactionIndex reactionIndex;
+
+    @Mock
+    LoggedUserContext loggedUserContext;
 
     @InjectMocks
     PostMapper postMapper;
@@ -57,10 +66,12 @@ class PostMapperTest {
     @Test
     @DisplayName("Post to PostDto map validation")
     void firstToSecond() {
-        when(commentMapper.map(anyCollection(), any())).thenReturn(Collections.singletonList(getDefaultCommentDto()));
         var post = getDefaultPost();
+        when(postRepository.countByUserId(post.getUser().getId())).thenReturn(3L);
         var postDto = postMapper.firstToSecond(post);
         comparePostWithPostDto(post, postDto);
+        assertEquals(3, postDto.getPostCount());
+        verify(commentPreviews, times(1)).set(List.of(postDto));
     }
 
     @Test
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import pl.tscript3r.photogram.user.api.v1.RoleDto;
 import pl.tscript3r.photogram.user.role.Role;
 import pl.tscript3r.photogram.user.role.RoleMapper;
+import pl.tscript3r.photogram.user.role.RoleMapperImpl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -20,7 +21,7 @@ class RoleMapperTest {
 
     @BeforeEach
     void setUp() {
-        roleMapper = new RoleMapper();
+        roleMapper = new RoleMapperImpl();
     }
 
     @Test
@@ -6,18 +6,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import pl.tscript3r.photogram.infrastructure.exception.InternalErrorPhotogramException;
 import pl.tscript3r.photogram.user.User;
 import pl.tscript3r.photogram.user.api.v1.UserDto;
-import pl.tscript3r.photogram.user.api.v1.UserMapper;
+import pl.tscript3r.photogram.user.api.v1.UserMapperImpl;
 import pl.tscript3r.photogram.user.role.RoleMapper;
 
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static pl.tscript3r.photogram.api.v1.dtos.UserDtoTest.getDefaultUserDto;
@@ -47,7 +44,7 @@ public class UserMapperTest {
     RoleMapper roleMapper;
 
     @InjectMocks
-    UserMapper userMapper;
+    UserMapperImpl userMapper;
 
     @Test
     @DisplayName("User to UserDto map validation")
@@ -55,7 +52,7 @@ public class UserMapperTest {
         var user = getDefaultUser();
         var userDto = userMapper.map(user, UserDto.class);
         compareUserWithUserDto(user, userDto);
-        verify(roleMapper, times(1)).map(anyCollection(), any());
+        verify(roleMapper, times(user.getRoles().size())).firstToSecond(any());
     }
 
     @Test
@@ -97,12 +94,14 @@ public class UserMapperTest {
     }
 
     @Test
-    @DisplayName("User collection mapping fail")
-    void userCollectionMappingFail() {
-        // Excepting that vector will be never used for true usages, because why?
+    @DisplayName("User collection of any other type to UserDto list")
+    void userCollectionToUserDto() {
         Vector<User> users = new Vector<>();
         users.add(getDefaultUser());
-        assertThrows(InternalErrorPhotogramException.class, () -> userMapper.map(users, UserDto.class));
+        users.add(getSecondUser());
+        Collection<UserDto> userDtos = userMapper.map(users, UserDto.class);
+        assertEquals(ArrayList.class, userDtos.getClass());
+        assertEquals(2, userDtos.size());
     }
 
 }
\ No newline at end of file
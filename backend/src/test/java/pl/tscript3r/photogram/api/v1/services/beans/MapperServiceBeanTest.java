@@ -10,8 +10,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationContext;
 import pl.tscript3r.photogram.infrastructure.exception.InternalErrorPhotogramException;
 import pl.tscript3r.photogram.infrastructure.mapper.*;
-import pl.tscript3r.photogram.user.api.v1.UserMapper;
-import pl.tscript3r.photogram.user.role.RoleMapper;
+import pl.tscript3r.photogram.user.User;
+import pl.tscript3r.photogram.user.api.v1.RoleDto;
+import pl.tscript3r.photogram.user.api.v1.UserDto;
+import pl.tscript3r.photogram.user.api.v1.UserMapperImpl;
+import pl.tscript3r.photogram.user.role.Role;
+import pl.tscript3r.photogram.user.role.RoleMapperImpl;
 
 import java.util.*;
 
@@ -19,6 +23,10 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
+import static pl.tscript3r.photogram.Consts.ID;
+import static pl.tscript3r.photogram.domains.RoleTest.USER_ROLE_NAME;
+import static pl.tscript3r.photogram.domains.RoleTest.getDefaultRole;
+import static pl.tscript3r.photogram.domains.UserTest.getDefaultUser;
 
 @DisplayName("Mapper service")
 @ExtendWith(MockitoExtension.class)
@@ -28,9 +36,9 @@ public class MapperServiceBeanTest {
         ApplicationContext applicationContext = mock(ApplicationContext.class);
         MapperServiceBean result = new MapperServiceBean();
         var beanMap = new HashMap<String, Mapper>();
-        var roleMapper = new RoleMapper();
-        beanMap.put("userMapper", new UserMapper(roleMapper));
-        beanMap.put("roleMapper", new RoleMapper());
+        var roleMapper = new RoleMapperImpl();
+        beanMap.put("userMapper", new UserMapperImpl(roleMapper));
+        beanMap.put("roleMapper", roleMapper);
         when(applicationContext.getBeansOfType(Mapper.class)).thenReturn(beanMap);
         result.setApplicationContext(applicationContext);
         verify(applicationContext, times(1)).getBeansOfType(Mapper.class);
@@ -51,63 +59,61 @@ public class MapperServiceBeanTest {
     @BeforeEach
     void setUp() {
         mapperService = new MapperServiceBean();
-        HashMap<String, Object> mappers = new HashMap<>();
+        HashMap<String, Mapper> mappers = new HashMap<>();
         mappers.put("mapper", mapper);
         mappers.put("collectionMapper", collectionMapper);
-        when(applicationContext.getBeansOfType(any())).thenReturn(mappers);
+        when(mapper.getTypes()).thenReturn(List.of(Role.class, RoleDto.class));
+        when(collectionMapper.getTypes()).thenReturn(List.of(User.class, UserDto.class));
+        when(applicationContext.getBeansOfType(Mapper.class)).thenReturn(mappers);
         mapperService.setApplicationContext(applicationContext);
     }
 
     @Test
     @DisplayName("Mapping domains -> dto")
     void mapDomainToDto() {
-        when(mapper.compatible(any())).thenReturn(true);
-        when(mapper.map(any(), any())).thenReturn(new Dto() {
-        });
-        Dto dto = mapperService.map(new DataStructure() {
-        }, Dto.class);
+        var role = getDefaultRole();
+        when(mapper.map(role, RoleDto.class)).thenReturn(new RoleDto(role.getName()));
+        RoleDto dto = mapperService.map(role, RoleDto.class);
         assertNotNull(dto);
-        verify(mapper, times(2)).compatible(any());
         verify(mapper, times(1)).map(any(), any());
     }
 
+    @Test
+    @DisplayName("Mapping subclass of the registered type")
+    void mapSubclass() {
+        var proxy = new Role(ID, USER_ROLE_NAME) {
+        };
+        when(mapper.map(proxy, RoleDto.class)).thenReturn(new RoleDto(USER_ROLE_NAME));
+        assertNotNull(mapperService.map(proxy, RoleDto.class));
+    }
+
     @Test
     @DisplayName("Mapping without mapper for source")
     void mapWithoutMapperForSource() {
-        when(mapper.compatible(any())).thenReturn(false);
         Assertions.assertThrows(InternalErrorPhotogramException.class, () ->
                 mapperService.map(new DataStructure() {
                 }, DataStructure.class)
         );
-        verify(mapper, times(1)).compatible(any());
+        verify(mapper, never()).map(any(), any());
     }
 
     @Test
     @DisplayName("Mapping without mapper for target")
     void mapWithoutMapperForTarget() {
-        when(mapper.compatible(any())).thenReturn(true);
-        when(mapper.compatible(DataStructure.class)).thenReturn(false);
         Assertions.assertThrows(InternalErrorPhotogramException.class, () ->
-                mapperService.map(new Dto() {
-                }, DataStructure.class)
+                mapperService.map(getDefaultRole(), UserDto.class)
         );
-        verify(mapper, times(2)).compatible(any());
+        verify(mapper, never()).map(any(), any());
     }
 
     @Test
     @DisplayName("List mapping domains -> dto")
     void listMappingDomainToDto() {
-        var domains = Arrays.asList(new DataStructure() {
-        }, new DataStructure() {
-        });
-        List<Dto> dtos = Arrays.asList(new Dto() {
-        }, new Dto() {
-        });
-        when(collectionMapper.compatible(any())).thenReturn(true);
-        when(collectionMapper.map(domains, Dto.class)).thenReturn(dtos);
-        var result = mapperService.map(domains, Dto.class);
+        var domains = Arrays.asList(getDefaultUser(), getDefaultUser());
+        List<UserDto> dtos = Arrays.asList(new UserDto(), new UserDto());
+        when(collectionMapper.map(domains, UserDto.class)).thenReturn(dtos);
+        var result = mapperService.map(domains, UserDto.class);
         assertEquals(dtos, result);
-        verify(collectionMapper, times(1)).compatible(any());
         verify(collectionMapper, times(1)).map(anyCollection(), any());
     }
 
@@ -122,35 +128,22 @@ public class MapperServiceBeanTest {
     @Test
     @DisplayName("List mapping without collectionMapper")
     void listMappingWithoutExtendedMapper() {
-        var domains = Arrays.asList(new DataStructure() {
-        }, new DataStructure() {
-        });
-        when(mapper.compatible(any())).thenReturn(true);
-        Assertions.assertThrows(InternalErrorPhotogramException.class, () ->
-                mapperService.map(domains, DataStructure.class)
-        );
-    }
-
-    @Test
-    @DisplayName("Map ClassCastException handling")
-    void mapClassCastExceptionHandling() {
-        when(mapper.compatible(any())).thenReturn(true);
-        when(mapper.map(any(), any())).thenThrow(new ClassCastException());
+        var domains = Arrays.asList(getDefaultRole(), getDefaultRole());
         Assertions.assertThrows(InternalErrorPhotogramException.class, () ->
-                mapperService.map(new DataStructure() {
-                }, Dto.class)
+                mapperService.map(domains, RoleDto.class)
         );
     }
 
     @Test
-    @DisplayName("Collection map ClassCastException handling")
-    void collectionMapClassCastExceptionHandling() {
-        when(collectionMapper.compatible(any())).thenReturn(true);
-        when(collectionMapper.map(anyCollection(), any())).thenThrow(new ClassCastException());
+    @DisplayName("Mapper registered twice for the same types")
+    void duplicatedMapper() {
+        var duplicated = new HashMap<String, Mapper>();
+        duplicated.put("roleMapper", new RoleMapperImpl());
+        duplicated.put("secondRoleMapper", new RoleMapperImpl());
+        when(applicationContext.getBeansOfType(Mapper.class)).thenReturn(duplicated);
         Assertions.assertThrows(InternalErrorPhotogramException.class, () ->
-                mapperService.map(Collections.singletonList(new DataStructure() {
-                }), Dto.class)
+                new MapperServiceBean().setApplicationContext(applicationContext)
         );
     }
 
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
 import pl.tscript3r.photogram.post.Post;
 import pl.tscript3r.photogram.post.comment.Comment;
+import pl.tscript3r.photogram.post.image.Image;
 
 import java.time.LocalDateTime;
 
@@ -25,11 +26,9 @@ public class PostTest {
         var result = new Post(getDefaultUser(), CAPTION, LOCATION);
         result.setId(ID);
         result.addImage(IMAGE);
-        for (int i = 0; i < LIKES; i++)
-            result.incrementLikes();
-        for (int i = 0; i < DISLIKES; i++)
-            result.incrementDislikes();
         try {
+            FieldUtils.writeField(result, "likes", LIKES, true);
+            FieldUtils.writeField(result, "dislikes", DISLIKES, true);
             FieldUtils.writeField(result, "creationDate", LocalDateTime.now(), true);
         } catch (IllegalAccessException e) {
             throw new RuntimeException(FIELD_CHANGED_REMOVED_EXCEPTION);
@@ -47,9 +46,8 @@ public class PostTest {
         var result = new Post(getSecondUser(), SECOND_CAPTION, SECOND_LOCATION);
         result.setId(SECOND_ID);
         result.addImage(SECOND_IMAGE);
-        for (int i = 0; i < LIKES; i++)
-            result.incrementLikes();
         try {
+            FieldUtils.writeField(result, "likes", LIKES, true);
             FieldUtils.writeField(result, "creationDate", LocalDateTime.now(), true);
         } catch (IllegalAccessException e) {
             throw new RuntimeException(FIELD_CHANGED_REMOVED_EXCEPTION);
@@ -76,61 +74,29 @@ public class PostTest {
     }
 
     @Test
-    @DisplayName("Increment likes")
-    void incrementLikes() {
-        var post = getDefaultPost();
-        post.incrementLikes();
-        assertEquals(2, post.getLikes().intValue());
-    }
-
-    @Test
-    @DisplayName("Decrement likes")
-    void incrementDislikes() {
-        var post = getDefaultPost();
-        post.incrementDislikes();
-        assertEquals(2, post.getDislikes().intValue());
-    }
-
-    @Test
-    @DisplayName("Decrement likes")
-    void decrementLikes() {
-        var post = getDefaultPost();
-        post.decrementLikes();
-        assertEquals(0, post.getLikes().intValue());
-    }
-
-    @Test
-    @DisplayName("Decrement dislikes")
-    void decrementDislikes() {
-        var post = getDefaultPost();
-        post.decrementDislikes();
-        assertEquals(0, post.getDislikes().intValue());
-    }
-
-    @Test
-    @DisplayName("Decrement likes equal 0")
-    void decrementLikesEqualZero() {
+    @DisplayName("Get existing image entity")
+    void getExistingImage() {
         var post = getDefaultPost();
-        post.decrementLikes();
-        post.decrementLikes();
-        assertEquals(0, post.getLikes().intValue());
+        post.addImage(getDefaultImage());
+        assertEquals(getDefaultImage().getImageId(), IMAGE_ID);
     }
 
     @Test
-    @DisplayName("Decrement dislikes equal 0")
-    void decrementDislikesEqualZero() {
+    @DisplayName("First image id")
+    void firstImageId() {
         var post = getDefaultPost();
-        post.decrementDislikes();
-        post.decrementDislikes();
-        assertEquals(0, post.getDislikes().intValue());
+        post.getImages().clear();
+        assertEquals(1000L, post.getNextImageId().longValue());
     }
 
     @Test
-    @DisplayName("Get existing image entity")
-    void getExistingImage() {
+    @DisplayName("Next image id after the highest one")
+    void nextImageId() {
         var post = getDefaultPost();
-        post.addImage(getDefaultImage());
-        assertEquals(getDefaultImage().getImageId(), IMAGE_ID);
+        post.getImages().clear();
+        post.addImage(new Image(1003L, IMAGE_EXTENSION));
+        post.addImage(new Image(1001L, IMAGE_EXTENSION));
+        assertEquals(1004L, post.getNextImageId().longValue());
     }
 
     @Test
@@ -0,0 +1,76 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import pl.tscript3r.photogram.infrastructure.exception.ServiceUnavailablePhotogramException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Bounded password encoder")
+class BoundedPasswordEncoderTest {
+
+    private static final String PASSWORD = "password";
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedPasswordEncoder boundedPasswordEncoder;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        boundedPasswordEncoder.destroy();
+    }
+
+    private PasswordEncoder blockingEncoder() {
+        return new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(final CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Hashing delegated")
+    void delegated() {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 1,
+                Duration.ofSeconds(5));
+        var encoded = boundedPasswordEncoder.encode(PASSWORD);
+        assertTrue(boundedPasswordEncoder.matches(PASSWORD, encoded));
+        assertFalse(boundedPasswordEncoder.matches(PASSWORD + "_", encoded));
+        assertTrue(new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 1, 1, Duration.ofSeconds(5))
+                .upgradeEncoding(encoded));
+    }
+
+    @Test
+    @DisplayName("Hashing rejected with the queue full")
+    void queueFull() throws Exception {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, Duration.ofSeconds(5));
+        CompletableFuture.runAsync(() -> boundedPasswordEncoder.encode(PASSWORD));
+        started.await();
+        CompletableFuture.runAsync(() -> boundedPasswordEncoder.encode(PASSWORD));
+        Thread.sleep(100);
+        assertThrows(ServiceUnavailablePhotogramException.class, () -> boundedPasswordEncoder.encode(PASSWORD));
+    }
+
+    @Test
+    @DisplayName("Hashing rejected after the timeout")
+    void timeout() {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, Duration.ofMillis(50));
+        assertThrows(ServiceUnavailablePhotogramException.class, () -> boundedPasswordEncoder.encode(PASSWORD));
+    }
+
+}
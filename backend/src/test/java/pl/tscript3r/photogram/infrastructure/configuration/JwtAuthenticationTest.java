@@ -6,13 +6,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.AuthenticationException;
 import pl.tscript3r.photogram.infrastructure.exception.PhotogramException;
+import pl.tscript3r.photogram.infrastructure.exception.ServiceUnavailablePhotogramException;
 
 import javax.servlet.http.HttpServletResponse;
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @DisplayName("JWT authentication")
@@ -22,6 +27,9 @@ class JwtAuthenticationTest {
     @Mock
     AuthenticationManager authenticationManager;
 
+    @Mock
+    LoginThrottle loginThrottle;
+
     @InjectMocks
     JwtAuthentication jwtAuthentication;
 
@@ -31,10 +39,41 @@ class JwtAuthenticationTest {
         var request = new MockHttpServletRequest("GET", "/");
         var response = mock(HttpServletResponse.class);
         request.setContent("{\"username\":\"test\",\"password\":\"test_password\"}".getBytes());
+        when(loginThrottle.tryAcquire(any(), eq("test"))).thenReturn(true);
         var result = jwtAuthentication.attemptAuthentication(request, response);
         verify(authenticationManager, times(1)).authenticate(any());
     }
 
+    @Test
+    @DisplayName("Attempt authentication throttled")
+    void attemptAuthenticationThrottled() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/");
+        var response = new MockHttpServletResponse();
+        request.setContent("{\"username\":\"test\",\"password\":\"test_password\"}".getBytes());
+        var failed = assertThrows(AuthenticationException.class,
+                () -> jwtAuthentication.attemptAuthentication(request, response));
+        verify(authenticationManager, times(0)).authenticate(any());
+
+        jwtAuthentication.unsuccessfulAuthentication(request, response, failed);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        assertNotNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    @DisplayName("Attempt authentication with password hashing saturated")
+    void attemptAuthenticationHashingSaturated() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/");
+        var response = new MockHttpServletResponse();
+        request.setContent("{\"username\":\"test\",\"password\":\"test_password\"}".getBytes());
+        when(loginThrottle.tryAcquire(any(), any())).thenReturn(true);
+        when(authenticationManager.authenticate(any())).thenThrow(new ServiceUnavailablePhotogramException("full"));
+        var failed = assertThrows(AuthenticationException.class,
+                () -> jwtAuthentication.attemptAuthentication(request, response));
+
+        jwtAuthentication.unsuccessfulAuthentication(request, response, failed);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+    }
+
     @Test
     @DisplayName("Attempt authentication JSON mapping fail")
     void attemptAuthenticationJsonFail() {
@@ -0,0 +1,128 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import pl.tscript3r.photogram.user.token.RevocableToken;
+import pl.tscript3r.photogram.user.token.TokenRevocationService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("JWT authorization")
+@ExtendWith(MockitoExtension.class)
+class JwtAuthorizationTest {
+
+    private static final String USERNAME = "test";
+    private static final String ROLE = "USER";
+    private static final String TOKEN_ID = "id";
+
+    @Mock
+    TokenRevocationService tokenRevocationService;
+
+    private VerifiedTokens verifiedTokens;
+    private JwtAuthorization jwtAuthorization;
+
+    @BeforeEach
+    void init() {
+        verifiedTokens = new VerifiedTokens(10, tokenRevocationService);
+        jwtAuthorization = new JwtAuthorization(verifiedTokens);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static String token(final Algorithm algorithm, final long expiresIn) {
+        return JWT.create()
+                .withIssuer(SecurityConstants.ISSUER)
+                .withSubject(USERNAME)
+                .withJWTId(TOKEN_ID)
+                .withArrayClaim(SecurityConstants.ROLES_CLAIM, new String[]{ROLE})
+                .withExpiresAt(new Date(System.currentTimeMillis() + expiresIn))
+                .sign(algorithm);
+    }
+
+    private Authentication filter(final String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        var request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(SecurityConstants.HEADER_TYPE, SecurityConstants.TOKEN_PREFIX + token);
+        var filterChain = new MockFilterChain();
+        jwtAuthorization.doFilter(request, new MockHttpServletResponse(), filterChain);
+        assertNotNull(filterChain.getRequest());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    @DisplayName("Valid token authenticates")
+    void validToken() throws Exception {
+        var result = filter(token(SecurityConstants.ALGORITHM, 60_000));
+        assertEquals(USERNAME, result.getName());
+        assertEquals(ROLE, result.getAuthorities().iterator().next().getAuthority());
+        assertEquals(TOKEN_ID, ((RevocableToken) result.getDetails()).getId());
+    }
+
+    @Test
+    @DisplayName("Repeated token served from the verified tokens")
+    void repeatedToken() throws Exception {
+        var token = token(SecurityConstants.ALGORITHM, 60_000);
+        filter(token);
+        var result = filter(token);
+        assertEquals(USERNAME, result.getName());
+        assertEquals(1, verifiedTokens.size());
+        verify(tokenRevocationService, times(2)).isRevoked(TOKEN_ID);
+    }
+
+    @Test
+    @DisplayName("Revoked token not authenticated")
+    void revokedToken() throws Exception {
+        var token = token(SecurityConstants.ALGORITHM, 60_000);
+        assertNotNull(filter(token));
+        when(tokenRevocationService.isRevoked(TOKEN_ID)).thenReturn(true);
+        assertNull(filter(token));
+    }
+
+    @Test
+    @DisplayName("Token signed with other secret not authenticated")
+    void tamperedToken() throws Exception {
+        assertNull(filter(token(Algorithm.HMAC256("other"), 60_000)));
+        assertEquals(0, verifiedTokens.size());
+    }
+
+    @Test
+    @DisplayName("Changed payload with the signature of a verified token not authenticated")
+    void reusedSignature() throws Exception {
+        var token = token(SecurityConstants.ALGORITHM, 60_000);
+        assertNotNull(filter(token));
+        var parts = token.split("\\.");
+        var payload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                        .replace(USERNAME, "admin").getBytes(StandardCharsets.UTF_8));
+        assertNull(filter(parts[0] + "." + payload + "." + parts[2]));
+        assertEquals(1, verifiedTokens.size());
+    }
+
+    @Test
+    @DisplayName("Expired token not authenticated")
+    void expiredToken() throws Exception {
+        assertNull(filter(token(SecurityConstants.ALGORITHM, -60_000)));
+        assertEquals(0, verifiedTokens.size());
+    }
+
+}
@@ -0,0 +1,67 @@
+package pl.tscript3r.photogram.infrastructure.configuration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Login throttle")
+class LoginThrottleTest {
+
+    private static final String ADDRESS = "127.0.0.1";
+    private static final String SECOND_ADDRESS = "127.0.0.2";
+    private static final String USERNAME = "test";
+    private static final String SECOND_USERNAME = "second";
+    private static final int USERNAME_ATTEMPTS = 3;
+    private static final int ADDRESS_ATTEMPTS = 5;
+    private static final Duration REFILL_PERIOD = Duration.ofMinutes(1);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void init() {
+        var loginConfig = new LoginConfig();
+        loginConfig.setUsernameAttempts(USERNAME_ATTEMPTS);
+        loginConfig.setUsernameRefillPeriod(REFILL_PERIOD);
+        loginConfig.setAddressAttempts(ADDRESS_ATTEMPTS);
+        loginConfig.setAddressRefillPeriod(REFILL_PERIOD);
+        loginThrottle = new LoginThrottle(loginConfig, nanoTime::get);
+    }
+
+    @Test
+    @DisplayName("Username attempts limited across addresses")
+    void usernameLimited() {
+        for (int i = 0; i < USERNAME_ATTEMPTS; i++)
+            assertTrue(loginThrottle.tryAcquire(i % 2 == 0 ? ADDRESS : SECOND_ADDRESS, USERNAME));
+        assertFalse(loginThrottle.tryAcquire(SECOND_ADDRESS, USERNAME));
+        assertTrue(loginThrottle.tryAcquire(SECOND_ADDRESS, SECOND_USERNAME));
+    }
+
+    @Test
+    @DisplayName("Address attempts limited across usernames")
+    void addressLimited() {
+        for (int i = 0; i < ADDRESS_ATTEMPTS; i++)
+            assertTrue(loginThrottle.tryAcquire(ADDRESS, USERNAME + i));
+        assertFalse(loginThrottle.tryAcquire(ADDRESS, SECOND_USERNAME));
+        assertTrue(loginThrottle.tryAcquire(SECOND_ADDRESS, SECOND_USERNAME));
+    }
+
+    @Test
+    @DisplayName("Attempts refilled evenly over the period")
+    void refilled() {
+        for (int i = 0; i < USERNAME_ATTEMPTS; i++)
+            loginThrottle.tryAcquire(ADDRESS, USERNAME);
+        assertFalse(loginThrottle.tryAcquire(ADDRESS, USERNAME));
+
+        nanoTime.addAndGet(REFILL_PERIOD.toNanos() / USERNAME_ATTEMPTS);
+        assertTrue(loginThrottle.tryAcquire(ADDRESS, USERNAME));
+        assertFalse(loginThrottle.tryAcquire(ADDRESS, USERNAME));
+    }
+
+}
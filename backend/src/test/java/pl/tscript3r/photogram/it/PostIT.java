@@ -1,7 +1,9 @@
 package pl.tscript3r.photogram.it;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,20 +17,39 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.tscript3r.photogram.infrastructure.configuration.CommentConfig;
+import pl.tscript3r.photogram.infrastructure.configuration.TimelineConfig;
+import pl.tscript3r.photogram.post.Post;
+import pl.tscript3r.photogram.post.PostRepository;
 import pl.tscript3r.photogram.post.Reactions;
 import pl.tscript3r.photogram.post.Visibility;
 import pl.tscript3r.photogram.post.api.v1.PostDto;
 import pl.tscript3r.photogram.post.image.ImageService;
+import pl.tscript3r.photogram.post.timeline.TimelineBackfillSchedule;
+import pl.tscript3r.photogram.post.timeline.TimelineService;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static pl.tscript3r.photogram.Consts.*;
-import static pl.tscript3r.photogram.infrastructure.MappingsConsts.POST_MAPPING;
+import static pl.tscript3r.photogram.infrastructure.MappingsConsts.*;
+import static pl.tscript3r.photogram.post.Reactions.DISLIKE;
 import static pl.tscript3r.photogram.post.Reactions.LIKE;
 import static pl.tscript3r.photogram.post.Reactions.UNLIKE;
-import static pl.tscript3r.photogram.post.api.v1.PostController.LIKE_MAPPING;
-import static pl.tscript3r.photogram.post.api.v1.PostController.UNLIKE_MAPPING;
+import static pl.tscript3r.photogram.post.api.v1.PostController.*;
+import static pl.tscript3r.photogram.user.api.v1.UserController.FOLLOW_MAPPING;
+import static pl.tscript3r.photogram.user.api.v1.UserController.UNFOLLOW_MAPPING;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -36,6 +57,9 @@ import static pl.tscript3r.photogram.post.api.v1.PostController.UNLIKE_MAPPING;
 @WithMockUser("admin")
 public class PostIT {
 
+    private static final String FOLLOWED_USERNAME = "photograph";
+    private static final int CONCURRENT_REACTIONS = 10;
+
     @Autowired
     ObjectMapper objectMapper;
 
@@ -45,6 +69,27 @@ public class PostIT {
     @MockBean
     ImageService imageService;
 
+    @Autowired
+    TimelineService timelineService;
+
+    @Autowired
+    TimelineBackfillSchedule timelineBackfillSchedule;
+
+    @Autowired
+    CommentConfig commentConfig;
+
+    @Autowired
+    TimelineConfig timelineConfig;
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @BeforeEach
     void setUp() throws Exception {
         objectMapper.configure(MapperFeature.USE_ANNOTATIONS, false);
@@ -60,6 +105,188 @@ public class PostIT {
         assertEquals(postDtoResult.getId(), ID);
     }
 
+    @Test
+    @DisplayName("Get latest")
+    void getLatest() throws Exception {
+        var mockMvcResult = mockMvc.perform(get(POST_MAPPING)).andExpect(status().isOk()).andReturn();
+        var content = objectMapper.readTree(mockMvcResult.getResponse().getContentAsString()).get("content");
+        assertTrue(content.size() > 0);
+        for (var post : content) {
+            assertTrue(post.get("postCount").asInt() > 0);
+            assertTrue(post.get("liked").isBoolean());
+            assertTrue(post.get("disliked").isBoolean());
+            assertTrue(post.get("comments").isArray());
+            assertTrue(post.get("commentCount").isInt());
+        }
+    }
+
+    @Test
+    @DisplayName("Newest comments previewed with the count")
+    void commentPreview() throws Exception {
+        var post = addPostWithJson("{}");
+        var commentMapping = COMMENT_MAPPING.replace(ID_POST_VARIABLE_MAPPING, post.getId().toString());
+        var commentIds = new ArrayList<Long>();
+        for (int i = 0; i < commentConfig.getPreviewSize() + 3; i++)
+            commentIds.add(addComment(commentMapping, CONTENT + i));
+        mockMvc.perform(delete(commentMapping + "/" + commentIds.get(commentIds.size() - 1)))
+                .andExpect(status().isOk());
+
+        var mockMvcResult = mockMvc.perform(get(POST_MAPPING + "/" + post.getId())).andExpect(status().isOk()).andReturn();
+        var result = objectMapper.readTree(mockMvcResult.getResponse().getContentAsString());
+        var comments = result.get("comments");
+        assertEquals(commentConfig.getPreviewSize() + 2, result.get("commentCount").asInt());
+        assertEquals(commentConfig.getPreviewSize(), comments.size());
+        assertEquals(CONTENT + (commentConfig.getPreviewSize() + 1),
+                comments.get(comments.size() - 1).get("content").asText());
+
+        mockMvcResult = mockMvc.perform(get(commentMapping + "/" + post.getId()).param("size", "2"))
+                .andExpect(status().isOk()).andReturn();
+        assertFalse(objectMapper.readTree(mockMvcResult.getResponse().getContentAsString()).get("last").asBoolean());
+    }
+
+    @Test
+    @DisplayName("Comment previews of a page loaded with a single query")
+    void commentPreviewQueries() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            var post = publishAs("admin");
+            addComment(COMMENT_MAPPING.replace(ID_POST_VARIABLE_MAPPING, post.getId().toString()), CONTENT + i);
+        }
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        getLatestPage(1);
+
+        var statements = statistics.getPrepareStatementCount();
+        getLatestPage(1);
+        var singlePostStatements = statistics.getPrepareStatementCount() - statements;
+        statements = statistics.getPrepareStatementCount();
+        var page = getLatestPage(3);
+
+        assertEquals(singlePostStatements, statistics.getPrepareStatementCount() - statements);
+        for (var post : page)
+            assertEquals(1, post.get("comments").size());
+    }
+
+    private JsonNode getLatestPage(int size) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get(POST_MAPPING).param("size", String.valueOf(size)))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString()).get("content");
+    }
+
+    private long addComment(String commentMapping, String content) throws Exception {
+        var mockMvcResult = mockMvc.perform(post(commentMapping)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"content\": \"" + content + "\"}"))
+                .andExpect(status().isCreated()).andReturn();
+        return objectMapper.readTree(mockMvcResult.getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    @Test
+    @DisplayName("Comments seeked in both directions while added")
+    void commentCursors() throws Exception {
+        var post = addPostWithJson("{}");
+        var commentMapping = COMMENT_MAPPING.replace(ID_POST_VARIABLE_MAPPING, post.getId().toString());
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++)
+            ids.add(addComment(commentMapping, CONTENT + i));
+
+        var newestFirst = new ArrayList<Long>();
+        String cursor = null;
+        boolean last;
+        do {
+            var request = get(commentMapping + "/" + post.getId()).param("size", "2");
+            if (cursor != null)
+                request.param(BEFORE_PARAM, cursor);
+            var page = objectMapper.readTree(mockMvc.perform(request).andExpect(status().isOk()).andReturn()
+                    .getResponse().getContentAsString());
+            for (var comment : page.get("content"))
+                newestFirst.add(comment.get("id").asLong());
+            cursor = newestFirst.get(newestFirst.size() - 1).toString();
+            last = page.get("last").asBoolean();
+            if (newestFirst.size() == 2)
+                addComment(commentMapping, SECOND_CONTENT);
+        } while (!last);
+        assertEquals(List.of(ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0)), newestFirst);
+
+        var oldestFirst = new ArrayList<Long>();
+        cursor = "0";
+        do {
+            var page = objectMapper.readTree(mockMvc.perform(get(commentMapping + "/" + post.getId())
+                    .param("size", "3").param(AFTER_PARAM, cursor))
+                    .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+            for (var comment : page.get("content"))
+                oldestFirst.add(comment.get("id").asLong());
+            cursor = oldestFirst.get(oldestFirst.size() - 1).toString();
+            last = page.get("last").asBoolean();
+        } while (!last);
+        assertEquals(6, oldestFirst.size());
+        assertEquals(ids, oldestFirst.subList(0, 5));
+    }
+
+    @Test
+    @DisplayName("Get latest before cursor")
+    void getLatestBeforeCursor() throws Exception {
+        var firstPage = objectMapper.readTree(mockMvc.perform(get(POST_MAPPING + "?size=2"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString()).get("content");
+        var cursor = firstPage.get(firstPage.size() - 1).get("id").asLong();
+        var nextPage = objectMapper.readTree(mockMvc.perform(get(POST_MAPPING + "?size=2&before=" + cursor))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString()).get("content");
+        assertTrue(nextPage.size() > 0);
+        for (var post : nextPage)
+            assertTrue(post.get("id").asLong() < cursor);
+    }
+
+    @Test
+    @DisplayName("Timeline of followed users")
+    void timeline() throws Exception {
+        var followedPost = addPostWithJson("{}", user(FOLLOWED_USERNAME));
+        mockMvc.perform(put(USER_MAPPING + FOLLOW_MAPPING + "/" + SECOND_ID)).andExpect(status().isOk());
+        mockMvc.perform(multipart(POST_MAPPING + "/" + followedPost.getId() + UPLOAD_IMAGE_MAPPING)
+                .file(IMAGE_MOCK_MULTIPART_FILE).with(user(FOLLOWED_USERNAME))).andExpect(status().isOk());
+
+        var timeline = objectMapper.readTree(mockMvc.perform(get(POST_MAPPING + TIMELINE_MAPPING))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString()).get("content");
+        assertEquals(followedPost.getId().longValue(), timeline.get(0).get("id").asLong());
+        for (var post : timeline)
+            assertTrue(Set.of(ID, SECOND_ID).contains(post.get("userId").asLong()));
+        assertEquals(0, timelineService.trim());
+
+        mockMvc.perform(put(USER_MAPPING + UNFOLLOW_MAPPING + "/" + SECOND_ID)).andExpect(status().isOk());
+        timeline = objectMapper.readTree(mockMvc.perform(get(POST_MAPPING + TIMELINE_MAPPING))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString()).get("content");
+        for (var post : timeline)
+            assertEquals(ID.longValue(), post.get("userId").asLong());
+    }
+
+    @Test
+    @DisplayName("Posts published while pulled backfilled when the author is pushed again")
+    void timelinePulledAuthor() throws Exception {
+        mockMvc.perform(put(USER_MAPPING + FOLLOW_MAPPING + "/" + SECOND_ID)).andExpect(status().isOk());
+        var fanOutFollowerLimit = timelineConfig.getFanOutFollowerLimit();
+        timelineConfig.setFanOutFollowerLimit(0);
+        PostDto pulledPost;
+        try {
+            pulledPost = publishAs(FOLLOWED_USERNAME);
+        } finally {
+            timelineConfig.setFanOutFollowerLimit(fanOutFollowerLimit);
+        }
+        var pushedPost = publishAs(FOLLOWED_USERNAME);
+        assertEquals(List.of(SECOND_ID), timelineService.getPushedAuthorIds());
+        timelineBackfillSchedule.backfillTimelines();
+        assertTrue(timelineService.getPushedAuthorIds().isEmpty());
+
+        var timelineIds = new ArrayList<Long>();
+        for (var post : objectMapper.readTree(mockMvc.perform(get(POST_MAPPING + TIMELINE_MAPPING))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString()).get("content"))
+            timelineIds.add(post.get("id").asLong());
+        assertEquals(List.of(pushedPost.getId(), pulledPost.getId()), timelineIds.subList(0, 2));
+        mockMvc.perform(put(USER_MAPPING + UNFOLLOW_MAPPING + "/" + SECOND_ID)).andExpect(status().isOk());
+    }
+
+    private PostDto publishAs(String username) throws Exception {
+        var post = addPostWithJson("{}", user(username));
+        mockMvc.perform(multipart(POST_MAPPING + "/" + post.getId() + UPLOAD_IMAGE_MAPPING)
+                .file(IMAGE_MOCK_MULTIPART_FILE).with(user(username))).andExpect(status().isOk());
+        return post;
+    }
+
     @Test
     @DisplayName("Add empty post")
     void addPost() throws Exception {
@@ -70,9 +297,14 @@ public class PostIT {
     }
 
     private PostDto addPostWithJson(String json) throws Exception {
+        return addPostWithJson(json, request -> request);
+    }
+
+    private PostDto addPostWithJson(String json, RequestPostProcessor author) throws Exception {
         var mockMvcResult = mockMvc.perform(post(POST_MAPPING)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
-                .content(json))
+                .content(json)
+                .with(author))
                 .andExpect(status().isCreated()).andReturn();
         return objectMapper.readValue(mockMvcResult.getResponse().getContentAsString(), PostDto.class);
     }
@@ -143,6 +375,64 @@ public class PostIT {
             return 0;
     }
 
+    @Test
+    @DisplayName("Concurrent reactions counted exactly")
+    void concurrentReactions() throws Exception {
+        var postId = addPostWithJson("{}").getId();
+        var usernames = List.of("admin", FOLLOWED_USERNAME, "baker");
+        var executor = Executors.newFixedThreadPool(usernames.size());
+        try {
+            var reactions = new ArrayList<Future<?>>();
+            for (var username : usernames)
+                reactions.add(executor.submit(() -> {
+                    for (int i = 0; i < CONCURRENT_REACTIONS; i++) {
+                        reactAs(username, postId, LIKE_MAPPING);
+                        reactAs(username, postId, UNLIKE_MAPPING);
+                    }
+                    return reactAs(username, postId, LIKE_MAPPING);
+                }));
+            for (var reaction : reactions)
+                reaction.get();
+        } finally {
+            executor.shutdown();
+        }
+        var post = objectMapper.readValue(mockMvc.perform(get(POST_MAPPING + "/" + postId))
+                .andReturn().getResponse().getContentAsString(), PostDto.class);
+        assertEquals(usernames.size(), post.getLikesCount().intValue());
+    }
+
+    private int reactAs(String username, Long postId, String suffixMapping) throws Exception {
+        return mockMvc.perform(put(POST_MAPPING + "/" + postId + suffixMapping).with(user(username)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Test
+    @DisplayName("Counter update keeps the other posts cached")
+    void counterUpdateKeepsOtherPostsCached() throws Exception {
+        var postId = addPostWithJson("{}").getId();
+        postRepository.findById(ID);
+        postRepository.findById(postId);
+
+        new TransactionTemplate(transactionManager).execute(status -> postRepository.incrementLikes(postId));
+
+        assertTrue(entityManagerFactory.getCache().contains(Post.class, ID));
+        assertFalse(entityManagerFactory.getCache().contains(Post.class, postId));
+        assertEquals(1, postRepository.findById(postId).orElseThrow().getLikes());
+    }
+
+    @Test
+    @DisplayName("Opposite reaction removed with its count")
+    void oppositeReaction() throws Exception {
+        var postId = addPostWithJson("{}").getId();
+        assertEquals(1, react(postId, true, LIKE_MAPPING, LIKE, status().isOk()));
+        // returns the likes count after the dislike
+        assertEquals(0, react(postId, true, DISLIKE_MAPPING, LIKE, status().isOk()));
+        // returns the dislikes count after the like
+        assertEquals(0, react(postId, true, LIKE_MAPPING, DISLIKE, status().isOk()));
+        react(postId, false, UNDISLIKE_MAPPING, DISLIKE, status().isContinue());
+    }
+
     @Test
     @DisplayName("Redundant post like")
     void redundantLikePost() throws Exception {
@@ -1,6 +1,7 @@
 package pl.tscript3r.photogram.it;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,10 +11,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import pl.tscript3r.photogram.infrastructure.configuration.LoginConfig;
 import pl.tscript3r.photogram.infrastructure.mapper.MapperService;
 import pl.tscript3r.photogram.post.image.ImageService;
 import pl.tscript3r.photogram.user.UserRepository;
@@ -21,6 +24,7 @@ import pl.tscript3r.photogram.user.UserService;
 import pl.tscript3r.photogram.user.api.v1.UserDto;
 import pl.tscript3r.photogram.user.email.EmailConfirmationRepository;
 
+import javax.persistence.EntityManagerFactory;
 import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 
@@ -42,6 +46,9 @@ import static pl.tscript3r.photogram.user.api.v1.UserController.*;
 public class UserIT {
 
     static final String AUTHORIZATION = "Authorization";
+    private static final String CACHED_USERNAME = "baker";
+    private static final String THROTTLED_USERNAME = "throttled";
+    private static final String FOLLOWER_USERNAME = "ava";
 
     @Autowired
     MockMvc mockMvc;
@@ -61,6 +68,12 @@ public class UserIT {
     @Autowired
     EmailConfirmationRepository emailConfirmationRepository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    LoginConfig loginConfig;
+
     @MockBean
     ExecutorService senderExecutorService;
 
@@ -80,6 +93,21 @@ public class UserIT {
             userRepository.deleteById(addedUserId);
     }
 
+    @Test
+    @DisplayName("Username lookups served from the second level cache")
+    void usernameLookupCached() {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        userService.getByUsername(CACHED_USERNAME);
+        var statements = statistics.getPrepareStatementCount();
+        var hits = statistics.getNaturalIdCacheHitCount();
+
+        userService.getByUsername(CACHED_USERNAME);
+        userService.getByUsername(CACHED_USERNAME);
+
+        assertEquals(hits + 2, statistics.getNaturalIdCacheHitCount());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+
     @Test
     @DisplayName("Register new user")
     void registerNewUser() throws Exception {
@@ -309,6 +337,77 @@ public class UserIT {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("Users containing the username projected with the roles")
+    void getContaining() {
+        var result = userService.getContaining(CACHED_USERNAME.substring(1).toUpperCase(), PageRequest.of(0, 10))
+                .getContent();
+
+        assertEquals(1, result.size());
+        assertEquals(CACHED_USERNAME, result.get(0).getUsername());
+        assertEquals(userService.getByUsername(CACHED_USERNAME).isEmailConfirmed(),
+                result.get(0).getEmailConfirmed());
+        assertFalse(result.get(0).getRoles().isEmpty());
+        assertNull(result.get(0).getPassword());
+        assertTrue(userService.getContaining("%", PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Followers and follows projected with the roles")
+    void getFollowersAndFollows() {
+        var follower = userService.getByUsername(FOLLOWER_USERNAME);
+        var followed = userService.getByUsername(CACHED_USERNAME);
+        userService.follow(() -> FOLLOWER_USERNAME, followed.getId());
+        try {
+            var followers = userService.getFollowers(follower.getId(), PageRequest.of(0, 10)).getContent();
+            var follows = userService.getFollows(followed.getId(), PageRequest.of(0, 10)).getContent();
+
+            assertEquals(userRepository.countByFollowed(follower).intValue(), followers.size());
+            assertEquals(userRepository.countByFollows(followed).intValue(), follows.size());
+            assertEquals(1, followers.size());
+            assertEquals(1, follows.size());
+            assertFalse(followers.get(0).getRoles().isEmpty());
+            assertFalse(follows.get(0).getRoles().isEmpty());
+        } finally {
+            userService.unfollow(() -> FOLLOWER_USERNAME, followed.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Login attempts throttled per username")
+    void loginThrottled() throws Exception {
+        var login = post(LOGIN_MAPPING)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\n" +
+                        "\t\"username\": \"" + THROTTLED_USERNAME + "\",\n" +
+                        "\t\"password\": \"" + PASSWORD + "\"\n" +
+                        "}");
+        for (int i = 0; i < loginConfig.getUsernameAttempts(); i++)
+            mockMvc.perform(login)
+                    .andExpect(status().isUnauthorized());
+        mockMvc.perform(login)
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @DisplayName("Token rejected after logout")
+    void logout() throws Exception {
+        var bearer = registerAndConfirmEmailAndLogin();
+        mockMvc.perform(post(USER_MAPPING + LOGOUT_MAPPING)
+                .header(AUTHORIZATION, bearer))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete(USER_MAPPING + "/" + addedUserId)
+                .header(AUTHORIZATION, bearer))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @DisplayName("Logout without login")
+    void logoutWithoutLogin() throws Exception {
+        mockMvc.perform(post(USER_MAPPING + LOGOUT_MAPPING))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @DisplayName("Delete other users account (without permission)")
     void deleteOtherUsersAccount() throws Exception {
@@ -328,7 +427,7 @@ public class UserIT {
                 .accept(MediaType.MULTIPART_FORM_DATA))
                 .andExpect(status().isOk());
 
-        verify(imageService, times(1)).getAvatar(any());
+        verify(imageService, times(1)).getAvatar(any(), any());
     }
 
     @Test
@@ -341,7 +440,7 @@ public class UserIT {
                 .accept(MediaType.MULTIPART_FORM_DATA))
                 .andExpect(status().isOk());
 
-        verify(imageService, times(1)).getAvatar(any());
+        verify(imageService, times(1)).getAvatar(any(), any());
     }
 
     @Test
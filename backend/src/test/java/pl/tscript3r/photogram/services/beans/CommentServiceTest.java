@@ -8,9 +8,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
 import pl.tscript3r.photogram.infrastructure.mapper.DataStructure;
 import pl.tscript3r.photogram.infrastructure.mapper.MapperService;
@@ -23,19 +25,21 @@ import pl.tscript3r.photogram.user.AuthorizationService;
 import pl.tscript3r.photogram.user.UserService;
 
 import java.util.Collections;
-import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static pl.tscript3r.photogram.Consts.ID;
+import static pl.tscript3r.photogram.Consts.SECOND_ID;
 import static pl.tscript3r.photogram.Consts.USERNAME;
 import static pl.tscript3r.photogram.api.v1.dtos.CommentDtoTest.getDefaultCommentDto;
 import static pl.tscript3r.photogram.api.v1.dtos.CommentDtoTest.getSecondCommentDto;
 import static pl.tscript3r.photogram.domains.CommentTest.getDefaultComment;
 import static pl.tscript3r.photogram.domains.PostTest.getDefaultPost;
 import static pl.tscript3r.photogram.domains.UserTest.getDefaultUser;
+import static pl.tscript3r.photogram.infrastructure.MappingsConsts.ID_VARIABLE;
 
 @DisplayName("Comment service")
 @ExtendWith(MockitoExtension.class)
@@ -63,19 +67,37 @@ class CommentServiceTest {
     CommentService commentService;
 
     @Test
-    @DisplayName("Get latest")
+    @DisplayName("Get latest seeks newest first from the cursor")
     void getLatest() {
-        when(commentRepository.findByPostId(any(), any())).thenReturn(getDomainSlice());
-        when(mapperService.map(anyCollection(), any())).thenReturn(getDtoList());
-        assertEquals(1, commentService.getLatest(ID, pageable).getContent().size());
+        when(pageable.getPageSize()).thenReturn(1);
+        when(commentRepository.findDtosByPostIdBefore(eq(ID), eq(SECOND_ID), any())).thenReturn(getDtoSlice());
+        var result = commentService.getLatest(ID, SECOND_ID, pageable);
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.hasNext());
+        verify(commentRepository, times(1)).findDtosByPostIdBefore(ID, SECOND_ID,
+                PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, ID_VARIABLE)));
     }
 
-    private Slice<Comment> getDomainSlice() {
-        return new SliceImpl<>(Collections.singletonList(getDefaultComment()));
+    @Test
+    @DisplayName("Get latest without cursor starts from the newest")
+    void getLatestWithoutCursor() {
+        when(pageable.getPageSize()).thenReturn(1);
+        when(commentRepository.findDtosByPostIdBefore(eq(ID), eq(Long.MAX_VALUE), any())).thenReturn(getDtoSlice());
+        assertTrue(commentService.getLatest(ID, null, pageable).hasContent());
+    }
+
+    @Test
+    @DisplayName("Get oldest seeks in the creation order from the cursor")
+    void getOldest() {
+        when(pageable.getPageSize()).thenReturn(1);
+        when(commentRepository.findDtosByPostIdAfter(eq(ID), eq(0L), any())).thenReturn(getDtoSlice());
+        assertTrue(commentService.getOldest(ID, null, pageable).hasNext());
+        verify(commentRepository, times(1)).findDtosByPostIdAfter(ID, 0L,
+                PageRequest.of(0, 1, Sort.by(Sort.Direction.ASC, ID_VARIABLE)));
     }
 
-    private List<CommentDto> getDtoList() {
-        return Collections.singletonList(getDefaultCommentDto());
+    private Slice<CommentDto> getDtoSlice() {
+        return new SliceImpl<>(Collections.singletonList(getDefaultCommentDto()), PageRequest.of(0, 1), true);
     }
 
     @Test
@@ -94,6 +116,7 @@ class CommentServiceTest {
         verify(authorizationService, times(1)).accessValidation(any(), any());
         verify(mapperService, times(1)).map(any(DataStructure.class), any());
         verify(postService, times(1)).getById(any());
+        verify(commentRepository, times(1)).incrementCommentCount(ID);
     }
 
     @Test
@@ -130,6 +153,7 @@ class CommentServiceTest {
         commentService.delete(() -> USERNAME, ID);
 
         verify(commentRepository, times(1)).delete(any());
+        verify(commentRepository, times(1)).decrementCommentCount(ID);
     }
 
 }
\ No newline at end of file
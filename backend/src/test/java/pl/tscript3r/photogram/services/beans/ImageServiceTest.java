@@ -1,23 +1,184 @@
 package pl.tscript3r.photogram.services.beans;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+import pl.tscript3r.photogram.infrastructure.exception.BadRequestPhotogramException;
+import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
+import pl.tscript3r.photogram.post.image.Image;
+import pl.tscript3r.photogram.post.image.ImageBlobRepository;
+import pl.tscript3r.photogram.post.image.ImageCache;
+import pl.tscript3r.photogram.post.image.ImageFormat;
 import pl.tscript3r.photogram.post.image.ImageService;
+import pl.tscript3r.photogram.post.image.ImageVariant;
+import pl.tscript3r.photogram.post.image.ImageVariantGenerator;
+import pl.tscript3r.photogram.post.image.LocalImageStore;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static pl.tscript3r.photogram.Consts.*;
 
 @DisplayName("Image service")
 class ImageServiceTest {
 
+    @TempDir
+    Path basePath;
+
     private ImageService imageService;
+    private LocalImageStore imageStore;
+    private ImageVariantGenerator imageVariantGenerator;
+    private Image image;
 
     @BeforeEach
     void init() {
-        imageService = new ImageService();
+        var imageConfig = new ImageConfig();
+        imageConfig.setBasePath(basePath.toString() + "/");
+        imageConfig.setCacheAdmissionThreshold(1);
+        imageStore = new LocalImageStore(imageConfig, mock(ImageBlobRepository.class),
+                mock(PlatformTransactionManager.class));
+        imageVariantGenerator = new ImageVariantGenerator(imageConfig);
+        imageService = new ImageService(imageConfig, imageStore, new ImageCache(imageConfig), imageVariantGenerator);
+        image = new Image(IMAGE_ID, IMAGE_EXTENSION);
+    }
+
+    @AfterEach
+    void destroy() {
+        imageVariantGenerator.destroy();
+    }
+
+    @Test
+    @DisplayName("Save and get post image")
+    void saveAndGetPostImage() throws IOException {
+        imageService.savePostImage(ID, image, IMAGE_MOCK_MULTIPART_FILE.getInputStream());
+        var result = imageService.getPostImage(ID, image);
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertNotNull(result.getHeaders().getETag());
+        assertTrue(result.getHeaders().getLastModified() > 0);
+        assertArrayEquals(IMAGE_MOCK_MULTIPART_FILE.getBytes(),
+                StreamUtils.copyToByteArray(result.getBody().getInputStream()));
+    }
+
+    @Test
+    @DisplayName("Get legacy post image")
+    void getLegacyPostImage() throws IOException {
+        var legacyPath = basePath.resolve("posts/" + ID + "/images/" + image.getFileName());
+        Files.createDirectories(legacyPath.getParent());
+        Files.write(legacyPath, IMAGE_MOCK_MULTIPART_FILE.getBytes());
+
+        var result = imageService.getPostImage(ID, image);
+        assertArrayEquals(IMAGE_MOCK_MULTIPART_FILE.getBytes(),
+                StreamUtils.copyToByteArray(result.getBody().getInputStream()));
+    }
+
+    @Test
+    @DisplayName("Get non existing post image")
+    void getNonExistingPostImage() {
+        assertThrows(NotFoundPhotogramException.class, () -> imageService.getPostImage(ID, image));
+    }
+
+    @Test
+    @DisplayName("Overwritten avatar is not served from cache")
+    void overwrittenAvatarInvalidated() throws IOException {
+        imageService.saveAvatar(ID, IMAGE_MOCK_MULTIPART_FILE.getInputStream());
+        var first = imageService.getAvatar(ID, ImageFormat.GIF);
+        assertEquals(first.getHeaders().getETag(), imageService.getAvatar(ID, ImageFormat.GIF).getHeaders().getETag());
+
+        var secondAvatar = encodePng();
+        assertEquals(ImageFormat.PNG, imageService.saveAvatar(ID, new ByteArrayInputStream(secondAvatar)));
+
+        var result = imageService.getAvatar(ID, ImageFormat.PNG);
+        assertEquals(MediaType.IMAGE_PNG, result.getHeaders().getContentType());
+        assertNotEquals(first.getHeaders().getETag(), result.getHeaders().getETag());
+        assertArrayEquals(secondAvatar, StreamUtils.copyToByteArray(result.getBody().getInputStream()));
+    }
+
+    @Test
+    @DisplayName("Get post image variant")
+    void getPostImageVariant() throws IOException {
+        imageVariantGenerator.destroy();
+        imageService.savePostImage(ID, image, IMAGE_MOCK_MULTIPART_FILE.getInputStream());
+        var original = imageStore.getPath(image.getBlobHash());
+        var variantContent = SECOND_CONTENT.getBytes();
+        Files.write(ImageVariant.MEDIUM.getPath(original), variantContent);
+
+        var result = imageService.getPostImage(ID, image, 600);
+        assertArrayEquals(variantContent, StreamUtils.copyToByteArray(result.getBody().getInputStream()));
+        assertTrue(result.getHeaders().getCacheControl().contains("immutable"));
     }
 
     @Test
-    @DisplayName("Save post image")
-    void savePostImage() {
+    @DisplayName("Get original until variant is generated")
+    void getOriginalUntilVariantGenerated() throws IOException {
+        imageVariantGenerator.destroy();
+        imageService.savePostImage(ID, image, IMAGE_MOCK_MULTIPART_FILE.getInputStream());
 
+        var result = imageService.getPostImage(ID, image, 150);
+        assertArrayEquals(IMAGE_MOCK_MULTIPART_FILE.getBytes(),
+                StreamUtils.copyToByteArray(result.getBody().getInputStream()));
+        assertEquals("no-cache", result.getHeaders().getCacheControl());
     }
-}
\ No newline at end of file
+
+    private byte[] encodePng() throws IOException {
+        var output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB), "png", output);
+        return output.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Detected metadata replaces the declared extension")
+    void detectedMetadata() throws IOException {
+        imageVariantGenerator.destroy();
+        var content = encodePng();
+
+        imageService.savePostImage(ID, image, new ByteArrayInputStream(content));
+
+        assertEquals("png", image.getExtension());
+        assertEquals(ImageFormat.PNG, image.getFormat());
+        assertEquals(3, image.getWidth().intValue());
+        assertEquals(2, image.getHeight().intValue());
+        assertEquals(content.length, image.getSize().longValue());
+        assertEquals(MediaType.IMAGE_PNG, imageService.getPostImage(ID, image).getHeaders().getContentType());
+    }
+
+    @Test
+    @DisplayName("Legacy image media type from the extension")
+    void legacyImageMediaType() throws IOException {
+        var legacyPath = basePath.resolve("posts/" + ID + "/images/" + image.getFileName());
+        Files.createDirectories(legacyPath.getParent());
+        Files.write(legacyPath, IMAGE_BYTES);
+
+        assertEquals(MediaType.IMAGE_JPEG, imageService.getPostImage(ID, image).getHeaders().getContentType());
+    }
+
+    @Test
+    @DisplayName("Save not an image")
+    void saveNotAnImage() {
+        var content = new ByteArrayInputStream(SECOND_CONTENT.getBytes());
+        assertThrows(BadRequestPhotogramException.class, () -> imageService.savePostImage(ID, image, content));
+        assertThrows(BadRequestPhotogramException.class, () -> imageService.saveAvatar(ID, content));
+    }
+
+    @Test
+    @DisplayName("Save too large post image")
+    void saveTooLargePostImage() {
+        var content = new ByteArrayInputStream(new byte[(int) DataSize.ofMegabytes(5).toBytes() + 1]);
+        assertThrows(BadRequestPhotogramException.class, () -> imageService.savePostImage(ID, image, content));
+    }
+
+}
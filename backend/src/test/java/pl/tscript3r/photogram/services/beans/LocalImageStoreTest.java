@@ -0,0 +1,165 @@
+package pl.tscript3r.photogram.services.beans;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+import pl.tscript3r.photogram.post.image.ImageBlob;
+import pl.tscript3r.photogram.post.image.ImageBlobRepository;
+import pl.tscript3r.photogram.post.image.ImageVariant;
+import pl.tscript3r.photogram.post.image.LocalImageStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static pl.tscript3r.photogram.Consts.SECOND_CONTENT;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Local image store")
+class LocalImageStoreTest {
+
+    private static final int HASH_LENGTH = 64;
+
+    @TempDir
+    Path basePath;
+
+    @Mock
+    ImageBlobRepository imageBlobRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private LocalImageStore imageStore;
+
+    @BeforeEach
+    void init() {
+        var imageConfig = new ImageConfig();
+        imageConfig.setBasePath(basePath.toString() + "/");
+        imageStore = new LocalImageStore(imageConfig, imageBlobRepository, transactionManager);
+    }
+
+    private String store() throws IOException {
+        return imageStore.store(new ByteArrayInputStream(SECOND_CONTENT.getBytes()));
+    }
+
+    @Test
+    @DisplayName("Store new blob")
+    void storeNewBlob() throws IOException {
+        when(imageBlobRepository.incrementReferences(any())).thenReturn(0);
+
+        var hash = store();
+
+        assertEquals(HASH_LENGTH, hash.length());
+        var path = imageStore.getPath(hash);
+        assertEquals(basePath.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+                .resolve(hash), path);
+        assertArrayEquals(SECOND_CONTENT.getBytes(), Files.readAllBytes(path));
+        verify(imageBlobRepository, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("Deduplicate stored blob")
+    void deduplicateBlob() throws IOException {
+        when(imageBlobRepository.incrementReferences(any())).thenReturn(0, 1);
+
+        var first = store();
+        var second = store();
+
+        assertEquals(first, second);
+        verify(imageBlobRepository, times(1)).save(any());
+        try (var files = Files.list(imageStore.getPath(first).getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrently inserted blob row incremented")
+    void concurrentlyInsertedBlob() throws IOException {
+        when(imageBlobRepository.incrementReferences(any())).thenReturn(0, 1);
+        when(imageBlobRepository.save(any())).thenThrow(new DataIntegrityViolationException("hash"));
+
+        var hash = store();
+
+        assertTrue(Files.exists(imageStore.getPath(hash)));
+        verify(imageBlobRepository, times(2)).incrementReferences(hash);
+    }
+
+    @Test
+    @DisplayName("Reference given back on rollback")
+    void releasedOnRollback() throws IOException {
+        when(imageBlobRepository.incrementReferences(any())).thenReturn(0);
+        when(imageBlobRepository.deleteUnreferenced(any())).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        String hash;
+        List<TransactionSynchronization> synchronizations;
+        try {
+            hash = store();
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(imageBlobRepository, times(1)).decrementReferences(hash);
+        assertFalse(Files.exists(imageStore.getPath(hash)));
+    }
+
+    @Test
+    @DisplayName("Release last reference")
+    void releaseLastReference() throws IOException {
+        when(imageBlobRepository.incrementReferences(any())).thenReturn(0);
+        when(imageBlobRepository.deleteUnreferenced(any())).thenReturn(1);
+        var hash = store();
+        var variant = Files.write(ImageVariant.THUMBNAIL.getPath(imageStore.getPath(hash)), new byte[1]);
+
+        imageStore.release(hash);
+
+        assertFalse(Files.exists(imageStore.getPath(hash)));
+        assertFalse(Files.exists(variant));
+    }
+
+    @Test
+    @DisplayName("Files of blob referenced again kept")
+    void releaseReferencedAgain() throws IOException {
+        when(imageBlobRepository.incrementReferences(any())).thenReturn(0);
+        when(imageBlobRepository.deleteUnreferenced(any())).thenReturn(1);
+        var hash = store();
+        when(imageBlobRepository.findByHash(hash)).thenReturn(Optional.of(new ImageBlob(hash)));
+
+        imageStore.release(hash);
+
+        assertTrue(Files.exists(imageStore.getPath(hash)));
+    }
+
+    @Test
+    @DisplayName("Release still referenced blob")
+    void releaseReferencedBlob() throws IOException {
+        when(imageBlobRepository.incrementReferences(any())).thenReturn(0);
+        when(imageBlobRepository.deleteUnreferenced(any())).thenReturn(0);
+        var hash = store();
+
+        imageStore.release(hash);
+
+        verify(imageBlobRepository, times(1)).decrementReferences(hash);
+        assertTrue(Files.exists(imageStore.getPath(hash)));
+    }
+
+}
@@ -0,0 +1,141 @@
+package pl.tscript3r.photogram.services.beans;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import pl.tscript3r.photogram.user.LoggedUserContext;
+import pl.tscript3r.photogram.user.User;
+import pl.tscript3r.photogram.user.UserRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static pl.tscript3r.photogram.Consts.*;
+import static pl.tscript3r.photogram.domains.UserTest.getDefaultUser;
+
+@DisplayName("Logged user context")
+@ExtendWith(MockitoExtension.class)
+class LoggedUserContextTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private LoggedUserContext loggedUserContext;
+
+    @BeforeEach
+    void init() {
+        loggedUserContext = new LoggedUserContext(userRepository, entityManager, transactionManager);
+    }
+
+    @AfterEach
+    void clearContexts() {
+        RequestContextHolder.resetRequestAttributes();
+        SecurityContextHolder.clearContext();
+    }
+
+    private void startRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @Test
+    @DisplayName("User resolved once per request")
+    void resolvedOnce() {
+        startRequest();
+        var user = getDefaultUser();
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(user));
+        when(entityManager.contains(user)).thenReturn(true);
+
+        assertSame(user, loggedUserContext.find(USERNAME).orElseThrow());
+        assertSame(user, loggedUserContext.find(USERNAME).orElseThrow());
+
+        verify(userRepository, times(1)).findByUsername(USERNAME);
+    }
+
+    @Test
+    @DisplayName("Detached user taken again by the id")
+    void detached() {
+        startRequest();
+        var user = getDefaultUser();
+        var attached = getDefaultUser();
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(user));
+        when(entityManager.contains(user)).thenReturn(false);
+        when(entityManager.find(User.class, ID)).thenReturn(attached);
+
+        loggedUserContext.find(USERNAME);
+
+        assertSame(attached, loggedUserContext.find(USERNAME).orElseThrow());
+        verify(userRepository, times(1)).findByUsername(USERNAME);
+    }
+
+    @Test
+    @DisplayName("Other username not served from the resolved user")
+    void otherUsername() {
+        startRequest();
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(getDefaultUser()));
+        when(userRepository.findByUsername(NAME)).thenReturn(Optional.empty());
+
+        loggedUserContext.find(USERNAME);
+
+        assertTrue(loggedUserContext.find(NAME).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Loaded on every call outside of a request")
+    void outsideRequest() {
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(getDefaultUser()));
+
+        loggedUserContext.find(USERNAME);
+        loggedUserContext.find(USERNAME);
+
+        verify(userRepository, times(2)).findByUsername(USERNAME);
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    @DisplayName("Anonymous user not resolved")
+    void anonymous() {
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(USERNAME, USERNAME,
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        assertTrue(loggedUserContext.find().isEmpty());
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD, List.of()));
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(getDefaultUser()));
+        assertTrue(loggedUserContext.find().isPresent());
+    }
+
+    @Test
+    @DisplayName("Logged user loaded in a transaction")
+    void transactional() {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD, List.of()));
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(getDefaultUser()));
+
+        loggedUserContext.find();
+
+        verify(transactionManager).getTransaction(any());
+        verify(transactionManager).commit(any());
+    }
+
+}
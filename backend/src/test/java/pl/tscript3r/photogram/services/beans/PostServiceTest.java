@@ -8,9 +8,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
 import pl.tscript3r.photogram.infrastructure.exception.ForbiddenPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.IgnoredPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
@@ -21,11 +23,18 @@ import pl.tscript3r.photogram.post.PostRepository;
 import pl.tscript3r.photogram.post.PostService;
 import pl.tscript3r.photogram.post.Reactions;
 import pl.tscript3r.photogram.post.api.v1.PostDto;
+import pl.tscript3r.photogram.post.api.v1.PostFeedAssembler;
 import pl.tscript3r.photogram.post.image.ImageService;
+import pl.tscript3r.photogram.post.image.UploadSession;
+import pl.tscript3r.photogram.post.image.UploadSessionService;
+import pl.tscript3r.photogram.post.reaction.ReactionIndex;
+import pl.tscript3r.photogram.post.timeline.TimelineService;
 import pl.tscript3r.photogram.user.AuthorizationService;
 import pl.tscript3r.photogram.user.UserService;
 import pl.tscript3r.photogram.user.role.RoleService;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -42,6 +51,9 @@ import static pl.tscript3r.photogram.domains.UserTest.getDefaultUser;
 @ExtendWith(MockitoExtension.class)
 class PostServiceTest {
 
+    private static final String UPLOAD_ID = "upload";
+    private static final int PAGE_SIZE = 20;
+
     @Mock
     UserService userService;
 
@@ -54,6 +66,9 @@ class PostServiceTest {
     @Mock
     ImageService imageService;
 
+    @Mock
+    UploadSessionService uploadSessionService;
+
     @Mock
     Pageable pageable;
 
@@ -63,22 +78,54 @@ class PostServiceTest {
     @Mock
     AuthorizationService authorizationService;
 
+    @Mock
+    PostFeedAssembler postFeedAssembler;
+
+    @Mock
+    TimelineService timelineService;
+
+    @Mock
+    ReactionIndex reactionIndex;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
     @InjectMocks
     PostService postService;
 
     @Test
     @DisplayName("Get latest with default pageable")
     void getLatest() {
-        when(postRepository.findAllByValidIsTrue(any())).thenReturn(getDomainSlice());
-        when(mapperService.map(any(DataStructure.class), any())).thenReturn(getDefaultPostDto());
-        var result = postService.getLatest(pageable);
+        when(postRepository.findDtos(any())).thenReturn(new SliceImpl<>(getDtoList()));
+        when(postFeedAssembler.assemble(any())).thenReturn(new SliceImpl<>(getDtoList()));
+        var result = postService.getLatest(null, pageable);
         assertEquals(1, result.getContent().size());
-        verify(postRepository, times(1)).findAllByValidIsTrue(any());
-        verify(mapperService, times(1)).map(any(DataStructure.class), any());
+        verify(postRepository, times(1)).findDtos(any());
+        verify(postFeedAssembler, times(1)).assemble(any());
+    }
+
+    @Test
+    @DisplayName("Get latest before cursor")
+    void getLatestBeforeCursor() {
+        when(pageable.getPageSize()).thenReturn(PAGE_SIZE);
+        when(postRepository.findDtosBefore(any(), any())).thenReturn(new SliceImpl<>(getDtoList()));
+        when(postFeedAssembler.assemble(any())).thenReturn(new SliceImpl<>(getDtoList()));
+        postService.getLatest(ID, pageable);
+        verify(postRepository, times(1)).findDtosBefore(ID,
+                PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "id")));
+        verify(postRepository, never()).findDtos(any());
     }
 
-    private Slice<Post> getDomainSlice() {
-        return new SliceImpl<>(Collections.singletonList(getDefaultPost()));
+    @Test
+    @DisplayName("Get latest from username before cursor")
+    void getLatestFromUserBeforeCursor() {
+        when(pageable.getPageSize()).thenReturn(PAGE_SIZE);
+        when(userService.getByUsername(any())).thenReturn(getDefaultUser());
+        when(postRepository.findDtosByUserIdBefore(any(), any(), any())).thenReturn(new SliceImpl<>(getDtoList()));
+        when(postFeedAssembler.assemble(any())).thenReturn(new SliceImpl<>(getDtoList()));
+        postService.getLatest(USERNAME, ID, pageable);
+        verify(postRepository, times(1)).findDtosByUserIdBefore(eq(ID), eq(ID), any());
+        verify(postRepository, never()).findDtosByUserId(any(), any());
     }
 
     private List<PostDto> getDtoList() {
@@ -89,26 +136,26 @@ class PostServiceTest {
     @DisplayName("Get latest from username")
     void getLatestFromUser() {
         when(userService.getByUsername(any())).thenReturn(getDefaultUser());
-        when(postRepository.findByUserIdAndValidIsTrue(any(), any())).thenReturn(getDomainSlice());
-        when(mapperService.map(any(DataStructure.class), any())).thenReturn(getDefaultPostDto());
-        var result = postService.getLatest(USERNAME, pageable);
+        when(postRepository.findDtosByUserId(any(), any())).thenReturn(new SliceImpl<>(getDtoList()));
+        when(postFeedAssembler.assemble(any())).thenReturn(new SliceImpl<>(getDtoList()));
+        var result = postService.getLatest(USERNAME, null, pageable);
         assertEquals(1, result.getContent().size());
         verify(userService, times(1)).getByUsername(any());
-        verify(postRepository, times(1)).findByUserIdAndValidIsTrue(any(), any());
-        verify(mapperService, times(1)).map(any(DataStructure.class), any());
+        verify(postRepository, times(1)).findDtosByUserId(any(), any());
+        verify(postFeedAssembler, times(1)).assemble(any());
     }
 
     @Test
     @DisplayName("Get latest from principal")
     void getLatestFromPrincipal() {
         when(userService.getByPrincipal(any())).thenReturn(getDefaultUser());
-        when(postRepository.findByUserIdAndValidIsTrue(any(), any())).thenReturn(getDomainSlice());
-        when(mapperService.map(any(DataStructure.class), any())).thenReturn(getDefaultPostDto());
-        var result = postService.getLatest(() -> USERNAME, pageable);
+        when(postRepository.findDtosByUserId(any(), any())).thenReturn(new SliceImpl<>(getDtoList()));
+        when(postFeedAssembler.assemble(any())).thenReturn(new SliceImpl<>(getDtoList()));
+        var result = postService.getLatest(() -> USERNAME, null, pageable);
         assertEquals(1, result.getContent().size());
         verify(userService, times(1)).getByPrincipal(any());
-        verify(postRepository, times(1)).findByUserIdAndValidIsTrue(any(), any());
-        verify(mapperService, times(1)).map(any(DataStructure.class), any());
+        verify(postRepository, times(1)).findDtosByUserId(any(), any());
+        verify(postFeedAssembler, times(1)).assemble(any());
     }
 
     @Test
@@ -253,6 +300,8 @@ class PostServiceTest {
         verify(postRepository, times(1)).findById(any());
         verify(authorizationService, times(1)).requireLogin(any());
         verify(authorizationService, times(1)).accessValidation(any(), any());
+        verify(timelineService, times(1)).remove(ID);
+        verify(reactionIndex, times(1)).removePost(ID);
         verify(postRepository, times(1)).delete(any());
     }
 
@@ -274,152 +323,285 @@ class PostServiceTest {
         verify(postRepository, times(0)).delete(any());
     }
 
-    @Test
-    @DisplayName("Successful like")
-    void likeSuccessful() {
-        reactionTest(Reactions.LIKE, LIKES + 1, DISLIKES, false);
+    private void stubReactingUser() {
+        when(postRepository.existsById(any())).thenReturn(true);
+        when(userService.getByPrincipal(any())).thenReturn(getDefaultUser());
     }
 
-    private Post reactionTest(final Reactions reactions, final int expectedLikesCount,
-                              final int expectedDislikesCount, final boolean beforeAddLikedPostToUser) {
-        var processedPost = getDefaultPost();
-        var processedUser = getDefaultUser();
-
-        if (beforeAddLikedPostToUser) {
-            processedUser.addLikedPost(processedPost);
-            processedUser.addDislikedPost(processedPost);
-        }
-
-        when(postRepository.findById(any())).thenReturn(Optional.of(processedPost));
-        when(userService.getByPrincipal(any())).thenReturn(processedUser);
-        when(postRepository.save(any())).thenReturn(processedPost);
+    private void stubReactedPost() {
+        when(postRepository.findById(any())).thenReturn(Optional.of(getDefaultPost()));
         when(mapperService.map(any(Post.class), any())).thenReturn(getDefaultPostDto());
+    }
 
-        assertNotNull(postService.react(reactions, () -> USERNAME, ID));
-
-        verify(authorizationService, times(1)).requireLogin(any());
-        verify(postRepository, times(1)).save(any());
-        verify(userService, times(1)).update(any());
+    @Test
+    @DisplayName("Successful like")
+    void likeSuccessful() {
+        stubReactingUser();
+        stubReactedPost();
+        when(postRepository.insertLike(ID, ID)).thenReturn(1);
 
-        assertEquals(expectedLikesCount, processedPost.getLikes().intValue());
-        assertEquals(expectedDislikesCount, processedPost.getDislikes().intValue());
+        assertNotNull(postService.react(Reactions.LIKE, () -> USERNAME, ID));
 
-        return processedPost;
+        verify(authorizationService, times(1)).requireLogin(any());
+        verify(postRepository, times(1)).incrementLikes(ID);
+        verify(postRepository, never()).save(any());
+        verify(reactionIndex, times(1)).record(Reactions.LIKE, ID, ID);
     }
 
     @Test
     @DisplayName("Successful unlike")
     void unlikeSuccessful() {
-        reactionTest(Reactions.UNLIKE, LIKES - 1, DISLIKES, true);
+        stubReactingUser();
+        stubReactedPost();
+        when(postRepository.deleteLike(ID, ID)).thenReturn(1);
+
+        assertNotNull(postService.react(Reactions.UNLIKE, () -> USERNAME, ID));
+
+        verify(postRepository, times(1)).decrementLikes(ID);
     }
 
     @Test
     @DisplayName("Successful dislike")
     void dislikeSuccessful() {
-        reactionTest(Reactions.DISLIKE, LIKES, DISLIKES + 1, false);
+        stubReactingUser();
+        stubReactedPost();
+        when(postRepository.insertDislike(ID, ID)).thenReturn(1);
+
+        assertNotNull(postService.react(Reactions.DISLIKE, () -> USERNAME, ID));
+
+        verify(postRepository, times(1)).incrementDislikes(ID);
     }
 
     @Test
     @DisplayName("Successful undislike")
     void undislikeSuccessful() {
-        reactionTest(Reactions.UNDISLIKE, LIKES, DISLIKES - 1, true);
+        stubReactingUser();
+        stubReactedPost();
+        when(postRepository.deleteDislike(ID, ID)).thenReturn(1);
+
+        assertNotNull(postService.react(Reactions.UNDISLIKE, () -> USERNAME, ID));
+
+        verify(postRepository, times(1)).decrementDislikes(ID);
     }
 
     @Test
     @DisplayName("Redundant like")
     void redundantLike() {
-        reactionTest(Reactions.LIKE, LIKES + 1, DISLIKES, false);
+        stubReactingUser();
+        when(postRepository.insertLike(ID, ID)).thenReturn(0);
         assertThrows(IgnoredPhotogramException.class, () -> postService.react(Reactions.LIKE, () -> USERNAME, ID));
+        verify(postRepository, never()).incrementLikes(any());
     }
 
     @Test
     @DisplayName("Redundant dislike")
     void redundantDislike() {
-        reactionTest(Reactions.DISLIKE, LIKES, DISLIKES + 1, false);
+        stubReactingUser();
+        when(postRepository.insertDislike(ID, ID)).thenReturn(0);
         assertThrows(IgnoredPhotogramException.class, () -> postService.react(Reactions.DISLIKE, () -> USERNAME, ID));
+        verify(postRepository, never()).incrementDislikes(any());
     }
 
     @Test
     @DisplayName("Not liked undo like")
     void notLikedUndoLike() {
-        when(postRepository.findById(any())).thenReturn(Optional.of(getDefaultPost()));
-        when(userService.getByPrincipal(any())).thenReturn(getDefaultUser());
+        stubReactingUser();
+        when(postRepository.deleteLike(ID, ID)).thenReturn(0);
         assertThrows(IgnoredPhotogramException.class, () -> postService.react(Reactions.UNLIKE, () -> USERNAME, ID));
+        verify(postRepository, never()).decrementLikes(any());
     }
 
     @Test
     @DisplayName("Not disliked undo dislike")
     void notDislikedUndoDislike() {
-        when(postRepository.findById(any())).thenReturn(Optional.of(getDefaultPost()));
-        when(userService.getByPrincipal(any())).thenReturn(getDefaultUser());
+        stubReactingUser();
+        when(postRepository.deleteDislike(ID, ID)).thenReturn(0);
         assertThrows(IgnoredPhotogramException.class, () -> postService.react(Reactions.UNDISLIKE, () -> USERNAME, ID));
+        verify(postRepository, never()).decrementDislikes(any());
+    }
+
+    @Test
+    @DisplayName("React to not existing post")
+    void reactNotExisting() {
+        when(postRepository.existsById(any())).thenReturn(false);
+        assertThrows(NotFoundPhotogramException.class, () -> postService.react(Reactions.LIKE, () -> USERNAME, ID));
+        verify(postRepository, never()).insertLike(any(), any());
     }
 
     @Test
     @DisplayName("Opposite reaction (dislike) auto remove")
     void oppositeReactionDislikeAutoRemove() {
-        var processedPost = getDefaultPost();
-        var processedUser = getDefaultUser();
-        processedUser.addDislikedPost(processedPost);
-        assertTrue(processedUser.hasDislikedPost(processedPost));
+        stubReactingUser();
+        stubReactedPost();
+        when(postRepository.insertLike(ID, ID)).thenReturn(1);
+        when(postRepository.deleteDislike(ID, ID)).thenReturn(1);
 
-        when(postRepository.findById(any())).thenReturn(Optional.of(processedPost));
-        when(userService.getByPrincipal(any())).thenReturn(processedUser);
-        when(postRepository.save(any())).thenReturn(processedPost);
-        when(mapperService.map(any(Post.class), any())).thenReturn(getDefaultPostDto());
         postService.react(Reactions.LIKE, () -> USERNAME, ID);
 
-        assertFalse(processedUser.hasDislikedPost(processedPost));
+        verify(postRepository, times(1)).decrementDislikes(ID);
+        verify(userService, never()).update(any());
     }
 
     @Test
     @DisplayName("Opposite reaction (like) auto remove")
     void oppositeReactionLikeAutoRemove() {
-        var processedPost = getDefaultPost();
-        var processedUser = getDefaultUser();
-        processedUser.addLikedPost(processedPost);
-        assertTrue(processedUser.hasLikedPost(processedPost));
+        stubReactingUser();
+        stubReactedPost();
+        when(postRepository.insertDislike(ID, ID)).thenReturn(1);
+        when(postRepository.deleteLike(ID, ID)).thenReturn(1);
 
-        when(postRepository.findById(any())).thenReturn(Optional.of(processedPost));
-        when(userService.getByPrincipal(any())).thenReturn(processedUser);
-        when(postRepository.save(any())).thenReturn(processedPost);
-        when(mapperService.map(any(Post.class), any())).thenReturn(getDefaultPostDto());
         postService.react(Reactions.DISLIKE, () -> USERNAME, ID);
 
-        assertFalse(processedUser.hasLikedPost(processedPost));
+        verify(postRepository, times(1)).decrementLikes(ID);
+    }
+
+    @Test
+    @DisplayName("Not reacted opposite is not decremented")
+    void notReactedOpposite() {
+        stubReactingUser();
+        stubReactedPost();
+        when(postRepository.insertLike(ID, ID)).thenReturn(1);
+        when(postRepository.deleteDislike(ID, ID)).thenReturn(0);
+
+        postService.react(Reactions.LIKE, () -> USERNAME, ID);
+
+        verify(postRepository, never()).decrementDislikes(any());
     }
 
     @Test
     @DisplayName("Successful save image")
-    void successfulSaveImage() {
+    void successfulSaveImage() throws IOException {
         var post = getDefaultPost();
         post.getImages().remove(IMAGE);
         when(postRepository.findById(any())).thenReturn(Optional.of(post));
+        when(postRepository.findForUpdateById(any())).thenReturn(Optional.of(post));
         when(authorizationService.requireLogin(any())).thenReturn(authorizationService);
-        when(imageService.getNextId(any())).thenReturn(IMAGE_ID);
         when(postRepository.save(any())).thenReturn(post);
 
-        postService.saveImage(() -> USERNAME, ID, IMAGE_MOCK_MULTIPART_FILE);
+        postService.saveImage(() -> USERNAME, ID, IMAGE_MOCK_MULTIPART_FILE.getInputStream(), IMAGE_EXTENSION);
 
+        verify(postRepository, times(1)).findForUpdateById(any());
         verify(authorizationService, times(1)).requireLogin(any());
         verify(authorizationService, times(1)).accessValidation(any(), any());
-        verify(imageService, times(1)).getNextId(any());
-        assertNotNull(post.getImage(IMAGE_ID));
+        assertEquals(1, post.getImages().size());
+        assertEquals(1000L, post.getImages().get(0).getImageId().longValue());
         verify(imageService, times(1)).savePostImage(any(), any(), any());
         verify(postRepository, times(1)).save(any());
         verify(mapperService, times(1)).map(any(Post.class), any());
+        assertTrue(post.getValid());
+        verify(timelineService, times(1)).publish(post);
+    }
+
+    @Test
+    @DisplayName("Save image to already valid post is not published again")
+    void saveImageToValidPost() throws IOException {
+        var post = getDefaultPost();
+        post.setValid(true);
+        when(postRepository.findById(any())).thenReturn(Optional.of(post));
+        when(postRepository.findForUpdateById(any())).thenReturn(Optional.of(post));
+        when(authorizationService.requireLogin(any())).thenReturn(authorizationService);
+        when(postRepository.save(any())).thenReturn(post);
+
+        postService.saveImage(() -> USERNAME, ID, IMAGE_MOCK_MULTIPART_FILE.getInputStream(), IMAGE_EXTENSION);
+
+        verify(timelineService, never()).publish(any());
+    }
+
+    @Test
+    @DisplayName("Stored image released when it can not be attached")
+    void saveImageToRemovedPost() throws IOException {
+        when(postRepository.findById(any())).thenReturn(Optional.of(getDefaultPost()));
+        when(postRepository.findForUpdateById(any())).thenReturn(Optional.empty());
+        when(authorizationService.requireLogin(any())).thenReturn(authorizationService);
+
+        assertThrows(NotFoundPhotogramException.class, () -> postService.saveImage(() -> USERNAME, ID,
+                IMAGE_MOCK_MULTIPART_FILE.getInputStream(), IMAGE_EXTENSION));
+
+        verify(imageService, times(1)).savePostImage(any(), any(), any());
+        verify(imageService, times(1)).deletePostImages(any());
+    }
+
+    @Test
+    @DisplayName("Get timeline")
+    void getTimeline() {
+        when(pageable.getPageSize()).thenReturn(1);
+        when(userService.getByPrincipal(any())).thenReturn(getDefaultUser());
+        when(timelineService.getPostIds(any(), any(), anyInt())).thenReturn(List.of(SECOND_ID, ID));
+        when(postRepository.findDtosByIds(any(), any())).thenReturn(getDtoList());
+        when(postFeedAssembler.assemble(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var result = postService.getTimeline(() -> USERNAME, null, pageable);
+
+        assertTrue(result.hasNext());
+        verify(authorizationService, times(1)).requireLogin(any());
+        verify(timelineService, times(1)).getPostIds(ID, null, 2);
+        verify(postRepository, times(1)).findDtosByIds(eq(List.of(SECOND_ID)), any());
+    }
+
+    private UploadSession getUploadSession() {
+        var session = mock(UploadSession.class);
+        when(session.getPostId()).thenReturn(ID);
+        when(session.getUserId()).thenReturn(ID);
+        when(uploadSessionService.get(any())).thenReturn(session);
+        when(authorizationService.requireLogin(any())).thenReturn(authorizationService);
+        return session;
+    }
+
+    @Test
+    @DisplayName("Upload not completing chunk")
+    void uploadNotCompletingChunk() {
+        getUploadSession();
+        when(uploadSessionService.write(any(), anyLong(), any(), any())).thenReturn(false);
+
+        var result = postService.uploadChunk(() -> USERNAME, ID, UPLOAD_ID, 0, new ByteArrayInputStream(new byte[1]), null);
+
+        assertNull(result.getPost());
+        verify(imageService, times(0)).savePostImage(any(), any(), any());
+        verify(uploadSessionService, times(0)).remove(any());
+    }
+
+    @Test
+    @DisplayName("Upload completing chunk finalizes the image")
+    void uploadCompletingChunk() throws IOException {
+        var session = getUploadSession();
+        var post = getDefaultPost();
+        post.getImages().clear();
+        when(uploadSessionService.write(any(), anyLong(), any(), any())).thenReturn(true);
+        when(uploadSessionService.open(any())).thenReturn(new ByteArrayInputStream(new byte[1]));
+        when(postRepository.findById(any())).thenReturn(Optional.of(post));
+        when(postRepository.findForUpdateById(any())).thenReturn(Optional.of(post));
+        when(postRepository.save(any())).thenReturn(post);
+        when(mapperService.map(any(Post.class), any())).thenReturn(getDefaultPostDto());
+
+        var result = postService.uploadChunk(() -> USERNAME, ID, UPLOAD_ID, 0, new ByteArrayInputStream(new byte[1]), null);
+
+        assertNotNull(result.getPost());
+        assertTrue(post.getValid());
+        verify(imageService, times(1)).savePostImage(any(), any(), any());
+        verify(uploadSessionService, times(1)).remove(session);
+    }
+
+    @Test
+    @DisplayName("Upload chunk to other post session")
+    void uploadChunkOtherPost() {
+        var session = mock(UploadSession.class);
+        when(session.getPostId()).thenReturn(ID);
+        when(uploadSessionService.get(any())).thenReturn(session);
+        assertThrows(NotFoundPhotogramException.class, () -> postService.uploadChunk(() -> USERNAME, SECOND_ID, UPLOAD_ID,
+                0, new ByteArrayInputStream(new byte[1]), null));
+        verify(uploadSessionService, times(0)).write(any(), anyLong(), any(), any());
     }
 
     @Test
     @DisplayName("Get existing image")
     void getExistingImage() {
         when(postRepository.findById(any())).thenReturn(Optional.of(getDefaultPost()));
-        when(imageService.getPostImage(any(), any())).thenReturn(IMAGE_RESPONSE_ENTITY);
+        when(imageService.getPostImage(any(), any(), any())).thenReturn(IMAGE_RESPONSE_ENTITY);
 
-        assertNotNull(postService.getImage(ID, IMAGE_ID));
+        assertNotNull(postService.getImage(ID, IMAGE_ID, null));
 
         verify(postRepository, times(1)).findById(any());
-        verify(imageService, times(1)).getPostImage(any(), any());
+        verify(imageService, times(1)).getPostImage(any(), any(), any());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,204 @@
+package pl.tscript3r.photogram.services.beans;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.tscript3r.photogram.infrastructure.configuration.ReactionConfig;
+import pl.tscript3r.photogram.post.PostRepository;
+import pl.tscript3r.photogram.post.Reactions;
+import pl.tscript3r.photogram.post.reaction.ReactionIndex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static pl.tscript3r.photogram.Consts.ID;
+import static pl.tscript3r.photogram.Consts.SECOND_ID;
+import static pl.tscript3r.photogram.Consts.THIRD_ID;
+
+@DisplayName("Reaction index")
+@ExtendWith(MockitoExtension.class)
+class ReactionIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    PostRepository postRepository;
+
+    private ReactionConfig reactionConfig;
+    private ReactionIndex reactionIndex;
+
+    @BeforeEach
+    void init() {
+        reactionConfig = new ReactionConfig();
+        reactionConfig.setSnapshotPath(directory.resolve("reactions.snapshot").toString());
+        reactionIndex = new ReactionIndex(postRepository, reactionConfig);
+    }
+
+    private static final long SEQUENCE = 5;
+
+    private void stubSequence(final Long... sequences) {
+        when(postRepository.getReactionSequence()).thenReturn(sequences[0],
+                Arrays.copyOfRange(sequences, 1, sequences.length));
+    }
+
+    // likes: post 1 by user 1, post 2 by user 1; dislikes: post 1 by user 2
+    private void stubRows() {
+        when(postRepository.streamLikes())
+                .thenReturn(Stream.of(new Object[]{ID, ID}, new Object[]{SECOND_ID, ID}));
+        when(postRepository.streamDislikes()).thenReturn(Stream.<Object[]>of(new Object[]{ID, SECOND_ID}));
+    }
+
+    @Test
+    @DisplayName("Database queried until loaded")
+    void notReady() {
+        when(postRepository.existsLike(ID, ID)).thenReturn(true);
+        when(postRepository.findDislikedIds(ID, List.of(ID))).thenReturn(Set.of());
+        assertTrue(reactionIndex.isLiked(ID, ID));
+        assertTrue(reactionIndex.getDislikedIds(ID, List.of(ID)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Built from the reaction tables")
+    void build() {
+        stubSequence(SEQUENCE);
+        stubRows();
+
+        reactionIndex.load();
+
+        assertTrue(reactionIndex.isReady());
+        assertEquals(Set.of(ID, SECOND_ID), reactionIndex.getLikedIds(ID, List.of(ID, SECOND_ID)));
+        assertTrue(reactionIndex.isDisliked(SECOND_ID, ID));
+        assertFalse(reactionIndex.isLiked(SECOND_ID, ID));
+        verify(postRepository, never()).existsLike(any(), any());
+        verify(postRepository, never()).findLikedIds(any(), any());
+    }
+
+    @Test
+    @DisplayName("Restored from a matching snapshot")
+    void restore() throws IOException {
+        stubSequence(SEQUENCE);
+        stubRows();
+        reactionIndex.load();
+        reactionIndex.snapshot();
+
+        var restored = new ReactionIndex(postRepository, reactionConfig);
+        restored.load();
+
+        verify(postRepository, times(1)).streamLikes();
+        verify(postRepository, times(1)).streamDislikes();
+        assertEquals(Set.of(ID, SECOND_ID), restored.getLikedIds(ID, List.of(ID, SECOND_ID)));
+        assertTrue(restored.isDisliked(SECOND_ID, ID));
+    }
+
+    @Test
+    @DisplayName("Rebuilt when the snapshot is behind the reaction sequence")
+    void staleSnapshot() throws IOException {
+        stubSequence(SEQUENCE);
+        stubRows();
+        reactionIndex.load();
+        reactionIndex.snapshot();
+        stubSequence(SEQUENCE + 1);
+        when(postRepository.streamLikes()).thenReturn(Stream.<Object[]>of(new Object[]{ID, ID}));
+        when(postRepository.streamDislikes()).thenReturn(Stream.<Object[]>of(new Object[]{ID, SECOND_ID}));
+
+        var restored = new ReactionIndex(postRepository, reactionConfig);
+        restored.load();
+
+        assertEquals(Set.of(ID), restored.getLikedIds(ID, List.of(ID, SECOND_ID)));
+    }
+
+    @Test
+    @DisplayName("Rebuilt when the reactions are re-paired with the same counts")
+    void repairedReactions() throws IOException {
+        stubSequence(SEQUENCE);
+        when(postRepository.streamLikes()).thenReturn(Stream.of(new Object[]{ID, SECOND_ID},
+                new Object[]{SECOND_ID, THIRD_ID}, new Object[]{THIRD_ID, ID}));
+        when(postRepository.streamDislikes()).thenReturn(Stream.empty());
+        reactionIndex.load();
+        reactionIndex.snapshot();
+        // same count and sums of the ids, the users swapped their likes
+        stubSequence(SEQUENCE + 6);
+        when(postRepository.streamLikes()).thenReturn(Stream.of(new Object[]{ID, THIRD_ID},
+                new Object[]{SECOND_ID, ID}, new Object[]{THIRD_ID, SECOND_ID}));
+        when(postRepository.streamDislikes()).thenReturn(Stream.empty());
+
+        var restored = new ReactionIndex(postRepository, reactionConfig);
+        restored.load();
+
+        assertEquals(Set.of(SECOND_ID), restored.getLikedIds(ID, List.of(ID, SECOND_ID, THIRD_ID)));
+    }
+
+    @Test
+    @DisplayName("Snapshot with a recorded reaction restored")
+    void restoreRecorded() throws IOException {
+        stubSequence(SEQUENCE, SEQUENCE + 1, SEQUENCE + 1);
+        stubRows();
+        reactionIndex.load();
+        reactionIndex.record(Reactions.LIKE, THIRD_ID, ID);
+        reactionIndex.snapshot();
+
+        var restored = new ReactionIndex(postRepository, reactionConfig);
+        restored.load();
+
+        verify(postRepository, times(1)).streamLikes();
+        assertTrue(restored.isLiked(ID, THIRD_ID));
+    }
+
+    @Test
+    @DisplayName("Stale when behind the reactions of the other instances")
+    void stale() {
+        stubSequence(SEQUENCE, SEQUENCE + 2, SEQUENCE + 2);
+        stubRows();
+        reactionIndex.load();
+
+        assertFalse(reactionIndex.isStale());
+        assertTrue(reactionIndex.isStale());
+    }
+
+    @Test
+    @DisplayName("Not stale once the recorded reactions are applied")
+    void notStale() {
+        stubSequence(SEQUENCE, SEQUENCE + 2, SEQUENCE + 1, SEQUENCE + 2, SEQUENCE + 2);
+        stubRows();
+        reactionIndex.load();
+
+        assertFalse(reactionIndex.isStale());
+        reactionIndex.record(Reactions.LIKE, THIRD_ID, ID);
+        reactionIndex.record(Reactions.DISLIKE, THIRD_ID, SECOND_ID);
+        assertFalse(reactionIndex.isStale());
+        verify(postRepository, times(2)).incrementReactionSequence();
+    }
+
+    @Test
+    @DisplayName("Reactions recorded")
+    void record() {
+        stubSequence(SEQUENCE, SEQUENCE + 1, SEQUENCE + 2, SEQUENCE + 3, SEQUENCE + 4);
+        stubRows();
+        reactionIndex.load();
+
+        reactionIndex.record(Reactions.DISLIKE, ID, ID);
+        assertTrue(reactionIndex.isDisliked(ID, ID));
+        assertFalse(reactionIndex.isLiked(ID, ID));
+
+        reactionIndex.record(Reactions.LIKE, ID, ID);
+        assertTrue(reactionIndex.isLiked(ID, ID));
+        assertFalse(reactionIndex.isDisliked(ID, ID));
+
+        reactionIndex.record(Reactions.UNLIKE, ID, ID);
+        reactionIndex.removePost(SECOND_ID);
+        assertTrue(reactionIndex.getLikedIds(ID, List.of(ID, SECOND_ID)).isEmpty());
+    }
+
+}
@@ -0,0 +1,161 @@
+package pl.tscript3r.photogram.services.beans;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import pl.tscript3r.photogram.infrastructure.configuration.TimelineConfig;
+import pl.tscript3r.photogram.post.PostRepository;
+import pl.tscript3r.photogram.post.timeline.PulledAuthor;
+import pl.tscript3r.photogram.post.timeline.TimelineEntryRepository;
+import pl.tscript3r.photogram.post.timeline.TimelineService;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static pl.tscript3r.photogram.Consts.ID;
+import static pl.tscript3r.photogram.Consts.SECOND_ID;
+import static pl.tscript3r.photogram.Consts.THIRD_ID;
+import static pl.tscript3r.photogram.domains.PostTest.getDefaultPost;
+
+@DisplayName("Timeline service")
+@ExtendWith(MockitoExtension.class)
+class TimelineServiceTest {
+
+    private static final int FAN_OUT_FOLLOWER_LIMIT = 10;
+    private static final int FAN_OUT_HYSTERESIS = 2;
+    private static final int BACKFILL_BATCH_SIZE = 2;
+
+    @Mock
+    TimelineEntryRepository timelineEntryRepository;
+
+    @Mock
+    PostRepository postRepository;
+
+    private TimelineService timelineService;
+
+    @BeforeEach
+    void init() {
+        var timelineConfig = new TimelineConfig();
+        timelineConfig.setFanOutFollowerLimit(FAN_OUT_FOLLOWER_LIMIT);
+        timelineConfig.setFanOutHysteresis(FAN_OUT_HYSTERESIS);
+        timelineConfig.setBackfillBatchSize(BACKFILL_BATCH_SIZE);
+        timelineService = new TimelineService(timelineEntryRepository, postRepository, timelineConfig);
+    }
+
+    @Test
+    @DisplayName("Publish pushes the post to the followers")
+    void publish() {
+        when(timelineEntryRepository.countFollowers(ID)).thenReturn((long) FAN_OUT_FOLLOWER_LIMIT);
+        timelineService.publish(getDefaultPost());
+        verify(timelineEntryRepository, times(1)).fanOut(ID, ID);
+    }
+
+    @Test
+    @DisplayName("Publish skips authors pulled on read")
+    void publishPulledAuthor() {
+        when(timelineEntryRepository.countFollowers(ID)).thenReturn(FAN_OUT_FOLLOWER_LIMIT + 1L);
+        timelineService.publish(getDefaultPost());
+        verify(timelineEntryRepository, times(1)).insertPulled(ID);
+        verify(timelineEntryRepository, never()).fanOut(any(), any());
+    }
+
+    @Test
+    @DisplayName("Author kept pulled within the hysteresis")
+    void publishWithinHysteresis() {
+        when(timelineEntryRepository.isPulled(ID)).thenReturn(true);
+        when(timelineEntryRepository.countFollowers(ID))
+                .thenReturn((long) FAN_OUT_FOLLOWER_LIMIT - FAN_OUT_HYSTERESIS);
+        timelineService.publish(getDefaultPost());
+        verify(timelineEntryRepository, never()).deletePulled(any());
+        verify(timelineEntryRepository, never()).fanOut(any(), any());
+    }
+
+    @Test
+    @DisplayName("Author pushed again, the followers backfilled later")
+    void publishPushedAgain() {
+        when(timelineEntryRepository.isPulled(ID)).thenReturn(true);
+        when(timelineEntryRepository.countFollowers(ID))
+                .thenReturn(FAN_OUT_FOLLOWER_LIMIT - FAN_OUT_HYSTERESIS - 1L);
+        when(timelineEntryRepository.markPushed(ID)).thenReturn(1);
+        timelineService.publish(getDefaultPost());
+        verify(timelineEntryRepository, never()).backfillFollowers(any(), any(), anyInt());
+        verify(timelineEntryRepository, times(1)).fanOut(ID, ID);
+    }
+
+    @Test
+    @DisplayName("Author pulled again before its backfill completed")
+    void publishPulledAgain() {
+        when(timelineEntryRepository.countFollowers(ID)).thenReturn(FAN_OUT_FOLLOWER_LIMIT + 1L);
+        when(timelineEntryRepository.insertPulled(ID)).thenReturn(0);
+        timelineService.publish(getDefaultPost());
+        verify(timelineEntryRepository, times(1)).markPulled(ID);
+        verify(timelineEntryRepository, never()).fanOut(any(), any());
+    }
+
+    @Test
+    @DisplayName("Unfollow pushes the author again below the hysteresis")
+    void unfollow() {
+        when(timelineEntryRepository.isPulled(SECOND_ID)).thenReturn(true);
+        when(timelineEntryRepository.countFollowers(SECOND_ID)).thenReturn(0L);
+        timelineService.unfollow(ID, SECOND_ID);
+        verify(timelineEntryRepository, times(1)).deleteByUserIdAndAuthorId(ID, SECOND_ID);
+        verify(timelineEntryRepository, times(1)).markPushed(SECOND_ID);
+    }
+
+    @Test
+    @DisplayName("Followers backfilled in batches")
+    void backfillNextFollowers() {
+        var pulledAuthor = mock(PulledAuthor.class);
+        when(pulledAuthor.getPushed()).thenReturn(true);
+        when(pulledAuthor.getBackfilledFollowerId()).thenReturn(0L, SECOND_ID);
+        when(timelineEntryRepository.findForUpdateByAuthorId(ID)).thenReturn(Optional.of(pulledAuthor));
+        when(timelineEntryRepository.findFollowerIds(ID, 0L, PageRequest.of(0, BACKFILL_BATCH_SIZE)))
+                .thenReturn(List.of(ID, SECOND_ID));
+        when(timelineEntryRepository.findFollowerIds(ID, SECOND_ID, PageRequest.of(0, BACKFILL_BATCH_SIZE)))
+                .thenReturn(List.of(THIRD_ID));
+
+        assertTrue(timelineService.backfillNextFollowers(ID));
+        assertFalse(timelineService.backfillNextFollowers(ID));
+
+        verify(timelineEntryRepository, times(1)).backfillFollowers(eq(ID), eq(List.of(ID, SECOND_ID)), anyInt());
+        verify(timelineEntryRepository, times(1)).backfillFollowers(eq(ID), eq(List.of(THIRD_ID)), anyInt());
+        verify(pulledAuthor, times(1)).setBackfilledFollowerId(SECOND_ID);
+        verify(timelineEntryRepository, times(1)).deletePulled(ID);
+    }
+
+    @Test
+    @DisplayName("Backfill skips the authors pulled again")
+    void backfillPulledAgain() {
+        when(timelineEntryRepository.findForUpdateByAuthorId(ID)).thenReturn(Optional.empty());
+        assertFalse(timelineService.backfillNextFollowers(ID));
+        verify(timelineEntryRepository, never()).deletePulled(any());
+    }
+
+    @Test
+    @DisplayName("Follow backfills not pulled authors")
+    void follow() {
+        when(timelineEntryRepository.countFollowers(SECOND_ID)).thenReturn(1L);
+        timelineService.follow(ID, SECOND_ID);
+        verify(timelineEntryRepository, times(1)).backfill(eq(ID), eq(SECOND_ID), anyInt());
+    }
+
+    @Test
+    @DisplayName("Pushed and pulled posts merged newest first")
+    void getPostIds() {
+        when(timelineEntryRepository.findPostIds(eq(ID), eq(Long.MAX_VALUE), any())).thenReturn(List.of(9L, 7L, 4L));
+        when(timelineEntryRepository.findFollowedPulled(ID)).thenReturn(List.of(SECOND_ID));
+        when(postRepository.findIdsByUserIds(eq(List.of(SECOND_ID, ID)), eq(Long.MAX_VALUE), any()))
+                .thenReturn(List.of(8L, 7L, 5L));
+
+        assertEquals(List.of(9L, 8L, 7L, 5L), timelineService.getPostIds(ID, null, 4));
+    }
+
+}
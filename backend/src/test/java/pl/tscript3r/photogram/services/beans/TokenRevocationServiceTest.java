@@ -0,0 +1,113 @@
+package pl.tscript3r.photogram.services.beans;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import pl.tscript3r.photogram.infrastructure.exception.ForbiddenPhotogramException;
+import pl.tscript3r.photogram.user.token.RevocableToken;
+import pl.tscript3r.photogram.user.token.RevokedToken;
+import pl.tscript3r.photogram.user.token.RevokedTokenRepository;
+import pl.tscript3r.photogram.user.token.TokenRevocationService;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Token revocation service")
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    private static final String TOKEN_ID = "revoked";
+    private static final String OTHER_TOKEN_ID = "other";
+
+    @Mock
+    RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void init() {
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository);
+    }
+
+    private void rebuild(final String... tokenIds) {
+        when(revokedTokenRepository.count()).thenReturn((long) tokenIds.length);
+        when(revokedTokenRepository.streamTokenIds()).thenReturn(Stream.of(tokenIds));
+        tokenRevocationService.rebuild();
+    }
+
+    @Test
+    @DisplayName("Table queried until the filter is built")
+    void notReady() {
+        when(revokedTokenRepository.existsByTokenId(TOKEN_ID)).thenReturn(true);
+        assertTrue(tokenRevocationService.isRevoked(TOKEN_ID));
+    }
+
+    @Test
+    @DisplayName("Not revoked token answered by the filter")
+    void notRevoked() {
+        rebuild(TOKEN_ID);
+        assertFalse(tokenRevocationService.isRevoked(OTHER_TOKEN_ID));
+        verify(revokedTokenRepository, never()).existsByTokenId(any());
+    }
+
+    @Test
+    @DisplayName("Filter hit confirmed by the table")
+    void revoked() {
+        rebuild(TOKEN_ID);
+        when(revokedTokenRepository.existsByTokenId(TOKEN_ID)).thenReturn(true);
+        assertTrue(tokenRevocationService.isRevoked(TOKEN_ID));
+    }
+
+    @Test
+    @DisplayName("Revoke saves and puts into the filter")
+    void revoke() {
+        rebuild();
+        tokenRevocationService.revoke(TOKEN_ID, Instant.now());
+        verify(revokedTokenRepository, times(1)).save(any(RevokedToken.class));
+
+        when(revokedTokenRepository.existsByTokenId(TOKEN_ID)).thenReturn(true);
+        assertTrue(tokenRevocationService.isRevoked(TOKEN_ID));
+    }
+
+    @Test
+    @DisplayName("Revoked while rebuilding kept in the rebuilt filter")
+    void revokeWhileRebuilding() {
+        when(revokedTokenRepository.count()).thenReturn(0L);
+        when(revokedTokenRepository.streamTokenIds()).thenAnswer(invocation -> {
+            tokenRevocationService.revoke(TOKEN_ID, Instant.now());
+            return Stream.empty();
+        });
+        tokenRevocationService.rebuild();
+
+        when(revokedTokenRepository.existsByTokenId(TOKEN_ID)).thenReturn(true);
+        assertTrue(tokenRevocationService.isRevoked(TOKEN_ID));
+    }
+
+    @Test
+    @DisplayName("Revoke by the logged in token")
+    void revokeByPrincipal() {
+        var expiresAt = Instant.now();
+        var authentication = new UsernamePasswordAuthenticationToken("user", null, List.of());
+        authentication.setDetails(new RevocableToken(TOKEN_ID, expiresAt));
+        tokenRevocationService.revoke(authentication);
+        verify(revokedTokenRepository, times(1)).save(argThat(revokedToken ->
+                TOKEN_ID.equals(revokedToken.getTokenId()) && expiresAt.equals(revokedToken.getExpiresAt())));
+    }
+
+    @Test
+    @DisplayName("Revoke without login")
+    void revokeWithoutLogin() {
+        assertThrows(ForbiddenPhotogramException.class, () -> tokenRevocationService.revoke(null));
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+}
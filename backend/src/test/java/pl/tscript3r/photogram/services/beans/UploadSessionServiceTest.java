@@ -0,0 +1,131 @@
+package pl.tscript3r.photogram.services.beans;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+import pl.tscript3r.photogram.infrastructure.exception.BadRequestPhotogramException;
+import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
+import pl.tscript3r.photogram.post.image.UploadSession;
+import pl.tscript3r.photogram.post.image.UploadSessionService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.tscript3r.photogram.Consts.*;
+
+@DisplayName("Upload session service")
+class UploadSessionServiceTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes();
+
+    @TempDir
+    Path basePath;
+
+    private UploadSessionService uploadSessionService;
+    private UploadSession session;
+
+    @BeforeEach
+    void init() {
+        var imageConfig = new ImageConfig();
+        imageConfig.setBasePath(basePath.toString() + "/");
+        uploadSessionService = new UploadSessionService(imageConfig);
+        session = uploadSessionService.create(ID, ID, CONTENT.length, IMAGE_EXTENSION);
+    }
+
+    private boolean write(final int from, final int to, final String checksum) {
+        return uploadSessionService.write(session, from,
+                new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, from, to)), checksum);
+    }
+
+    private String checksum(final int from, final int to) throws Exception {
+        var digest = MessageDigest.getInstance("SHA-256").digest(Arrays.copyOfRange(CONTENT, from, to));
+        return "sha256 " + Base64.getEncoder().encodeToString(digest);
+    }
+
+    @Test
+    @DisplayName("Out of order chunks")
+    void outOfOrderChunks() throws Exception {
+        assertFalse(write(6, 10, null));
+        assertFalse(write(0, 3, checksum(0, 3)));
+        assertEquals(List.of("3-5"), session.getMissingRanges());
+        assertEquals(7, session.getReceivedLength());
+
+        assertTrue(write(2, 6, null));
+        assertTrue(session.getMissingRanges().isEmpty());
+        assertArrayEquals(CONTENT, Files.readAllBytes(session.getPath()));
+    }
+
+    @Test
+    @DisplayName("Chunk with checksum mismatch is not counted")
+    void checksumMismatch() throws Exception {
+        var checksum = checksum(5, 10);
+        assertThrows(BadRequestPhotogramException.class, () -> write(0, 5, checksum));
+        assertEquals(List.of("0-9"), session.getMissingRanges());
+    }
+
+    @Test
+    @DisplayName("Corrupt retry does not overwrite received bytes")
+    void corruptRetry() throws Exception {
+        assertFalse(write(0, 5, checksum(0, 5)));
+        var checksum = checksum(0, 5);
+        assertThrows(BadRequestPhotogramException.class, () -> uploadSessionService.write(session, 0,
+                new ByteArrayInputStream("xxxxx".getBytes()), checksum));
+        assertEquals(List.of("5-9"), session.getMissingRanges());
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 0, 5),
+                Arrays.copyOfRange(Files.readAllBytes(session.getPath()), 0, 5));
+    }
+
+    @Test
+    @DisplayName("Chunk exceeding the declared length")
+    void chunkExceedingLength() {
+        assertThrows(BadRequestPhotogramException.class, () -> uploadSessionService.write(session, 5,
+                new ByteArrayInputStream(CONTENT), null));
+    }
+
+    @Test
+    @DisplayName("Completed only once")
+    void completedOnlyOnce() {
+        assertTrue(write(0, 10, null));
+        assertThrows(BadRequestPhotogramException.class, () -> write(0, 10, null));
+    }
+
+    @Test
+    @DisplayName("Remove inactive sessions")
+    void removeInactive() {
+        assertEquals(0, uploadSessionService.removeInactiveSince(Instant.now().minusSeconds(60)));
+        assertEquals(1, uploadSessionService.removeInactiveSince(Instant.now().plusSeconds(1)));
+        assertFalse(Files.exists(session.getPath()));
+        assertThrows(NotFoundPhotogramException.class, () -> uploadSessionService.get(session.getId()));
+    }
+
+    @Test
+    @DisplayName("Remove files of sessions lost with a restart")
+    void removeOrphanedFiles() throws Exception {
+        var orphaned = Files.createFile(session.getPath().resolveSibling("lost.part"));
+        var orphanedChunk = Files.createFile(session.getPath().resolveSibling("lost.1.chunk"));
+
+        assertEquals(2, uploadSessionService.removeOrphanedFiles(Instant.now().plusSeconds(1)));
+
+        assertFalse(Files.exists(orphaned));
+        assertFalse(Files.exists(orphanedChunk));
+        assertTrue(Files.exists(session.getPath()));
+    }
+
+    @Test
+    @DisplayName("Recently modified files kept")
+    void recentOrphanedFilesKept() throws Exception {
+        var orphaned = Files.createFile(session.getPath().resolveSibling("new.part"));
+        assertEquals(0, uploadSessionService.removeOrphanedFiles(Instant.now().minusSeconds(60)));
+        assertTrue(Files.exists(orphaned));
+    }
+
+}
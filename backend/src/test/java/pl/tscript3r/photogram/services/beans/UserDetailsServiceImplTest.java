@@ -24,6 +24,8 @@ import static pl.tscript3r.photogram.domains.UserTest.getDefaultUser;
 @ExtendWith(MockitoExtension.class)
 class UserDetailsServiceImplTest {
 
+    private static final String UPGRADED_PASSWORD = "$2a$12$upgraded";
+
     @Mock
     UserService userService;
 
@@ -49,4 +51,16 @@ class UserDetailsServiceImplTest {
         assertThrows(ForbiddenPhotogramException.class, () -> userDetailsServiceImpl.loadUserByUsername(USERNAME));
     }
 
+    @Test
+    @DisplayName("Update upgraded password")
+    void updatePassword() {
+        var user = getDefaultUser();
+        when(userService.getByUsername(USERNAME)).thenReturn(user);
+        var userDetails = userDetailsServiceImpl.loadUserByUsername(USERNAME);
+        var result = userDetailsServiceImpl.updatePassword(userDetails, UPGRADED_PASSWORD);
+        assertEquals(UPGRADED_PASSWORD, user.getPassword());
+        assertEquals(UPGRADED_PASSWORD, result.getPassword());
+        assertEquals(userDetails.getAuthorities(), result.getAuthorities());
+    }
+
 }
\ No newline at end of file
@@ -10,11 +10,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
 import pl.tscript3r.photogram.infrastructure.exception.ForbiddenPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.IgnoredPhotogramException;
 import pl.tscript3r.photogram.infrastructure.exception.NotFoundPhotogramException;
+import pl.tscript3r.photogram.post.image.ImageFormat;
 import pl.tscript3r.photogram.post.image.ImageService;
+import pl.tscript3r.photogram.post.timeline.TimelineService;
 import pl.tscript3r.photogram.user.AuthorizationService;
+import pl.tscript3r.photogram.user.LoggedUserContext;
 import pl.tscript3r.photogram.user.User;
 import pl.tscript3r.photogram.user.UserRepository;
 import pl.tscript3r.photogram.user.UserService;
@@ -23,9 +27,12 @@ import pl.tscript3r.photogram.user.email.EmailConfirmation;
 import pl.tscript3r.photogram.user.email.EmailService;
 import pl.tscript3r.photogram.user.role.RoleService;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -62,6 +69,15 @@ class UserServiceTest {
     @Mock
     EmailService emailService;
 
+    @Mock
+    TimelineService timelineService;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
     @Mock
     Pageable pageable;
 
@@ -71,7 +87,8 @@ class UserServiceTest {
     void setUp() {
         var mapperService = getInstance();
         userService = new UserService(userRepository, roleService, authorizationService, passwordEncoder, imageService,
-                emailService, mapperService);
+                emailService, timelineService, mapperService, new LoggedUserContext(userRepository, entityManager,
+                transactionManager));
     }
 
     @Test
@@ -334,22 +351,26 @@ class UserServiceTest {
     @DisplayName("Get avatar")
     void getAvatar() {
         when(userRepository.findById(any())).thenReturn(Optional.ofNullable(getDefaultUser()));
-        when(imageService.getAvatar(any())).thenReturn(IMAGE_RESPONSE_ENTITY);
+        when(imageService.getAvatar(any(), any())).thenReturn(IMAGE_RESPONSE_ENTITY);
 
         assertNotNull(userService.getAvatar(ID));
 
         verify(userRepository, times(1)).findById(any());
-        verify(imageService, times(1)).getAvatar(any());
+        verify(imageService, times(1)).getAvatar(any(), any());
     }
 
     @Test
     @DisplayName("Save avatar")
-    void saveAvatar() {
+    void saveAvatar() throws IOException {
         when(authorizationService.requireLogin(any())).thenReturn(authorizationService);
-        when(userRepository.findById(any())).thenReturn(Optional.ofNullable(getDefaultUser()));
+        var user = getDefaultUser();
+        when(userRepository.findById(any())).thenReturn(Optional.ofNullable(user));
+        when(imageService.saveAvatar(any(), any())).thenReturn(ImageFormat.GIF);
 
-        userService.saveAvatar(() -> USERNAME, ID, IMAGE_MOCK_MULTIPART_FILE);
+        userService.saveAvatar(() -> USERNAME, ID, IMAGE_MOCK_MULTIPART_FILE.getInputStream());
 
+        assertEquals(ImageFormat.GIF, user.getAvatarFormat());
+        verify(userRepository, times(1)).save(user);
         verify(authorizationService, times(1)).requireLogin(any());
         verify(authorizationService, times(1)).accessValidation(any(), any());
         verify(userRepository, times(1)).findById(any());
@@ -397,6 +418,7 @@ class UserServiceTest {
         userService.follow(() -> USERNAME, ID);
 
         verify(userRepository, times(2)).save(any());
+        verify(timelineService, times(1)).follow(user.getId(), ID);
         assertTrue(user.isFollowing(followUser));
     }
 
@@ -426,6 +448,7 @@ class UserServiceTest {
         userService.unfollow(() -> USERNAME, ID);
 
         verify(userRepository, times(2)).save(any());
+        verify(timelineService, times(1)).unfollow(user.getId(), ID);
         assertFalse(user.isFollowing(unfollowUser));
     }
 
@@ -443,11 +466,39 @@ class UserServiceTest {
         verify(userRepository, times(0)).save(any());
     }
 
+    @Test
+    @DisplayName("Get containing with the roles of the whole page")
+    void getContaining() {
+        var userDto = new UserDto(ID, FIRSTNAME, USERNAME, EMAIL, true, null, null);
+        when(userRepository.findDtosByUsernameContaining(any(), any())).thenReturn(new SliceImpl<>(List.of(userDto)));
+        when(userRepository.findRolesByUserIds(List.of(ID))).thenReturn(List.of(userRole(ID, SECOND_ROLE)));
+
+        var result = userService.getContaining(USERNAME, pageable).getContent();
+
+        assertEquals(1, result.size());
+        assertEquals(SECOND_ROLE, result.get(0).getRoles().iterator().next().getName());
+        verify(userRepository, times(1)).findRolesByUserIds(any());
+    }
+
+    private UserRepository.UserRole userRole(final Long userId, final String name) {
+        return new UserRepository.UserRole() {
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+
     @Test
     @DisplayName("Get followers")
     void getFollowers() {
         when(userRepository.findById(any())).thenReturn(Optional.of(getDefaultUser()));
-        when(userRepository.findByFollowed(any(), any())).thenReturn(new SliceImpl<>(Collections.emptyList()));
+        when(userRepository.findDtosByFollowed(any(), any())).thenReturn(new SliceImpl<>(Collections.emptyList()));
 
         assertNotNull(userService.getFollowers(ID, pageable));
     }
@@ -456,7 +507,7 @@ class UserServiceTest {
     @DisplayName("Get follows")
     void getFollows() {
         when(userRepository.findById(any())).thenReturn(Optional.of(getDefaultUser()));
-        when(userRepository.findByFollows(any(), any())).thenReturn(new SliceImpl<>(Collections.emptyList()));
+        when(userRepository.findDtosByFollows(any(), any())).thenReturn(new SliceImpl<>(Collections.emptyList()));
 
         assertNotNull(userService.getFollows(ID, pageable));
     }
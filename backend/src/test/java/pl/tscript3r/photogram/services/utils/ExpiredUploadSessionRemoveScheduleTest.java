@@ -0,0 +1,55 @@
+package pl.tscript3r.photogram.services.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+import pl.tscript3r.photogram.post.image.ExpiredUploadSessionRemoveSchedule;
+import pl.tscript3r.photogram.post.image.UploadSessionService;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpiredUploadSessionRemoveScheduleTest {
+
+    @Mock
+    UploadSessionService uploadSessionService;
+
+    ExpiredUploadSessionRemoveSchedule expiredUploadSessionRemoveSchedule;
+
+    @BeforeEach
+    void init() {
+        var imageConfig = new ImageConfig();
+        imageConfig.setUploadSessionExpiry(Duration.ofHours(1));
+        expiredUploadSessionRemoveSchedule = new ExpiredUploadSessionRemoveSchedule(uploadSessionService, imageConfig);
+    }
+
+    @Test
+    @DisplayName("Remove sessions inactive longer than the expiry")
+    void removeExpiredUploadSessions() {
+        expiredUploadSessionRemoveSchedule.removeExpiredUploadSessions();
+        verify(uploadSessionService, times(1)).removeInactiveSince(argThat(expiryDate -> {
+            assertTrue(expiryDate.isBefore(Instant.now().minus(Duration.ofMinutes(59))));
+            return true;
+        }));
+        verify(uploadSessionService, times(1)).removeOrphanedFiles(any());
+    }
+
+    @Test
+    @DisplayName("Remove files left by the previous run on startup")
+    void removeOrphanedUploadFiles() {
+        expiredUploadSessionRemoveSchedule.removeOrphanedUploadFiles();
+        verify(uploadSessionService, times(1)).removeOrphanedFiles(argThat(modifiedBefore ->
+                !modifiedBefore.isBefore(Instant.now().minusSeconds(60))));
+    }
+
+}
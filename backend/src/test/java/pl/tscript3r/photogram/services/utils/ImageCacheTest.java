@@ -0,0 +1,95 @@
+package pl.tscript3r.photogram.services.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+import pl.tscript3r.photogram.post.image.ImageCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Image cache")
+class ImageCacheTest {
+
+    private static final String FIRST_KEY = "first";
+    private static final String SECOND_KEY = "second";
+
+    @TempDir
+    Path directory;
+
+    private ImageCache imageCache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void init() {
+        var imageConfig = new ImageConfig();
+        imageConfig.setCacheCapacity(DataSize.ofBytes(16));
+        imageConfig.setCacheMaxEntrySize(DataSize.ofBytes(10));
+        imageConfig.setCacheAdmissionThreshold(2);
+        imageCache = new ImageCache(imageConfig);
+        meterRegistry = new SimpleMeterRegistry();
+        imageCache.bindTo(meterRegistry);
+    }
+
+    private Path write(final String name, final int size) throws IOException {
+        return Files.write(directory.resolve(name), new byte[size]);
+    }
+
+    private double get(final String meter, final String... tags) {
+        return meterRegistry.get(meter).tags(tags).meter().measure().iterator().next().getValue();
+    }
+
+    @Test
+    @DisplayName("Admission after threshold")
+    void admission() throws IOException {
+        var path = write(FIRST_KEY, 8);
+        assertEquals(false, imageCache.get(FIRST_KEY, path).isPresent());
+        assertEquals(true, imageCache.get(FIRST_KEY, path).isPresent());
+        assertEquals(true, imageCache.get(FIRST_KEY, path).isPresent());
+        assertEquals(1, get("cache.gets", "result", "hit"));
+        assertEquals(2, get("cache.gets", "result", "miss"));
+        assertEquals(8, get("cache.resident"));
+    }
+
+    @Test
+    @DisplayName("Too big entry is not admitted")
+    void tooBigEntry() throws IOException {
+        var path = write(FIRST_KEY, 11);
+        imageCache.get(FIRST_KEY, path);
+        assertEquals(false, imageCache.get(FIRST_KEY, path).isPresent());
+        assertEquals(0, get("cache.resident"));
+    }
+
+    @Test
+    @DisplayName("Least recently used eviction")
+    void eviction() throws IOException {
+        var firstPath = write(FIRST_KEY, 8);
+        var secondPath = write(SECOND_KEY, 10);
+        imageCache.get(FIRST_KEY, firstPath);
+        imageCache.get(FIRST_KEY, firstPath);
+        imageCache.get(SECOND_KEY, secondPath);
+        imageCache.get(SECOND_KEY, secondPath);
+        assertEquals(1, get("cache.evictions"));
+        assertEquals(1, get("cache.size"));
+        assertEquals(10, get("cache.resident"));
+    }
+
+    @Test
+    @DisplayName("Invalidate")
+    void invalidate() throws IOException {
+        var path = write(FIRST_KEY, 8);
+        imageCache.get(FIRST_KEY, path);
+        imageCache.get(FIRST_KEY, path);
+        imageCache.invalidate(FIRST_KEY);
+        assertEquals(0, get("cache.size"));
+        assertEquals(false, imageCache.get(FIRST_KEY, path).isPresent());
+    }
+
+}
@@ -0,0 +1,85 @@
+package pl.tscript3r.photogram.services.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.tscript3r.photogram.infrastructure.exception.BadRequestPhotogramException;
+import pl.tscript3r.photogram.post.image.ImageFormat;
+import pl.tscript3r.photogram.post.image.ImageSniffer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Image sniffer")
+class ImageSnifferTest {
+
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    private ImageSniffer sniff(final byte[] content, final long maxSize) throws IOException {
+        var sniffer = new ImageSniffer(new ByteArrayInputStream(content), maxSize);
+        sniffer.transferTo(new ByteArrayOutputStream());
+        return sniffer;
+    }
+
+    private byte[] encode(final String format, final int width, final int height) throws IOException {
+        var output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, output);
+        return output.toByteArray();
+    }
+
+    private void assertSniffed(final ImageFormat format, final int width, final int height, final byte[] content)
+            throws IOException {
+        var sniffer = sniff(content, MAX_SIZE);
+        assertEquals(format, sniffer.getFormat());
+        assertEquals(width, sniffer.getWidth().orElseThrow().intValue());
+        assertEquals(height, sniffer.getHeight().orElseThrow().intValue());
+        assertEquals(content.length, sniffer.getSize());
+    }
+
+    @Test
+    @DisplayName("Sniff PNG")
+    void sniffPng() throws IOException {
+        assertSniffed(ImageFormat.PNG, 300, 200, encode("png", 300, 200));
+    }
+
+    @Test
+    @DisplayName("Sniff JPEG")
+    void sniffJpeg() throws IOException {
+        assertSniffed(ImageFormat.JPEG, 320, 240, encode("jpg", 320, 240));
+    }
+
+    @Test
+    @DisplayName("Sniff GIF")
+    void sniffGif() throws IOException {
+        assertSniffed(ImageFormat.GIF, 64, 32, encode("gif", 64, 32));
+    }
+
+    @Test
+    @DisplayName("Sniff BMP")
+    void sniffBmp() throws IOException {
+        assertSniffed(ImageFormat.BMP, 10, 20, encode("bmp", 10, 20));
+    }
+
+    @Test
+    @DisplayName("Not recognized content")
+    void notRecognized() {
+        assertThrows(BadRequestPhotogramException.class, () -> sniff("not an image".getBytes(), MAX_SIZE));
+    }
+
+    @Test
+    @DisplayName("Too short content")
+    void tooShort() {
+        assertThrows(BadRequestPhotogramException.class, () -> sniff(new byte[]{1}, MAX_SIZE));
+    }
+
+    @Test
+    @DisplayName("Content exceeding the maximum size")
+    void exceedingMaxSize() {
+        assertThrows(BadRequestPhotogramException.class, () -> sniff(new byte[11], 10));
+    }
+
+}
@@ -0,0 +1,110 @@
+package pl.tscript3r.photogram.services.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.tscript3r.photogram.infrastructure.configuration.ImageConfig;
+import pl.tscript3r.photogram.post.image.ImageVariant;
+import pl.tscript3r.photogram.post.image.ImageVariantGenerator;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Image variant generator")
+class ImageVariantGeneratorTest {
+
+    @TempDir
+    Path directory;
+
+    private ImageVariantGenerator imageVariantGenerator;
+
+    @BeforeEach
+    void init() {
+        imageVariantGenerator = new ImageVariantGenerator(new ImageConfig());
+    }
+
+    @AfterEach
+    void destroy() {
+        imageVariantGenerator.destroy();
+    }
+
+    private Path writeImage(final int width, final int height) throws Exception {
+        var original = directory.resolve("1000");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+        return original;
+    }
+
+    @Test
+    @DisplayName("Downscaled variants")
+    void downscaledVariants() throws Exception {
+        var original = writeImage(2000, 1000);
+        imageVariantGenerator.generate(original).get();
+        for (ImageVariant variant : ImageVariant.values()) {
+            var image = ImageIO.read(variant.getPath(original).toFile());
+            assertEquals(variant.getWidth(), image.getWidth());
+            assertEquals(variant.getWidth() / 2, image.getHeight());
+        }
+    }
+
+    @Test
+    @DisplayName("Narrow original is not upscaled")
+    void narrowOriginalNotUpscaled() throws Exception {
+        var original = writeImage(100, 100);
+        imageVariantGenerator.generate(original).get();
+        for (ImageVariant variant : ImageVariant.values())
+            assertArrayEquals(Files.readAllBytes(original), Files.readAllBytes(variant.getPath(original)));
+    }
+
+    private ImageVariantGenerator getGenerator(final long maxDecodedPixels) {
+        imageVariantGenerator.destroy();
+        var imageConfig = new ImageConfig();
+        imageConfig.setVariantMaxDecodedPixels(maxDecodedPixels);
+        imageVariantGenerator = new ImageVariantGenerator(imageConfig);
+        return imageVariantGenerator;
+    }
+
+    @Test
+    @DisplayName("Raster above the pixel limit subsampled on decode")
+    void subsampledAbovePixelLimit() throws Exception {
+        var original = writeImage(2400, 1200);
+        getGenerator(1_000_000L).generate(original).get();
+        for (ImageVariant variant : ImageVariant.values()) {
+            var image = ImageIO.read(variant.getPath(original).toFile());
+            assertEquals(variant.getWidth(), image.getWidth());
+            assertEquals(variant.getWidth() / 2, image.getHeight());
+        }
+    }
+
+    @Test
+    @DisplayName("Raster not decodable within the pixel limit copied")
+    void copiedAbovePixelLimit() throws Exception {
+        var original = writeImage(2400, 1200);
+        getGenerator(100_000L).generate(original).get();
+        for (ImageVariant variant : ImageVariant.values())
+            assertArrayEquals(Files.readAllBytes(original), Files.readAllBytes(variant.getPath(original)));
+    }
+
+    @Test
+    @DisplayName("Not recognized format copied")
+    void notRecognizedFormatCopied() throws Exception {
+        var original = Files.write(directory.resolve("1000"), "not an image".getBytes());
+        imageVariantGenerator.generate(original).get();
+        assertArrayEquals(Files.readAllBytes(original), Files.readAllBytes(ImageVariant.THUMBNAIL.getPath(original)));
+    }
+
+    @Test
+    @DisplayName("Fitting variant")
+    void fittingVariant() {
+        assertTrue(ImageVariant.fitting(null).isEmpty());
+        assertEquals(ImageVariant.THUMBNAIL, ImageVariant.fitting(100).get());
+        assertEquals(ImageVariant.MEDIUM, ImageVariant.fitting(151).get());
+        assertTrue(ImageVariant.fitting(1081).isEmpty());
+    }
+
+}
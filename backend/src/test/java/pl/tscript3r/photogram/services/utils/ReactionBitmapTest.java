@@ -0,0 +1,86 @@
+package pl.tscript3r.photogram.services.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.tscript3r.photogram.post.reaction.ReactionBitmap;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Reaction bitmap")
+class ReactionBitmapTest {
+
+    private static final int DENSE_SIZE = 5000;
+
+    @Test
+    @DisplayName("Sparse values added and removed")
+    void addAndRemove() {
+        var bitmap = new ReactionBitmap();
+        assertTrue(bitmap.add(3));
+        assertTrue(bitmap.add(70_000));
+        assertFalse(bitmap.add(3));
+        assertTrue(bitmap.contains(3));
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(4));
+        assertEquals(2, bitmap.cardinality());
+
+        assertTrue(bitmap.remove(70_000));
+        assertFalse(bitmap.remove(70_000));
+        assertFalse(bitmap.contains(70_000));
+        assertTrue(bitmap.remove(3));
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Dense container converted both ways")
+    void denseContainer() {
+        var bitmap = new ReactionBitmap();
+        for (int i = 0; i < DENSE_SIZE; i++)
+            bitmap.add(i * 2);
+        assertEquals(DENSE_SIZE, bitmap.cardinality());
+        assertTrue(bitmap.contains(2 * (DENSE_SIZE - 1)));
+        assertFalse(bitmap.contains(1));
+
+        for (int i = 0; i < DENSE_SIZE; i += 2)
+            assertTrue(bitmap.remove(i * 2));
+        assertEquals(DENSE_SIZE / 2, bitmap.cardinality());
+        assertFalse(bitmap.contains(0));
+        assertTrue(bitmap.contains(2));
+        assertFalse(bitmap.add(2));
+    }
+
+    @Test
+    @DisplayName("Values iterated in order")
+    void forEach() {
+        var bitmap = new ReactionBitmap();
+        bitmap.add(70_000);
+        bitmap.add(5);
+        bitmap.add(1);
+        var values = new ArrayList<Integer>();
+        bitmap.forEach(values::add);
+        assertEquals(List.of(1, 5, 70_000), values);
+    }
+
+    @Test
+    @DisplayName("Written bitmap read back equal")
+    void serialization() throws IOException {
+        var bitmap = new ReactionBitmap();
+        for (int i = 0; i < DENSE_SIZE; i++)
+            bitmap.add(i);
+        bitmap.add(1_000_000);
+        var output = new ByteArrayOutputStream();
+        bitmap.write(new DataOutputStream(output));
+
+        var result = ReactionBitmap.read(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+
+        assertEquals(DENSE_SIZE + 1, result.cardinality());
+        assertTrue(result.contains(DENSE_SIZE - 1));
+        assertTrue(result.contains(1_000_000));
+        assertFalse(result.contains(DENSE_SIZE));
+        assertTrue(result.add(DENSE_SIZE));
+    }
+
+}
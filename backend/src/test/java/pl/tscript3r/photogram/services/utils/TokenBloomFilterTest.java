@@ -0,0 +1,49 @@
+package pl.tscript3r.photogram.services.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.tscript3r.photogram.user.token.TokenBloomFilter;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Token bloom filter")
+class TokenBloomFilterTest {
+
+    private static final int INSERTIONS = 10_000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    @Test
+    @DisplayName("Put ids always contained")
+    void noFalseNegatives() {
+        var filter = new TokenBloomFilter(INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        var ids = new String[INSERTIONS];
+        for (int i = 0; i < INSERTIONS; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            filter.put(ids[i]);
+        }
+        for (String id : ids)
+            assertTrue(filter.mightContain(id));
+    }
+
+    @Test
+    @DisplayName("False positives within the expected probability")
+    void falsePositives() {
+        var filter = new TokenBloomFilter(INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        for (int i = 0; i < INSERTIONS; i++)
+            filter.put(UUID.randomUUID().toString());
+        var falsePositives = 0;
+        for (int i = 0; i < INSERTIONS; i++)
+            if (filter.mightContain(UUID.randomUUID().toString()))
+                falsePositives++;
+        assertTrue(falsePositives < INSERTIONS * FALSE_POSITIVE_PROBABILITY * 2, "false positives=" + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Empty filter contains nothing")
+    void empty() {
+        assertFalse(new TokenBloomFilter(INSERTIONS, FALSE_POSITIVE_PROBABILITY).mightContain("id"));
+    }
+
+}